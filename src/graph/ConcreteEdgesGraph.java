@@ -3,86 +3,420 @@
  */
 package graph;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * An implementation of Graph.
- * 
+ *
  * <p>PS2 instructions: you MUST use the provided rep.
  */
-public class ConcreteEdgesGraph implements Graph<String> {
-    
+public class ConcreteEdgesGraph implements CountingGraph<String> {
+
     private final Set<String> vertices = new HashSet<>();
     private final List<Edge> edges = new ArrayList<>();
-    
+
+    // Secondary indexes over edges: source -> target -> position + 1, and
+    // target -> source -> position + 1 (ObjectIntMap reserves 0 for "absent")
+    private final Map<String, ObjectIntMap<String>> bySource = new HashMap<>();
+    private final Map<String, ObjectIntMap<String>> byTarget = new HashMap<>();
+
+    // Number of null tombstones left in edges by removals
+    private int tombstones = 0;
+
+    // In packed mode, the edge store that replaces vertices, edges and the
+    // indexes above; null in the default list mode
+    private final PackedEdgeTable<String> packed;
+
+    // Compact once tombstones outnumber live edges, and there are enough of
+    // them to be worth a pass over the list
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 64;
+
     // Abstraction function:
-    //   TODO
+    //   Represents the graph whose vertex labels are the elements of vertices,
+    //   with one directed edge source -> target of the given weight for each
+    //   non-null Edge in edges.
     // Representation invariant:
-    //   TODO
+    //   - every edge's source and target are in vertices
+    //   - every edge's weight is positive
+    //   - no two edges have the same source and target
+    //   - bySource and byTarget have the same key set as vertices
+    //   - bySource.get(s).get(t) == byTarget.get(t).get(s) == i + 1 iff
+    //     edges.get(i) is the edge s -> t
+    //   - tombstones is the number of nulls in edges
+    //   - in packed mode, vertices, edges and the indexes are empty, and
+    //     packed alone represents the graph
     // Safety from rep exposure:
-    //   TODO
-    
-    // TODO constructor
-    
-    // TODO checkRep
-    
+    //   - all fields are private, and never returned
+    //   - vertices(), sources() and targets() return read-only views
+    //   - Edge is immutable and String is immutable
+
+    /**
+     * Create an empty graph that stores one Edge object per edge.
+     */
+    public ConcreteEdgesGraph() {
+        this(false);
+    }
+
+    private ConcreteEdgesGraph(boolean packedMode) {
+        this.packed = packedMode ? new PackedEdgeTable<>() : null;
+        assert checkRep();
+    }
+
+    /**
+     * Create an empty graph in packed mode: vertex labels are interned to int
+     * ids, and each vertex's outgoing edges are stored as sorted int arrays of
+     * target ids and weights instead of Edge objects, for large graphs.
+     *
+     * @return a new empty graph in packed mode
+     */
+    public static ConcreteEdgesGraph packed() {
+        return new ConcreteEdgesGraph(true);
+    }
+
+    /**
+     * Check the full rep invariant; O(V + E), so only called from assert.
+     *
+     * @return true, if the invariant holds
+     */
+    private boolean checkRep() {
+        if (packed != null) {
+            assert vertices.isEmpty() && edges.isEmpty() && bySource.isEmpty() : "list rep used in packed mode";
+            return true;
+        }
+        assert bySource.keySet().equals(vertices) : "source index out of sync";
+        assert byTarget.keySet().equals(vertices) : "target index out of sync";
+        int nulls = 0;
+        for (int i = 0; i < edges.size(); i++) {
+            Edge edge = edges.get(i);
+            if (edge == null) {
+                nulls++;
+                continue;
+            }
+            assert vertices.contains(edge.source()) : "edge source must be a vertex";
+            assert vertices.contains(edge.target()) : "edge target must be a vertex";
+            assert edge.weight() > 0 : "edge weight must be positive";
+            assert bySource.get(edge.source()).get(edge.target()) == i + 1 : "source index out of sync";
+            assert byTarget.get(edge.target()).get(edge.source()) == i + 1 : "target index out of sync";
+        }
+        assert nulls == tombstones : "tombstone count out of sync";
+        return true;
+    }
+
     @Override public boolean add(String vertex) {
-        throw new RuntimeException("not implemented");
+        if (packed != null) {
+            return packed.add(vertex);
+        }
+        if (!vertices.add(vertex)) {
+            return false;
+        }
+        bySource.put(vertex, new ObjectIntMap<>());
+        byTarget.put(vertex, new ObjectIntMap<>());
+        assert checkRep();
+        return true;
     }
-    
+
+    /**
+     * @return position of the edge source -> target in edges, or -1 if there is none
+     */
+    private int find(String source, String target) {
+        ObjectIntMap<String> outgoing = bySource.get(source);
+        return outgoing == null ? -1 : outgoing.get(target) - 1;
+    }
+
+    /**
+     * Append a new edge between existing vertices and index it.
+     */
+    private void append(String source, String target, int weight) {
+        edges.add(new Edge(source, target, weight));
+        bySource.get(source).put(target, edges.size());
+        byTarget.get(target).put(source, edges.size());
+    }
+
+    /**
+     * Tombstone the edge at position, unindex it, and compact if needed.
+     */
+    private void delete(int position) {
+        Edge edge = edges.set(position, null);
+        bySource.get(edge.source()).remove(edge.target());
+        byTarget.get(edge.target()).remove(edge.source());
+        tombstones++;
+        compactIfNeeded();
+    }
+
+    private void compactIfNeeded() {
+        if (tombstones < MIN_TOMBSTONES_TO_COMPACT || tombstones * 2 < edges.size()) {
+            return;
+        }
+        edges.removeIf(edge -> edge == null);
+        tombstones = 0;
+        for (int i = 0; i < edges.size(); i++) {
+            Edge edge = edges.get(i);
+            bySource.get(edge.source()).put(edge.target(), i + 1);
+            byTarget.get(edge.target()).put(edge.source(), i + 1);
+        }
+    }
+
     @Override public int set(String source, String target, int weight) {
-        throw new RuntimeException("not implemented");
+        if (packed != null) {
+            return packed.set(source, target, weight);
+        }
+        if (weight < 0) {
+            throw new IllegalArgumentException("edge weight must be nonnegative: " + weight);
+        }
+        int position = find(source, target);
+        int previous = position < 0 ? 0 : edges.get(position).weight();
+        if (weight == 0) {
+            if (position >= 0) {
+                delete(position);
+            }
+        } else if (position >= 0) {
+            edges.set(position, edges.get(position).withWeight(weight));
+        } else {
+            add(source);
+            add(target);
+            append(source, target, weight);
+        }
+        assert checkRep();
+        return previous;
+    }
+
+    @Override public int increment(String source, String target, int delta) {
+        if (packed != null) {
+            return packed.increment(source, target, delta);
+        }
+        int position = find(source, target);
+        int weight = checkWeight((position < 0 ? 0 : edges.get(position).weight()) + delta);
+        if (position >= 0) {
+            if (weight == 0) {
+                delete(position);
+            } else {
+                edges.set(position, edges.get(position).withWeight(weight));
+            }
+        } else if (weight > 0) {
+            add(source);
+            add(target);
+            append(source, target, weight);
+        }
+        assert checkRep();
+        return weight;
     }
-    
+
+    private static int checkWeight(int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("edge weight would become negative: " + weight);
+        }
+        return weight;
+    }
+
     @Override public boolean remove(String vertex) {
-        throw new RuntimeException("not implemented");
+        if (packed != null) {
+            return packed.remove(vertex);
+        }
+        if (!vertices.remove(vertex)) {
+            return false;
+        }
+        ObjectIntMap<String> outgoing = bySource.remove(vertex);
+        ObjectIntMap<String> incoming = byTarget.remove(vertex);
+
+        // Only the vertex's own edges need to be tombstoned
+        for (String target : outgoing.keys()) {
+            int position = outgoing.get(target) - 1;
+            edges.set(position, null);
+            tombstones++;
+            if (!target.equals(vertex)) {
+                byTarget.get(target).remove(vertex);
+            }
+        }
+        for (String source : incoming.keys()) {
+            if (!source.equals(vertex)) {
+                int position = incoming.get(source) - 1;
+                edges.set(position, null);
+                tombstones++;
+                bySource.get(source).remove(vertex);
+            }
+        }
+        compactIfNeeded();
+        assert checkRep();
+        return true;
     }
-    
+
     @Override public Set<String> vertices() {
-        throw new RuntimeException("not implemented");
+        if (packed != null) {
+            return packed.vertices();
+        }
+        return Collections.unmodifiableSet(vertices);
     }
-    
+
     @Override public Map<String, Integer> sources(String target) {
-        throw new RuntimeException("not implemented");
+        if (packed != null) {
+            return packed.sources(target);
+        }
+        return collect(byTarget.get(target));
     }
-    
+
     @Override public Map<String, Integer> targets(String source) {
-        throw new RuntimeException("not implemented");
+        if (packed != null) {
+            return packed.targets(source);
+        }
+        return collect(bySource.get(source));
     }
-    
-    // TODO toString()
-    
+
+    /**
+     * @return read-only view mapping each key of positions to the weight of
+     *         the edge at that position
+     */
+    private Map<String, Integer> collect(ObjectIntMap<String> positions) {
+        if (positions == null) {
+            return Collections.emptyMap();
+        }
+        return new AbstractMap<String, Integer>() {
+            @Override public Integer get(Object label) {
+                int position = positions.get(label) - 1;
+                return position < 0 ? null : edges.get(position).weight();
+            }
+
+            @Override public boolean containsKey(Object label) {
+                return positions.get(label) > 0;
+            }
+
+            @Override public int size() {
+                return positions.size();
+            }
+
+            @Override public Set<Map.Entry<String, Integer>> entrySet() {
+                // Look up each weight as the entries are iterated, instead of copying them
+                Set<Map.Entry<String, Integer>> entries = positions.asMap().entrySet();
+                return new AbstractSet<Map.Entry<String, Integer>>() {
+                    @Override public Iterator<Map.Entry<String, Integer>> iterator() {
+                        Iterator<Map.Entry<String, Integer>> iterator = entries.iterator();
+                        return new Iterator<Map.Entry<String, Integer>>() {
+                            @Override public boolean hasNext() {
+                                return iterator.hasNext();
+                            }
+
+                            @Override public Map.Entry<String, Integer> next() {
+                                Map.Entry<String, Integer> entry = iterator.next();
+                                return new AbstractMap.SimpleImmutableEntry<>(entry.getKey(),
+                                        edges.get(entry.getValue() - 1).weight());
+                            }
+                        };
+                    }
+
+                    @Override public int size() {
+                        return positions.size();
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * @return a human-readable representation of this graph, listing its
+     *         vertices and then its edges
+     */
+    @Override public String toString() {
+        List<Edge> live;
+        if (packed != null) {
+            // Packed mode keeps no Edge objects, so make them for display only
+            live = new ArrayList<>();
+            for (String source : packed.vertices()) {
+                for (Map.Entry<String, Integer> edge : packed.targets(source).entrySet()) {
+                    live.add(new Edge(source, edge.getKey(), edge.getValue()));
+                }
+            }
+            return "vertices: " + packed.vertices() + ", edges: " + live;
+        }
+        live = new ArrayList<>(edges);
+        live.removeIf(edge -> edge == null);
+        return "vertices: " + vertices + ", edges: " + live;
+    }
+
 }
 
 /**
- * TODO specification
+ * A weighted directed edge between two vertex labels.
  * Immutable.
  * This class is internal to the rep of ConcreteEdgesGraph.
- * 
+ *
  * <p>PS2 instructions: the specification and implementation of this class is
  * up to you.
  */
 class Edge {
-    
-    // TODO fields
-    
+
+    private final String source;
+    private final String target;
+    private final int weight;
+
     // Abstraction function:
-    //   TODO
+    //   Represents the edge source -> target with the given weight.
     // Representation invariant:
-    //   TODO
+    //   source and target are non-null, weight > 0
     // Safety from rep exposure:
-    //   TODO
-    
-    // TODO constructor
-    
-    // TODO checkRep
-    
-    // TODO methods
-    
-    // TODO toString()
-    
+    //   all fields are private, final and immutable
+
+    /**
+     * Create an edge.
+     *
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param weight positive weight of the edge
+     */
+    Edge(String source, String target, int weight) {
+        this.source = source;
+        this.target = target;
+        this.weight = weight;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert source != null : "source must be non-null";
+        assert target != null : "target must be non-null";
+        assert weight > 0 : "weight must be positive";
+    }
+
+    /**
+     * @return label of the source vertex
+     */
+    String source() {
+        return source;
+    }
+
+    /**
+     * @return label of the target vertex
+     */
+    String target() {
+        return target;
+    }
+
+    /**
+     * @return weight of this edge
+     */
+    int weight() {
+        return weight;
+    }
+
+    /**
+     * @param newWeight positive weight
+     * @return an edge with the same source and target and the given weight
+     */
+    Edge withWeight(int newWeight) {
+        return new Edge(source, target, newWeight);
+    }
+
+    /**
+     * @return a human-readable representation of this edge
+     */
+    @Override public String toString() {
+        return source + " -> " + target + " (" + weight + ")";
+    }
+
 }
@@ -7,11 +7,14 @@ import java.util.*;
  *
  * @param <L> type of vertex labels in this graph, must be immutable
  */
-public class ConcreteGraph<L> implements Graph<L> {
+public class ConcreteGraph<L> implements CountingGraph<L> {
 
     // Internal representation of the graph: adjacency list
     private final Map<L, Map<L, Integer>> adjacencyList = new HashMap<>();
 
+    // Reverse adjacency list: for each vertex, the sources of its incoming edges
+    private final Map<L, Map<L, Integer>> incomingList = new HashMap<>();
+
     /**
      * Create an empty graph.
      *
@@ -28,6 +31,7 @@ public class ConcreteGraph<L> implements Graph<L> {
             return false; // Vertex already exists
         }
         adjacencyList.put(vertex, new HashMap<>());
+        incomingList.put(vertex, new HashMap<>());
         return true;
     }
 
@@ -43,29 +47,104 @@ public class ConcreteGraph<L> implements Graph<L> {
         if (weight == 0) {
             // Remove the edge if weight is zero
             edges.remove(target);
+            incomingList.get(target).remove(source);
         } else {
             // Add or update the edge with the new weight
             edges.put(target, weight);
+            incomingList.get(target).put(source, weight);
         }
 
         return previousWeight;
     }
 
+    @Override
+    public int increment(L source, L target, int delta) {
+        if (!adjacencyList.containsKey(source) || !adjacencyList.containsKey(target)) {
+            if (delta < 0) {
+                throw new IllegalArgumentException("edge weight would become negative: " + delta);
+            }
+            if (delta == 0) {
+                return 0; // No such edge, and the graph is not modified
+            }
+            add(source);
+            add(target);
+        }
+
+        // Update the edge with a single lookup; a null result removes it
+        Integer weight = adjacencyList.get(source).compute(target, (key, previous) -> {
+            int updated = (previous == null ? 0 : previous) + delta;
+            if (updated < 0) {
+                throw new IllegalArgumentException("edge weight would become negative: " + updated);
+            }
+            return updated == 0 ? null : updated;
+        });
+
+        if (weight == null) {
+            incomingList.get(target).remove(source);
+            return 0;
+        }
+        incomingList.get(target).put(source, weight);
+        return weight;
+    }
+
     @Override
     public boolean remove(L vertex) {
         if (!adjacencyList.containsKey(vertex)) {
             return false; // Vertex does not exist
         }
 
-        // Remove the vertex from adjacency list
+        // Only the vertex's own neighbors hold edges that mention it
+        for (L target : adjacencyList.get(vertex).keySet()) {
+            incomingList.get(target).remove(vertex);
+        }
+        for (L source : incomingList.get(vertex).keySet()) {
+            adjacencyList.get(source).remove(vertex);
+        }
+
         adjacencyList.remove(vertex);
+        incomingList.remove(vertex);
+        return true;
+    }
 
-        // Remove all edges pointing to the vertex
-        for (Map<L, Integer> edges : adjacencyList.values()) {
-            edges.remove(vertex);
+    /**
+     * Remove a collection of vertices from this graph; any edges to or from
+     * those vertices are also removed. Labels that are not vertices of this
+     * graph are ignored.
+     *
+     * @param vertices labels of the vertices to remove
+     * @return true if this graph included at least one of the given labels;
+     *         otherwise false (and this graph is not modified)
+     */
+    public boolean removeAll(Collection<L> vertices) {
+        Map<L, Map<L, Integer>> removedOutgoing = new HashMap<>();
+        Map<L, Map<L, Integer>> removedIncoming = new HashMap<>();
+        for (L vertex : vertices) {
+            if (adjacencyList.containsKey(vertex)) {
+                removedOutgoing.put(vertex, adjacencyList.remove(vertex));
+                removedIncoming.put(vertex, incomingList.remove(vertex));
+            }
         }
 
-        return true;
+        // Clean up the surviving neighbors; edges between two removed
+        // vertices disappear along with their maps
+        for (Map.Entry<L, Map<L, Integer>> entry : removedOutgoing.entrySet()) {
+            for (L target : entry.getValue().keySet()) {
+                Map<L, Integer> incoming = incomingList.get(target);
+                if (incoming != null) {
+                    incoming.remove(entry.getKey());
+                }
+            }
+        }
+        for (Map.Entry<L, Map<L, Integer>> entry : removedIncoming.entrySet()) {
+            for (L source : entry.getValue().keySet()) {
+                Map<L, Integer> outgoing = adjacencyList.get(source);
+                if (outgoing != null) {
+                    outgoing.remove(entry.getKey());
+                }
+            }
+        }
+
+        return !removedOutgoing.isEmpty();
     }
 
     @Override
@@ -75,16 +154,10 @@ public class ConcreteGraph<L> implements Graph<L> {
 
     @Override
     public Map<L, Integer> sources(L target) {
-        Map<L, Integer> sources = new HashMap<>();
-        for (Map.Entry<L, Map<L, Integer>> entry : adjacencyList.entrySet()) {
-            L source = entry.getKey();
-            Map<L, Integer> edges = entry.getValue();
-
-            if (edges.containsKey(target)) {
-                sources.put(source, edges.get(target));
-            }
+        if (!incomingList.containsKey(target)) {
+            return Collections.emptyMap();
         }
-        return Collections.unmodifiableMap(sources);
+        return Collections.unmodifiableMap(incomingList.get(target));
     }
 
     @Override
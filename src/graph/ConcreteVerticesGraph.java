@@ -4,83 +4,293 @@
 package graph;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
 /**
  * An implementation of Graph.
- * 
+ *
  * <p>PS2 instructions: you MUST use the provided rep.
  */
-public class ConcreteVerticesGraph implements Graph<String> {
-    
+public class ConcreteVerticesGraph implements CountingGraph<String> {
+
     private final List<Vertex> vertices = new ArrayList<>();
-    
+
+    // Index from label to position in vertices, so no operation scans the list
+    private final Map<String, Integer> index = new HashMap<>();
+
     // Abstraction function:
-    //   TODO
+    //   Represents the graph whose vertex labels are the labels of the
+    //   elements of vertices, with an edge v -> t of weight w for every entry
+    //   t -> w in v's outgoing edges.
     // Representation invariant:
-    //   TODO
+    //   - no two elements of vertices have the same label
+    //   - index maps the label of vertices.get(i) to i, and has no other keys
+    //   - every target of an outgoing edge is the label of some vertex
+    //   - v has an outgoing edge to t of weight w iff t has an incoming edge
+    //     from v of weight w
     // Safety from rep exposure:
-    //   TODO
-    
-    // TODO constructor
-    
-    // TODO checkRep
-    
+    //   - vertices and index are private and final, and no Vertex is ever
+    //     returned
+    //   - vertices(), sources() and targets() return unmodifiable views
+
+    /**
+     * Create an empty graph.
+     */
+    public ConcreteVerticesGraph() {
+        assert checkRep();
+    }
+
+    /**
+     * Check the full rep invariant; O(V + E), so only called from assert.
+     *
+     * @return true, if the invariant holds
+     */
+    private boolean checkRep() {
+        assert vertices.size() == index.size() : "index out of sync";
+        for (int i = 0; i < vertices.size(); i++) {
+            Vertex vertex = vertices.get(i);
+            assert index.get(vertex.label()) == i : "index out of sync";
+            for (Map.Entry<String, Integer> edge : vertex.targets().entrySet()) {
+                Vertex target = find(edge.getKey());
+                assert target != null : "edge to unknown vertex";
+                assert edge.getValue().equals(target.sources().get(vertex.label())) : "incoming edge missing";
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the vertex with the given label, or null if there is none
+     */
+    private Vertex find(String label) {
+        Integer position = index.get(label);
+        return position == null ? null : vertices.get(position);
+    }
+
+    /**
+     * @return the vertex with the given label, added if it did not exist
+     */
+    private Vertex findOrAdd(String label) {
+        Vertex vertex = find(label);
+        if (vertex == null) {
+            vertex = new Vertex(label);
+            index.put(label, vertices.size());
+            vertices.add(vertex);
+        }
+        return vertex;
+    }
+
     @Override public boolean add(String vertex) {
-        throw new RuntimeException("not implemented");
+        if (index.containsKey(vertex)) {
+            return false;
+        }
+        findOrAdd(vertex);
+        assert checkRep();
+        return true;
     }
-    
+
     @Override public int set(String source, String target, int weight) {
-        throw new RuntimeException("not implemented");
+        if (weight < 0) {
+            throw new IllegalArgumentException("edge weight must be nonnegative: " + weight);
+        }
+        int previous;
+        if (weight == 0) {
+            Vertex from = find(source);
+            Vertex to = find(target);
+            if (from == null || to == null) {
+                return 0;
+            }
+            previous = from.setTarget(target, 0);
+            to.setSource(source, 0);
+        } else {
+            Vertex to = findOrAdd(target);
+            previous = findOrAdd(source).setTarget(target, weight);
+            to.setSource(source, weight);
+        }
+        assert checkRep();
+        return previous;
+    }
+
+    @Override public int increment(String source, String target, int delta) {
+        Vertex from = find(source);
+        Vertex to = find(target);
+        if (from == null || to == null) {
+            if (delta < 0) {
+                throw new IllegalArgumentException("edge weight would become negative: " + delta);
+            }
+            if (delta == 0) {
+                return 0; // No such edge, and the graph is not modified
+            }
+            to = findOrAdd(target);
+            from = findOrAdd(source);
+        }
+        int weight = from.addToTarget(target, delta);
+        to.setSource(source, weight);
+        assert checkRep();
+        return weight;
     }
-    
+
     @Override public boolean remove(String vertex) {
-        throw new RuntimeException("not implemented");
+        Integer position = index.remove(vertex);
+        if (position == null) {
+            return false;
+        }
+
+        // Swap the last vertex into the hole so the list never shifts
+        Vertex removed = vertices.get(position);
+        Vertex last = vertices.remove(vertices.size() - 1);
+        if (last != removed) {
+            vertices.set(position, last);
+            index.put(last.label(), position);
+        }
+
+        // Only the vertex's own neighbors hold edges that mention it
+        for (String target : removed.targets().keySet()) {
+            Vertex neighbor = find(target);
+            if (neighbor != null) {
+                neighbor.setSource(vertex, 0);
+            }
+        }
+        for (String source : removed.sources().keySet()) {
+            Vertex neighbor = find(source);
+            if (neighbor != null) {
+                neighbor.setTarget(vertex, 0);
+            }
+        }
+        assert checkRep();
+        return true;
     }
-    
+
     @Override public Set<String> vertices() {
-        throw new RuntimeException("not implemented");
+        return Collections.unmodifiableSet(index.keySet());
     }
-    
+
     @Override public Map<String, Integer> sources(String target) {
-        throw new RuntimeException("not implemented");
+        Vertex vertex = find(target);
+        return vertex == null ? Collections.<String, Integer>emptyMap() : vertex.sources();
     }
-    
+
     @Override public Map<String, Integer> targets(String source) {
-        throw new RuntimeException("not implemented");
+        Vertex vertex = find(source);
+        return vertex == null ? Collections.<String, Integer>emptyMap() : vertex.targets();
+    }
+
+    /**
+     * @return a human-readable representation of this graph, listing each
+     *         vertex with its outgoing edges
+     */
+    @Override public String toString() {
+        return vertices.toString();
     }
-    
-    // TODO toString()
-    
+
 }
 
 /**
- * TODO specification
+ * A labeled vertex together with the weighted edges leaving and entering it.
  * Mutable.
  * This class is internal to the rep of ConcreteVerticesGraph.
- * 
+ *
  * <p>PS2 instructions: the specification and implementation of this class is
  * up to you.
  */
 class Vertex {
-    
-    // TODO fields
-    
+
+    private final String label;
+    private final ObjectIntMap<String> targets = new ObjectIntMap<>();
+    private final ObjectIntMap<String> sources = new ObjectIntMap<>();
+
     // Abstraction function:
-    //   TODO
+    //   Represents the vertex label, with an outgoing edge label -> t of
+    //   weight w for every entry t -> w in targets, and an incoming edge
+    //   s -> label of weight w for every entry s -> w in sources.
     // Representation invariant:
-    //   TODO
+    //   label is non-null (ObjectIntMap only stores positive weights)
     // Safety from rep exposure:
-    //   TODO
-    
-    // TODO constructor
-    
-    // TODO checkRep
-    
-    // TODO methods
-    
-    // TODO toString()
-    
+    //   label is immutable; targets and sources are only returned as
+    //   read-only views
+
+    /**
+     * Create a vertex with no edges.
+     *
+     * @param label label of the vertex
+     */
+    Vertex(String label) {
+        this.label = label;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert label != null : "label must be non-null";
+    }
+
+    /**
+     * @return label of this vertex
+     */
+    String label() {
+        return label;
+    }
+
+    /**
+     * @return read-only view of the outgoing edges of this vertex, from
+     *         target label to weight
+     */
+    Map<String, Integer> targets() {
+        return targets.asMap();
+    }
+
+    /**
+     * @return read-only view of the incoming edges of this vertex, from
+     *         source label to weight
+     */
+    Map<String, Integer> sources() {
+        return sources.asMap();
+    }
+
+    /**
+     * Add, change, or remove the outgoing edge to target.
+     *
+     * @param target label of the target vertex
+     * @param weight new nonnegative weight; zero removes the edge
+     * @return the previous weight of the edge, or zero if there was none
+     */
+    int setTarget(String target, int weight) {
+        return targets.put(target, weight);
+    }
+
+    /**
+     * Add, change, or remove the incoming edge from source.
+     *
+     * @param source label of the source vertex
+     * @param weight new nonnegative weight; zero removes the edge
+     * @return the previous weight of the edge, or zero if there was none
+     */
+    int setSource(String source, int weight) {
+        return sources.put(source, weight);
+    }
+
+    /**
+     * Add to the weight of the outgoing edge to target with a single lookup.
+     *
+     * @param target label of the target vertex
+     * @param delta amount to add; the resulting weight must be nonnegative,
+     *              and zero removes the edge
+     * @return the new weight of the edge
+     * @throws IllegalArgumentException if the resulting weight would be negative
+     */
+    int addToTarget(String target, int delta) {
+        return targets.addTo(target, delta);
+    }
+
+    /**
+     * @return a human-readable representation of this vertex and its
+     *         outgoing edges
+     */
+    @Override public String toString() {
+        return label + " -> " + targets;
+    }
+
 }
@@ -0,0 +1,315 @@
+package graph;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A mutable, weighted, directed graph with labeled vertices that is safe for
+ * use by multiple threads.
+ *
+ * <p>Each vertex's outgoing and incoming edges are immutable persistent maps,
+ * kept in {@link ConcurrentHashMap}s, and vertices are striped over
+ * {@link StampedLock}s. Mutations write-lock only the stripes of the vertices
+ * they touch: set() and increment() lock the stripes of their source and
+ * target, and remove() locks the stripes of the vertex and all its neighbors,
+ * always in ascending stripe order so that writers cannot deadlock. A
+ * mutation publishes new maps for both edge directions before it unlocks;
+ * each new map shares all but O(log n) of its nodes with the old one.
+ *
+ * <p>add(), set(), increment(), remove(), targets() and sources() are
+ * linearizable. targets() and sources() read the current map of the vertex
+ * without locking, and check that no writer held the vertex's stripe
+ * meanwhile; only if one did do they take the stripe's read lock. So once
+ * set(a, b, w) has returned, or targets(a) has seen its edge, sources(b) sees
+ * it too. The maps they return are immutable snapshots, returned without
+ * copying.
+ *
+ * <p>vertices() is not linearizable: it is a read-only live view of the
+ * vertex set, and iterating it is weakly consistent, as for ConcurrentHashMap.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class ConcurrentGraph<L> implements CountingGraph<L> {
+
+    private static final int DEFAULT_STRIPES = 64;
+
+    private final ConcurrentMap<L, PersistentMap<L, Integer>> outgoing = new ConcurrentHashMap<>();
+    private final ConcurrentMap<L, PersistentMap<L, Integer>> incoming = new ConcurrentHashMap<>();
+    private final StampedLock[] stripes;
+
+    // Abstraction function:
+    //   - Represents the graph with vertex set outgoing.keySet() and an edge
+    //     s -> t of weight w for every entry t -> w of outgoing.get(s).
+    // Representation invariant (whenever no mutation is in progress):
+    //   - outgoing and incoming have the same key set.
+    //   - outgoing.get(s).get(t) == incoming.get(t).get(s) for all vertices s, t.
+    //   - every stored weight is positive.
+    //   - stripes.length is a power of two.
+    // Safety from rep exposure:
+    //   - The maps are private and never returned; vertices() returns an
+    //     unmodifiable view, and targets() and sources() return read-only
+    //     views of immutable PersistentMaps.
+    // Thread safety argument:
+    //   - All reads and writes of outgoing and incoming go through
+    //     ConcurrentHashMap, and the PersistentMaps in them are immutable.
+    //   - Every mutation that replaces outgoing.get(v) or incoming.get(v), or
+    //     adds or removes v, holds the write lock of v's stripe, from before
+    //     its first change until after its last (two-phase locking). So
+    //     mutations of the same vertex are serialized, and each is linearized
+    //     while it holds all its locks.
+    //   - targets(v) and sources(v) read one map either under the read lock
+    //     of v's stripe, or optimistically and then validated against that
+    //     stripe, so they never see half of a mutation, and are linearized
+    //     at the read.
+    //   - Write locks are always acquired in ascending stripe order.
+
+    /**
+     * Create an empty graph with the default number of lock stripes.
+     */
+    public ConcurrentGraph() {
+        this(DEFAULT_STRIPES);
+    }
+
+    /**
+     * Create an empty graph.
+     *
+     * @param stripeCount number of locks to stripe vertices over; rounded up
+     *                    to a power of two
+     */
+    public ConcurrentGraph(int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("stripe count must be positive: " + stripeCount);
+        }
+        int size = Integer.highestOneBit(stripeCount);
+        if (size < stripeCount) {
+            size <<= 1;
+        }
+        stripes = new StampedLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new StampedLock();
+        }
+    }
+
+    private int stripe(Object vertex) {
+        int h = vertex.hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    /**
+     * Write-lock the stripes of two vertices in ascending order.
+     *
+     * @return the locked stripe indexes, to pass to unlock()
+     */
+    private int[] lock(L first, L second) {
+        int a = stripe(first);
+        int b = stripe(second);
+        return lock(a == b ? new int[] { a } : new int[] { Math.min(a, b), Math.max(a, b) });
+    }
+
+    /**
+     * Write-lock stripes.
+     *
+     * @param held distinct stripe indexes, in ascending order
+     * @return held
+     */
+    private int[] lock(int[] held) {
+        for (int index : held) {
+            stripes[index].asWriteLock().lock();
+        }
+        return held;
+    }
+
+    private void unlock(int[] held) {
+        for (int i = held.length - 1; i >= 0; i--) {
+            stripes[held[i]].asWriteLock().unlock();
+        }
+    }
+
+    /**
+     * Add a vertex; the caller holds its stripe's write lock.
+     */
+    private void addLocked(L vertex) {
+        if (!outgoing.containsKey(vertex)) {
+            // incoming first, so that a vertex visible in outgoing is complete
+            incoming.put(vertex, PersistentMap.empty());
+            outgoing.put(vertex, PersistentMap.empty());
+        }
+    }
+
+    /**
+     * Set the weight of an edge in both directions; the caller holds the
+     * write locks of the stripes of source and target, which are vertices.
+     *
+     * @param weight new weight, or 0 to remove the edge
+     */
+    private void putLocked(L source, L target, int weight) {
+        if (weight == 0) {
+            outgoing.put(source, outgoing.get(source).remove(target));
+            incoming.put(target, incoming.get(target).remove(source));
+        } else {
+            outgoing.put(source, outgoing.get(source).put(target, weight));
+            incoming.put(target, incoming.get(target).put(source, weight));
+        }
+    }
+
+    @Override
+    public boolean add(L vertex) {
+        StampedLock lock = stripes[stripe(vertex)];
+        long stamp = lock.tryOptimisticRead();
+        if (outgoing.containsKey(vertex) && lock.validate(stamp)) {
+            return false; // Vertex already exists
+        }
+        stamp = lock.writeLock();
+        try {
+            if (outgoing.containsKey(vertex)) {
+                return false;
+            }
+            addLocked(vertex);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int set(L source, L target, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("edge weight must be nonnegative: " + weight);
+        }
+        int[] held = lock(source, target);
+        try {
+            PersistentMap<L, Integer> edges = outgoing.get(source);
+            Integer previous = edges == null ? null : edges.get(target);
+            if (weight == 0) {
+                if (previous != null) {
+                    putLocked(source, target, 0);
+                }
+            } else {
+                addLocked(source);
+                addLocked(target);
+                putLocked(source, target, weight);
+            }
+            return previous == null ? 0 : previous;
+        } finally {
+            unlock(held);
+        }
+    }
+
+    @Override
+    public int increment(L source, L target, int delta) {
+        int[] held = lock(source, target);
+        try {
+            PersistentMap<L, Integer> edges = outgoing.get(source);
+            Integer current = edges == null ? null : edges.get(target);
+            int weight = (current == null ? 0 : current) + delta;
+            if (weight < 0) {
+                throw new IllegalArgumentException("edge weight would become negative: " + weight);
+            }
+            if (weight == 0) {
+                if (current != null) {
+                    putLocked(source, target, 0);
+                }
+                return 0;
+            }
+            addLocked(source);
+            addLocked(target);
+            putLocked(source, target, weight);
+            return weight;
+        } finally {
+            unlock(held);
+        }
+    }
+
+    @Override
+    public boolean remove(L vertex) {
+        while (true) {
+            PersistentMap<L, Integer> out = outgoing.get(vertex);
+            PersistentMap<L, Integer> in = incoming.get(vertex);
+            if (out == null || in == null) {
+                return false; // Vertex does not exist
+            }
+
+            // Lock the vertex and every neighbor seen so far, in stripe order
+            SortedSet<Integer> wanted = new TreeSet<>();
+            wanted.add(stripe(vertex));
+            for (L neighbor : out.keySet()) {
+                wanted.add(stripe(neighbor));
+            }
+            for (L neighbor : in.keySet()) {
+                wanted.add(stripe(neighbor));
+            }
+            int[] held = new int[wanted.size()];
+            int count = 0;
+            for (int index : wanted) {
+                held[count++] = index;
+            }
+            lock(held);
+            try {
+                // Neighbors may have changed before the vertex's stripe was held
+                if (outgoing.get(vertex) != out || incoming.get(vertex) != in) {
+                    continue;
+                }
+                for (L target : out.keySet()) {
+                    if (!target.equals(vertex)) {
+                        incoming.put(target, incoming.get(target).remove(vertex));
+                    }
+                }
+                for (L source : in.keySet()) {
+                    if (!source.equals(vertex)) {
+                        outgoing.put(source, outgoing.get(source).remove(vertex));
+                    }
+                }
+                outgoing.remove(vertex);
+                incoming.remove(vertex);
+                return true;
+            } finally {
+                unlock(held);
+            }
+        }
+    }
+
+    @Override
+    public Set<L> vertices() {
+        return Collections.unmodifiableSet(outgoing.keySet());
+    }
+
+    @Override
+    public Map<L, Integer> sources(L target) {
+        return snapshot(incoming, target);
+    }
+
+    @Override
+    public Map<L, Integer> targets(L source) {
+        return snapshot(outgoing, source);
+    }
+
+    /**
+     * Read the edges of a vertex in one direction while no mutation of the
+     * vertex is in progress.
+     *
+     * @return a read-only view of the immutable map adjacency.get(vertex), or
+     *         an empty map if vertex is not in the graph
+     */
+    private Map<L, Integer> snapshot(ConcurrentMap<L, PersistentMap<L, Integer>> adjacency, L vertex) {
+        StampedLock lock = stripes[stripe(vertex)];
+        long stamp = lock.tryOptimisticRead();
+        PersistentMap<L, Integer> edges = adjacency.get(vertex);
+        if (!lock.validate(stamp)) {
+            // A writer held the stripe during the read, so read again under the read lock
+            stamp = lock.readLock();
+            try {
+                edges = adjacency.get(vertex);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return edges == null ? Collections.<L, Integer>emptyMap() : edges.asMap();
+    }
+
+    @Override
+    public String toString() {
+        return outgoing.toString();
+    }
+}
@@ -0,0 +1,57 @@
+package graph;
+
+/**
+ * A mutable weighted directed graph that can also adjust an edge weight in
+ * place, for workloads that count occurrences of edges.
+ *
+ * <p>{@link Graph} must not gain additional methods, so implementations that
+ * support an in-place increment implement this extension instead.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public interface CountingGraph<L> extends Graph<L> {
+
+    /**
+     * Add to the weight of a directed edge in this graph, with a single lookup
+     * of the edge.
+     * If the resulting weight is nonzero, the edge is added or updated and
+     * vertices with the given labels are added to the graph if they do not
+     * already exist.
+     * If the resulting weight is zero, the edge is removed if it exists (the
+     * graph is not otherwise modified).
+     *
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param delta amount to add to the weight of the edge; the resulting
+     *              weight must be nonnegative
+     * @return the new weight of the edge, or zero if there is no such edge
+     * @throws IllegalArgumentException if the resulting weight would be
+     *         negative, in which case the graph is not modified
+     */
+    public int increment(L source, L target, int delta);
+
+    /**
+     * Add to the weight of a directed edge in any graph, using the in-place
+     * operation when the graph supports it and targets() then set() otherwise.
+     *
+     * @param <L> type of vertex labels in the graph
+     * @param graph the graph to modify
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @param delta amount to add, as for {@link #increment(Object, Object, int)}
+     * @return the new weight of the edge, or zero if there is no such edge
+     * @throws IllegalArgumentException if the resulting weight would be negative
+     */
+    public static <L> int increment(Graph<L> graph, L source, L target, int delta) {
+        if (graph instanceof CountingGraph) {
+            return ((CountingGraph<L>) graph).increment(source, target, delta);
+        }
+        int weight = graph.targets(source).getOrDefault(target, 0) + delta;
+        if (weight < 0) {
+            throw new IllegalArgumentException("edge weight would become negative: " + weight);
+        }
+        graph.set(source, target, weight);
+        return weight;
+    }
+
+}
@@ -0,0 +1,341 @@
+package graph;
+
+import java.util.*;
+
+/**
+ * An immutable, weighted, directed graph with labeled vertices, stored in
+ * compressed sparse row (CSR) form.
+ *
+ * <p>Vertex labels are numbered 0..n-1 by a label dictionary, and edges are
+ * kept in flat primitive arrays instead of nested maps of boxed weights, so a
+ * snapshot costs a few ints per edge. The mutators of {@link Graph} throw
+ * {@link UnsupportedOperationException}.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public final class CsrGraph<L> implements Graph<L> {
+
+    // Vertex dictionary: id -> label, and an open-addressing table label -> id + 1
+    private final Object[] labels;
+    private final int[] slots;
+
+    // Outgoing edges of vertex i are targets[offsets[i]..offsets[i + 1]),
+    // sorted by target id, with matching weights
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+
+    // Transposed copy of the above, for incoming edges
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private final int[] inWeights;
+
+    // Abstraction function:
+    //   - Represents the graph whose vertices are labels[0..n), with an edge
+    //     labels[i] -> labels[targets[k]] of weight weights[k] for every k in
+    //     offsets[i]..offsets[i + 1).
+    // Representation invariant:
+    //   - labels are distinct, and slots finds every label's id.
+    //   - offsets and inOffsets have length n + 1, start at 0 and are non-decreasing.
+    //   - each row of targets (and of inSources) is strictly increasing.
+    //   - weights are positive, and the in* arrays are the exact transpose of the out arrays.
+    // Safety from rep exposure:
+    //   - All fields are private, final and never handed out; targets() and
+    //     sources() return read-only views over the arrays.
+
+    private CsrGraph(Object[] labels, int[] offsets, int[] targets, int[] weights) {
+        this.labels = labels;
+        this.slots = new int[tableSize(labels.length)];
+        for (int id = 0; id < labels.length; id++) {
+            int slot = hash(labels[id]) & (slots.length - 1);
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & (slots.length - 1);
+            }
+            slots[slot] = id + 1;
+        }
+
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+
+        // Transpose by counting the in-degree of every vertex
+        int n = labels.length;
+        this.inOffsets = new int[n + 1];
+        this.inSources = new int[targets.length];
+        this.inWeights = new int[targets.length];
+        for (int target : targets) {
+            inOffsets[target + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            inOffsets[i + 1] += inOffsets[i];
+        }
+        int[] next = Arrays.copyOf(inOffsets, n);
+        for (int source = 0; source < n; source++) {
+            for (int k = offsets[source]; k < offsets[source + 1]; k++) {
+                int position = next[targets[k]]++;
+                inSources[position] = source;
+                inWeights[position] = weights[k];
+            }
+        }
+
+        checkRep();
+    }
+
+    /**
+     * Create an immutable CSR snapshot of a graph.
+     *
+     * @param <L> type of vertex labels in the graph, must be immutable
+     * @param graph the graph to copy; it is not modified
+     * @return a new immutable graph with the same vertices and edges as graph
+     */
+    public static <L> CsrGraph<L> of(Graph<L> graph) {
+        if (graph instanceof CsrGraph) {
+            return (CsrGraph<L>) graph; // Already immutable
+        }
+
+        Object[] labels = graph.vertices().toArray();
+        Map<L, Integer> ids = new HashMap<>();
+        for (int id = 0; id < labels.length; id++) {
+            @SuppressWarnings("unchecked")
+            L label = (L) labels[id];
+            ids.put(label, id);
+        }
+
+        int[] offsets = new int[labels.length + 1];
+        int[] targets = new int[16];
+        int[] weights = new int[16];
+        int edgeCount = 0;
+        for (int source = 0; source < labels.length; source++) {
+            @SuppressWarnings("unchecked")
+            L label = (L) labels[source];
+            Map<L, Integer> row = graph.targets(label);
+            if (edgeCount + row.size() > targets.length) {
+                int capacity = Math.max(targets.length * 2, edgeCount + row.size());
+                targets = Arrays.copyOf(targets, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+
+            // Pack (target id, weight) pairs so that sorting keeps them together
+            long[] packed = new long[row.size()];
+            int count = 0;
+            for (Map.Entry<L, Integer> edge : row.entrySet()) {
+                packed[count++] = ((long) ids.get(edge.getKey()) << 32) | (edge.getValue() & 0xFFFFFFFFL);
+            }
+            Arrays.sort(packed);
+            for (long pair : packed) {
+                targets[edgeCount] = (int) (pair >>> 32);
+                weights[edgeCount] = (int) pair;
+                edgeCount++;
+            }
+            offsets[source + 1] = edgeCount;
+        }
+
+        return new CsrGraph<>(labels,
+                offsets, Arrays.copyOf(targets, edgeCount), Arrays.copyOf(weights, edgeCount));
+    }
+
+    /**
+     * Check the representation invariant.
+     */
+    private void checkRep() {
+        int n = labels.length;
+        assert offsets.length == n + 1 && inOffsets.length == n + 1;
+        assert offsets[n] == targets.length && inOffsets[n] == inSources.length;
+        for (int id = 0; id < n; id++) {
+            assert indexOf(labels[id]) == id : "label dictionary out of sync";
+        }
+        for (int weight : weights) {
+            assert weight > 0 : "Edge weight must be positive";
+        }
+    }
+
+    @Override
+    public boolean add(L vertex) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    @Override
+    public int set(L source, L target, int weight) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    @Override
+    public boolean remove(L vertex) {
+        throw new UnsupportedOperationException("CsrGraph is immutable");
+    }
+
+    @Override
+    public Set<L> vertices() {
+        return new AbstractSet<L>() {
+            @Override
+            public boolean contains(Object label) {
+                return indexOf(label) >= 0;
+            }
+
+            @Override
+            public Iterator<L> iterator() {
+                return new Iterator<L>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < labels.length;
+                    }
+
+                    @Override
+                    public L next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return label(next++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return labels.length;
+            }
+        };
+    }
+
+    @Override
+    public Map<L, Integer> sources(L target) {
+        int id = indexOf(target);
+        if (id < 0) {
+            return Collections.emptyMap();
+        }
+        return new Row(inSources, inWeights, inOffsets[id], inOffsets[id + 1]);
+    }
+
+    @Override
+    public Map<L, Integer> targets(L source) {
+        int id = indexOf(source);
+        if (id < 0) {
+            return Collections.emptyMap();
+        }
+        return new Row(targets, weights, offsets[id], offsets[id + 1]);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("{");
+        for (int id = 0; id < labels.length; id++) {
+            if (id > 0) {
+                result.append(", ");
+            }
+            result.append(labels[id]).append('=')
+                  .append(new Row(targets, weights, offsets[id], offsets[id + 1]));
+        }
+        return result.append('}').toString();
+    }
+
+    /**
+     * @param label a vertex label
+     * @return the id of label in this graph, or -1 if it is not a vertex
+     */
+    private int indexOf(Object label) {
+        if (label == null) {
+            return -1;
+        }
+        int slot = hash(label) & (slots.length - 1);
+        while (slots[slot] != 0) {
+            int id = slots[slot] - 1;
+            if (labels[id].equals(label)) {
+                return id;
+            }
+            slot = (slot + 1) & (slots.length - 1);
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private L label(int id) {
+        return (L) labels[id];
+    }
+
+    private static int hash(Object label) {
+        int h = label.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int tableSize(int count) {
+        int size = 2;
+        while (size < count * 2) {
+            size <<= 1;
+        }
+        return size;
+    }
+
+    /**
+     * Read-only map view of one row of the out- or in-edge arrays.
+     */
+    private final class Row extends AbstractMap<L, Integer> {
+
+        private final int[] ids;
+        private final int[] values;
+        private final int start;
+        private final int end;
+
+        Row(int[] ids, int[] values, int start, int end) {
+            this.ids = ids;
+            this.values = values;
+            this.start = start;
+            this.end = end;
+        }
+
+        private int find(Object key) {
+            int id = indexOf(key);
+            return id < 0 ? -1 : Arrays.binarySearch(ids, start, end, id);
+        }
+
+        @Override
+        public Integer get(Object key) {
+            int position = find(key);
+            return position < 0 ? null : values[position];
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return find(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+
+        @Override
+        public Set<Map.Entry<L, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<L, Integer>>() {
+                @Override
+                public Iterator<Map.Entry<L, Integer>> iterator() {
+                    return new Iterator<Map.Entry<L, Integer>>() {
+                        private int next = start;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < end;
+                        }
+
+                        @Override
+                        public Map.Entry<L, Integer> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Map.Entry<L, Integer> entry =
+                                    new AbstractMap.SimpleImmutableEntry<>(label(ids[next]), values[next]);
+                            next++;
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return end - start;
+                }
+            };
+        }
+    }
+}
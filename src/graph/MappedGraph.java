@@ -0,0 +1,504 @@
+package graph;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * An immutable, weighted, directed graph with String vertex labels, served
+ * directly from a memory-mapped file.
+ *
+ * <p>The file holds the graph in compressed sparse row (CSR) form, like
+ * {@link CsrGraph}, with the vertex labels sorted by their UTF-8 bytes, so
+ * that a label is found by binary search over the mapped file. Opening a
+ * file only maps it: nothing is read into the heap, so opening takes the
+ * same time for any size of graph, and processes that map the same file
+ * share its pages in the operating system's page cache. Labels are decoded
+ * when they are returned. The mutators of {@link Graph} throw
+ * {@link UnsupportedOperationException}.
+ *
+ * <p>Vertices are numbered 0..n-1 in the order of their labels' UTF-8
+ * bytes. The file holds, as big-endian ints:
+ * <ul><li> a header: the magic bytes "GMG1", a version, the vertex count n,
+ *          the edge count m, and the total length of the labels in bytes
+ *     <li> n + 1 starts of the labels in the label bytes
+ *     <li> n + 1 row offsets, m targets and m weights of the outgoing edges,
+ *          each row sorted by target
+ *     <li> n + 1 row offsets, m sources and m weights of the incoming edges,
+ *          each row sorted by source
+ *     <li> the UTF-8 bytes of the labels, in vertex order </ul>
+ * <p>Each section is mapped separately, so each must be smaller than 2 GB.
+ * The contents of a file are trusted: only its header is checked when it is
+ * opened. The file must not be modified while it is mapped; the mapping is
+ * released when the graph is garbage collected.
+ */
+public final class MappedGraph implements Graph<String> {
+
+    private static final int MAGIC = 0x474D4731;  // "GMG1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+
+    private final int vertexCount;
+    private final IntBuffer labelStarts;
+    private final ByteBuffer labelBytes;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final IntBuffer weights;
+    private final IntBuffer inOffsets;
+    private final IntBuffer inSources;
+    private final IntBuffer inWeights;
+
+    // Abstraction function:
+    //   - Represents the graph whose vertices are label(0..vertexCount), with an
+    //     edge label(i) -> label(targets[k]) of weight weights[k] for every k
+    //     in offsets[i]..offsets[i + 1).
+    // Representation invariant:
+    //   - the labels are strictly increasing in unsigned UTF-8 byte order.
+    //   - offsets and inOffsets have vertexCount + 1 entries, start at 0 and are
+    //     non-decreasing; each row of targets (and of inSources) is strictly increasing.
+    //   - weights are positive, and the in* buffers are the exact transpose of the out buffers.
+    //   (Checked by write(), and trusted when a file is opened.)
+    // Safety from rep exposure:
+    //   - The buffers are read-only mappings that are never handed out;
+    //     targets() and sources() return read-only views.
+    // Thread safety argument:
+    //   - The buffers are only read with absolute gets, which do not change
+    //     their state, and the mapped file is not modified.
+
+    private MappedGraph(int vertexCount, IntBuffer labelStarts, ByteBuffer labelBytes,
+            IntBuffer offsets, IntBuffer targets, IntBuffer weights,
+            IntBuffer inOffsets, IntBuffer inSources, IntBuffer inWeights) {
+        this.vertexCount = vertexCount;
+        this.labelStarts = labelStarts;
+        this.labelBytes = labelBytes;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+        this.inWeights = inWeights;
+    }
+
+    /**
+     * Write a graph to a file in the format that open() maps, replacing the
+     * file if it exists.
+     *
+     * @param graph the graph to write; it is not modified
+     * @param file file to write
+     * @throws IOException if the file cannot be written
+     * @throws IllegalArgumentException if a section of the file would be 2 GB or larger
+     */
+    public static void write(Graph<String> graph, Path file) throws IOException {
+        // Number the vertices in UTF-8 byte order
+        byte[][] labels = new byte[graph.vertices().size()][];
+        int count = 0;
+        for (String label : graph.vertices()) {
+            labels[count++] = label.getBytes(StandardCharsets.UTF_8);
+        }
+        Arrays.sort(labels, Arrays::compareUnsigned);
+        int n = labels.length;
+        Map<String, Integer> ids = new HashMap<>();
+        String[] strings = new String[n];
+        long labelLength = 0;
+        for (int id = 0; id < n; id++) {
+            strings[id] = new String(labels[id], StandardCharsets.UTF_8);
+            ids.put(strings[id], id);
+            labelLength += labels[id].length;
+        }
+
+        long edgeCount = 0;
+        for (String label : strings) {
+            edgeCount += graph.targets(label).size();
+        }
+        if (edgeCount > (Integer.MAX_VALUE - 8) / Integer.BYTES || labelLength > Integer.MAX_VALUE - 8
+                || n > (Integer.MAX_VALUE - 8) / Integer.BYTES - 1) {
+            throw new IllegalArgumentException("graph is too large for a mapped graph file");
+        }
+        int m = (int) edgeCount;
+
+        // Build both CSR forms: sort each out-row, then transpose by in-degree
+        int[] outOffsets = new int[n + 1];
+        int[] outTargets = new int[m];
+        int[] outWeights = new int[m];
+        int edge = 0;
+        for (int source = 0; source < n; source++) {
+            Map<String, Integer> row = graph.targets(strings[source]);
+            long[] packed = new long[row.size()];
+            int size = 0;
+            for (Map.Entry<String, Integer> target : row.entrySet()) {
+                packed[size++] = (long) ids.get(target.getKey()) << 32 | target.getValue();
+            }
+            Arrays.sort(packed);
+            for (long pair : packed) {
+                outTargets[edge] = (int) (pair >>> 32);
+                outWeights[edge] = (int) pair;
+                edge++;
+            }
+            outOffsets[source + 1] = edge;
+        }
+        int[] inRowOffsets = new int[n + 1];
+        for (int target : outTargets) {
+            inRowOffsets[target + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            inRowOffsets[i + 1] += inRowOffsets[i];
+        }
+        int[] rowSources = new int[m];
+        int[] rowWeights = new int[m];
+        int[] next = Arrays.copyOf(inRowOffsets, n);
+        for (int source = 0; source < n; source++) {
+            for (int k = outOffsets[source]; k < outOffsets[source + 1]; k++) {
+                int position = next[outTargets[k]]++;
+                rowSources[position] = source;
+                rowWeights[position] = outWeights[k];
+            }
+        }
+        int[] starts = new int[n + 1];
+        for (int id = 0; id < n; id++) {
+            starts[id + 1] = starts[id] + labels[id].length;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(m).putInt((int) labelLength).flip();
+            writeFully(channel, header);
+            for (int[] section : new int[][] {
+                    starts, outOffsets, outTargets, outWeights, inRowOffsets, rowSources, rowWeights }) {
+                writeInts(channel, section);
+            }
+            ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+            for (byte[] label : labels) {
+                for (int offset = 0; offset < label.length; ) {
+                    if (!buffer.hasRemaining()) {
+                        buffer.flip();
+                        writeFully(channel, buffer);
+                        buffer.clear();
+                    }
+                    int length = Math.min(buffer.remaining(), label.length - offset);
+                    buffer.put(label, offset, length);
+                    offset += length;
+                }
+            }
+            buffer.flip();
+            writeFully(channel, buffer);
+        }
+    }
+
+    private static void writeInts(FileChannel channel, int[] values) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        for (int offset = 0; offset < values.length; ) {
+            int length = Math.min(buffer.capacity() / Integer.BYTES, values.length - offset);
+            buffer.clear();
+            buffer.asIntBuffer().put(values, offset, length);
+            buffer.limit(length * Integer.BYTES);
+            writeFully(channel, buffer);
+            offset += length;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Map a graph file written by write().
+     *
+     * @param file file to map
+     * @return a graph served from the mapped file
+     * @throws IOException if the file cannot be mapped, or is not a mapped
+     *         graph file of a supported version and of the right length
+     */
+    public static MappedGraph open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("not a mapped graph file: " + file);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("not a mapped graph file: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported mapped graph file version " + version + ": " + file);
+            }
+            int n = header.getInt();
+            int m = header.getInt();
+            int labelLength = header.getInt();
+            long rowsSize = (n + 1L) * Integer.BYTES;
+            long edgesSize = (long) m * Integer.BYTES;
+            if (n < 0 || m < 0 || labelLength < 0
+                    || channel.size() != HEADER_SIZE + 3 * rowsSize + 4 * edgesSize + labelLength) {
+                throw new IOException("corrupt mapped graph file header: " + file);
+            }
+
+            // The mappings stay valid after the channel is closed
+            long position = HEADER_SIZE;
+            IntBuffer starts = mapInts(channel, position, rowsSize);
+            IntBuffer offsets = mapInts(channel, position += rowsSize, rowsSize);
+            IntBuffer targets = mapInts(channel, position += rowsSize, edgesSize);
+            IntBuffer weights = mapInts(channel, position += edgesSize, edgesSize);
+            IntBuffer inOffsets = mapInts(channel, position += edgesSize, rowsSize);
+            IntBuffer inSources = mapInts(channel, position += rowsSize, edgesSize);
+            IntBuffer inWeights = mapInts(channel, position += edgesSize, edgesSize);
+            ByteBuffer labels = channel.map(FileChannel.MapMode.READ_ONLY, position + edgesSize, labelLength);
+            return new MappedGraph(n, starts, labels, offsets, targets, weights, inOffsets, inSources, inWeights);
+        }
+    }
+
+    private static IntBuffer mapInts(FileChannel channel, long position, long size) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, size).asIntBuffer();
+    }
+
+    /**
+     * @return number of vertices in this graph
+     */
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Find the number of a vertex by binary search over the mapped labels.
+     *
+     * @param label a vertex label
+     * @return the number of label in this graph, or -1 if it is not a vertex
+     */
+    public int indexOf(String label) {
+        return indexOf(label.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @param id a vertex number, 0 <= id < vertexCount()
+     * @return the label of vertex id, decoded from the mapped file
+     */
+    public String label(int id) {
+        if (id < 0 || id >= vertexCount) {
+            throw new IndexOutOfBoundsException("no vertex " + id);
+        }
+        int start = labelStarts.get(id);
+        byte[] bytes = new byte[labelStarts.get(id + 1) - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = labelBytes.get(start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private int indexOf(byte[] key) {
+        int low = 0;
+        int high = vertexCount - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int comparison = compareLabel(middle, key);
+            if (comparison < 0) {
+                low = middle + 1;
+            } else if (comparison > 0) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return the unsigned byte comparison of the label of vertex id with key
+     */
+    private int compareLabel(int id, byte[] key) {
+        int start = labelStarts.get(id);
+        int length = labelStarts.get(id + 1) - start;
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int difference = (labelBytes.get(start + i) & 0xFF) - (key[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return length - key.length;
+    }
+
+    private int indexOfObject(Object label) {
+        return label instanceof String ? indexOf((String) label) : -1;
+    }
+
+    @Override
+    public boolean add(String vertex) {
+        throw new UnsupportedOperationException("MappedGraph is immutable");
+    }
+
+    @Override
+    public int set(String source, String target, int weight) {
+        throw new UnsupportedOperationException("MappedGraph is immutable");
+    }
+
+    @Override
+    public boolean remove(String vertex) {
+        throw new UnsupportedOperationException("MappedGraph is immutable");
+    }
+
+    @Override
+    public Set<String> vertices() {
+        return new AbstractSet<String>() {
+            @Override
+            public boolean contains(Object label) {
+                return indexOfObject(label) >= 0;
+            }
+
+            @Override
+            public Iterator<String> iterator() {
+                return new Iterator<String>() {
+                    private int next = 0;
+
+                    @Override
+                    public boolean hasNext() {
+                        return next < vertexCount;
+                    }
+
+                    @Override
+                    public String next() {
+                        if (!hasNext()) {
+                            throw new NoSuchElementException();
+                        }
+                        return label(next++);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return vertexCount;
+            }
+        };
+    }
+
+    @Override
+    public Map<String, Integer> sources(String target) {
+        int id = indexOf(target);
+        if (id < 0) {
+            return Collections.emptyMap();
+        }
+        return new Row(inSources, inWeights, inOffsets.get(id), inOffsets.get(id + 1));
+    }
+
+    @Override
+    public Map<String, Integer> targets(String source) {
+        int id = indexOf(source);
+        if (id < 0) {
+            return Collections.emptyMap();
+        }
+        return new Row(targets, weights, offsets.get(id), offsets.get(id + 1));
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder result = new StringBuilder("{");
+        for (int id = 0; id < vertexCount; id++) {
+            if (id > 0) {
+                result.append(", ");
+            }
+            result.append(label(id)).append('=')
+                  .append(new Row(targets, weights, offsets.get(id), offsets.get(id + 1)));
+        }
+        return result.append('}').toString();
+    }
+
+    /**
+     * Read-only map view of one row of the out- or in-edge buffers.
+     */
+    private final class Row extends AbstractMap<String, Integer> {
+
+        private final IntBuffer ids;
+        private final IntBuffer values;
+        private final int start;
+        private final int end;
+
+        Row(IntBuffer ids, IntBuffer values, int start, int end) {
+            this.ids = ids;
+            this.values = values;
+            this.start = start;
+            this.end = end;
+        }
+
+        /**
+         * @return the index of key's edge in this row, or -1 if it has none
+         */
+        private int find(Object key) {
+            if (start == end) {
+                return -1;
+            }
+            int id = indexOfObject(key);
+            if (id < 0) {
+                return -1;
+            }
+            int low = start;
+            int high = end - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                int middleId = ids.get(middle);
+                if (middleId < id) {
+                    low = middle + 1;
+                } else if (middleId > id) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        public Integer get(Object key) {
+            int position = find(key);
+            return position < 0 ? null : values.get(position);
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return find(key) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return end - start;
+        }
+
+        @Override
+        public Set<Map.Entry<String, Integer>> entrySet() {
+            return new AbstractSet<Map.Entry<String, Integer>>() {
+                @Override
+                public Iterator<Map.Entry<String, Integer>> iterator() {
+                    return new Iterator<Map.Entry<String, Integer>>() {
+                        private int next = start;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < end;
+                        }
+
+                        @Override
+                        public Map.Entry<String, Integer> next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            Map.Entry<String, Integer> entry =
+                                    new AbstractMap.SimpleImmutableEntry<>(label(ids.get(next)), values.get(next));
+                            next++;
+                            return entry;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return end - start;
+                }
+            };
+        }
+    }
+}
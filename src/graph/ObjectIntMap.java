@@ -0,0 +1,298 @@
+package graph;
+
+import java.util.*;
+
+/**
+ * A mutable map from non-null object keys to {@code int} values, using open
+ * addressing with linear probing so that neither keys nor values are boxed
+ * into per-entry objects.
+ * A value of 0 stands for "no entry", matching the way graph weights treat 0
+ * as "no edge"; storing 0 is the same as removing the key.
+ *
+ * <p>This class is internal to the rep of the graph implementations.
+ *
+ * @param <K> type of keys in this map, must be immutable
+ */
+class ObjectIntMap<K> {
+
+    private static final int MIN_CAPACITY = 4;
+
+    private Object[] keys;
+    private int[] values;
+    private int size = 0;
+
+    // Abstraction function:
+    //   - Represents the map { keys[i] -> values[i] | keys[i] != null }.
+    // Representation invariant:
+    //   - keys.length == values.length is a power of two, and size < keys.length.
+    //   - size is the number of non-null keys, and the values of those keys are nonzero.
+    //   - every key is reachable by linear probing from its home slot without
+    //     passing an empty slot.
+    // Safety from rep exposure:
+    //   - The arrays are never returned; asMap() is a read-only view.
+
+    /**
+     * Create an empty map.
+     */
+    ObjectIntMap() {
+        this.keys = new Object[MIN_CAPACITY];
+        this.values = new int[MIN_CAPACITY];
+    }
+
+    /**
+     * @return number of entries in this map
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param key a key
+     * @return the value for key, or 0 if there is none
+     */
+    int get(Object key) {
+        int slot = find(key);
+        return slot < 0 ? 0 : values[slot];
+    }
+
+    /**
+     * Set the value for a key; a value of 0 removes the key.
+     *
+     * @param key a non-null key
+     * @param value the new value
+     * @return the previous value for key, or 0 if there was none
+     */
+    int put(K key, int value) {
+        if (value == 0) {
+            return remove(key);
+        }
+        int slot = slotFor(key);
+        if (keys[slot] == null) {
+            keys[slot] = key;
+            values[slot] = value;
+            size++;
+            growIfNeeded();
+            return 0;
+        }
+        int previous = values[slot];
+        values[slot] = value;
+        return previous;
+    }
+
+    /**
+     * Add to the value for a key with a single probe; a resulting value of 0
+     * removes the key.
+     *
+     * @param key a non-null key
+     * @param delta amount to add to the current value (0 if there is none)
+     * @return the new value for key
+     * @throws IllegalArgumentException if the new value would be negative, in
+     *         which case this map is not modified
+     */
+    int addTo(K key, int delta) {
+        int slot = slotFor(key);
+        int value = (keys[slot] == null ? 0 : values[slot]) + delta;
+        if (value < 0) {
+            throw new IllegalArgumentException("value would become negative: " + value);
+        }
+        if (keys[slot] == null) {
+            if (value != 0) {
+                keys[slot] = key;
+                values[slot] = value;
+                size++;
+                growIfNeeded();
+            }
+        } else if (value == 0) {
+            deleteSlot(slot);
+        } else {
+            values[slot] = value;
+        }
+        return value;
+    }
+
+    /**
+     * Remove a key.
+     *
+     * @param key a key
+     * @return the previous value for key, or 0 if there was none
+     */
+    int remove(Object key) {
+        int slot = find(key);
+        if (slot < 0) {
+            return 0;
+        }
+        int previous = values[slot];
+        deleteSlot(slot);
+        return previous;
+    }
+
+    /**
+     * Remove every entry from this map.
+     */
+    void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, 0);
+        size = 0;
+    }
+
+    /**
+     * @return a read-only view of this map with boxed values
+     */
+    Map<K, Integer> asMap() {
+        return new AbstractMap<K, Integer>() {
+            @Override
+            public Integer get(Object key) {
+                int value = ObjectIntMap.this.get(key);
+                return value == 0 ? null : value;
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return find(key) >= 0;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Set<Map.Entry<K, Integer>> entrySet() {
+                return new AbstractSet<Map.Entry<K, Integer>>() {
+                    @Override
+                    public Iterator<Map.Entry<K, Integer>> iterator() {
+                        return new EntryIterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return size;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * @return the keys of this map, in table order
+     */
+    List<K> keys() {
+        List<K> result = new ArrayList<>(size);
+        for (Object key : keys) {
+            if (key != null) {
+                @SuppressWarnings("unchecked")
+                K k = (K) key;
+                result.add(k);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return asMap().toString();
+    }
+
+    /**
+     * @return slot holding key, or -1 if key is absent
+     */
+    private int find(Object key) {
+        if (key == null) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        for (int slot = hash(key) & mask; keys[slot] != null; slot = (slot + 1) & mask) {
+            if (keys[slot].equals(key)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @return slot holding key, or the empty slot where it would be inserted
+     */
+    private int slotFor(Object key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+        while (keys[slot] != null && !keys[slot].equals(key)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Empty a slot, shifting later entries of the probe sequence back so that
+     * no tombstones are needed.
+     */
+    private void deleteSlot(int slot) {
+        int mask = keys.length - 1;
+        int hole = slot;
+        for (int next = (hole + 1) & mask; keys[next] != null; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            // Move the entry into the hole unless its home lies cyclically in (hole, next]
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+        }
+        keys[hole] = null;
+        values[hole] = 0;
+        size--;
+    }
+
+    private void growIfNeeded() {
+        if (size * 4 < keys.length * 3) {
+            return;
+        }
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new Object[oldKeys.length * 2];
+        values = new int[oldKeys.length * 2];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                int slot = slotFor(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode() * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Iterator over the occupied slots, boxing each value as it is visited.
+     */
+    private final class EntryIterator implements Iterator<Map.Entry<K, Integer>> {
+
+        private int next = advance(0);
+
+        private int advance(int slot) {
+            while (slot < keys.length && keys[slot] == null) {
+                slot++;
+            }
+            return slot;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < keys.length;
+        }
+
+        @Override
+        public Map.Entry<K, Integer> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            @SuppressWarnings("unchecked")
+            K key = (K) keys[next];
+            Map.Entry<K, Integer> entry = new AbstractMap.SimpleImmutableEntry<>(key, values[next]);
+            next = advance(next + 1);
+            return entry;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+package graph;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A mutable, weighted, directed graph with labeled vertices whose state is a
+ * persistent, structurally shared value.
+ *
+ * <p>The adjacency maps are hash array mapped tries, so every mutation builds
+ * a new version that shares all untouched structure with the previous one,
+ * and publishes it with a single compare-and-set of the root reference
+ * (retrying if another writer got there first). Readers never lock and never
+ * see a half-applied mutation:
+ * <ul><li>{@link #snapshot()} returns an immutable Graph of the current
+ *         version in O(1), which stays unchanged while writers continue;
+ *     <li>{@link #fork()} returns an independent PersistentGraph starting from
+ *         the current version in O(1). </ul>
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class PersistentGraph<L> implements CountingGraph<L> {
+
+    private final AtomicReference<Version<L>> current;
+
+    // Abstraction function:
+    //   - Represents the graph current.get().
+    // Representation invariant:
+    //   - current.get() is non-null (see Version for its invariant).
+    // Safety from rep exposure:
+    //   - Versions are immutable, so sharing them with snapshots and forks is safe.
+    // Thread safety argument:
+    //   - The only mutable state is the AtomicReference; each mutation derives
+    //     a new Version from the one it read and installs it with
+    //     compareAndSet, so concurrent mutations are linearizable.
+
+    /**
+     * Create an empty graph.
+     */
+    public PersistentGraph() {
+        this(Version.<L>empty());
+    }
+
+    private PersistentGraph(Version<L> version) {
+        this.current = new AtomicReference<>(version);
+    }
+
+    /**
+     * Get an immutable view of this graph as it is now. Later mutations of
+     * this graph do not affect the snapshot; the snapshot's mutators throw
+     * UnsupportedOperationException.
+     *
+     * @return an immutable graph equal to this graph, created in O(1)
+     */
+    public Graph<L> snapshot() {
+        return current.get();
+    }
+
+    /**
+     * Create an independent copy of this graph, in O(1).
+     *
+     * @return a new mutable graph equal to this graph; mutating either graph
+     *         does not affect the other
+     */
+    public PersistentGraph<L> fork() {
+        return new PersistentGraph<>(current.get());
+    }
+
+    /**
+     * A mutation of one version into the next, with an int result.
+     */
+    private interface Mutation<L> {
+        /**
+         * @return the new version, or version itself if nothing changes;
+         *         result[0] is set to the operation's result
+         */
+        Version<L> apply(Version<L> version, int[] result);
+    }
+
+    private int update(Mutation<L> mutation) {
+        int[] result = new int[1];
+        while (true) {
+            Version<L> before = current.get();
+            Version<L> after = mutation.apply(before, result);
+            if (after == before || current.compareAndSet(before, after)) {
+                return result[0];
+            }
+        }
+    }
+
+    @Override
+    public boolean add(L vertex) {
+        return update((version, result) -> {
+            if (version.outgoing.get(vertex) != null) {
+                result[0] = 0;
+                return version;
+            }
+            result[0] = 1;
+            return version.withVertex(vertex);
+        }) == 1;
+    }
+
+    @Override
+    public int set(L source, L target, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("edge weight must be nonnegative: " + weight);
+        }
+        return update((version, result) -> {
+            result[0] = version.weight(source, target);
+            return version.withEdge(source, target, weight);
+        });
+    }
+
+    @Override
+    public int increment(L source, L target, int delta) {
+        return update((version, result) -> {
+            int weight = version.weight(source, target) + delta;
+            if (weight < 0) {
+                throw new IllegalArgumentException("edge weight would become negative: " + weight);
+            }
+            result[0] = weight;
+            return version.withEdge(source, target, weight);
+        });
+    }
+
+    @Override
+    public boolean remove(L vertex) {
+        return update((version, result) -> {
+            if (version.outgoing.get(vertex) == null) {
+                result[0] = 0;
+                return version;
+            }
+            result[0] = 1;
+            return version.withoutVertex(vertex);
+        }) == 1;
+    }
+
+    @Override
+    public Set<L> vertices() {
+        return current.get().vertices();
+    }
+
+    @Override
+    public Map<L, Integer> sources(L target) {
+        return current.get().sources(target);
+    }
+
+    @Override
+    public Map<L, Integer> targets(L source) {
+        return current.get().targets(source);
+    }
+
+    @Override
+    public String toString() {
+        return current.get().toString();
+    }
+
+    /**
+     * One immutable version of a PersistentGraph, which is also its snapshot.
+     */
+    private static final class Version<L> implements Graph<L> {
+
+        private static final Version<?> EMPTY = new Version<>(PersistentMap.empty(), PersistentMap.empty());
+
+        private final PersistentMap<L, PersistentMap<L, Integer>> outgoing;
+        private final PersistentMap<L, PersistentMap<L, Integer>> incoming;
+
+        // Abstraction function:
+        //   - Represents the graph with vertex set outgoing's keys and an edge
+        //     s -> t of weight w for every entry t -> w of outgoing.get(s).
+        // Representation invariant:
+        //   - outgoing and incoming have the same keys.
+        //   - outgoing.get(s).get(t) equals incoming.get(t).get(s), and is positive.
+        // Safety from rep exposure:
+        //   - The maps are immutable and only returned as read-only views.
+
+        private Version(PersistentMap<L, PersistentMap<L, Integer>> outgoing,
+                PersistentMap<L, PersistentMap<L, Integer>> incoming) {
+            this.outgoing = outgoing;
+            this.incoming = incoming;
+        }
+
+        @SuppressWarnings("unchecked")
+        static <L> Version<L> empty() {
+            return (Version<L>) EMPTY;
+        }
+
+        int weight(L source, L target) {
+            PersistentMap<L, Integer> edges = outgoing.get(source);
+            Integer weight = edges == null ? null : edges.get(target);
+            return weight == null ? 0 : weight;
+        }
+
+        Version<L> withVertex(L vertex) {
+            if (outgoing.get(vertex) != null) {
+                return this;
+            }
+            return new Version<>(outgoing.put(vertex, PersistentMap.empty()),
+                    incoming.put(vertex, PersistentMap.empty()));
+        }
+
+        Version<L> withEdge(L source, L target, int weight) {
+            if (weight == 0) {
+                PersistentMap<L, Integer> out = outgoing.get(source);
+                if (out == null || out.get(target) == null) {
+                    return this;
+                }
+                return new Version<>(outgoing.put(source, out.remove(target)),
+                        incoming.put(target, incoming.get(target).remove(source)));
+            }
+            Version<L> withVertices = withVertex(source).withVertex(target);
+            PersistentMap<L, PersistentMap<L, Integer>> out = withVertices.outgoing;
+            PersistentMap<L, PersistentMap<L, Integer>> in = withVertices.incoming;
+            return new Version<>(out.put(source, out.get(source).put(target, weight)),
+                    in.put(target, in.get(target).put(source, weight)));
+        }
+
+        Version<L> withoutVertex(L vertex) {
+            PersistentMap<L, Integer> targets = outgoing.get(vertex);
+            PersistentMap<L, Integer> sources = incoming.get(vertex);
+            PersistentMap<L, PersistentMap<L, Integer>> out = outgoing.remove(vertex);
+            PersistentMap<L, PersistentMap<L, Integer>> in = incoming.remove(vertex);
+
+            // Only the vertex's own neighbors hold edges that mention it
+            for (L target : targets.keySet()) {
+                PersistentMap<L, Integer> edges = in.get(target);
+                if (edges != null) {
+                    in = in.put(target, edges.remove(vertex));
+                }
+            }
+            for (L source : sources.keySet()) {
+                PersistentMap<L, Integer> edges = out.get(source);
+                if (edges != null) {
+                    out = out.put(source, edges.remove(vertex));
+                }
+            }
+            return new Version<>(out, in);
+        }
+
+        @Override
+        public boolean add(L vertex) {
+            throw new UnsupportedOperationException("snapshot is immutable");
+        }
+
+        @Override
+        public int set(L source, L target, int weight) {
+            throw new UnsupportedOperationException("snapshot is immutable");
+        }
+
+        @Override
+        public boolean remove(L vertex) {
+            throw new UnsupportedOperationException("snapshot is immutable");
+        }
+
+        @Override
+        public Set<L> vertices() {
+            return outgoing.keySet();
+        }
+
+        @Override
+        public Map<L, Integer> sources(L target) {
+            PersistentMap<L, Integer> edges = incoming.get(target);
+            return edges == null ? Collections.<L, Integer>emptyMap() : edges.asMap();
+        }
+
+        @Override
+        public Map<L, Integer> targets(L source) {
+            PersistentMap<L, Integer> edges = outgoing.get(source);
+            return edges == null ? Collections.<L, Integer>emptyMap() : edges.asMap();
+        }
+
+        @Override
+        public String toString() {
+            return outgoing.toString();
+        }
+    }
+}
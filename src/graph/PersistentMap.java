@@ -0,0 +1,474 @@
+package graph;
+
+import java.util.*;
+
+/**
+ * An immutable map implemented as a hash array mapped trie (HAMT).
+ * put() and remove() return a new map that shares all untouched subtries
+ * with this one, copying only the O(log32 n) nodes on the path to the key.
+ *
+ * <p>This class is internal to the reps of PersistentGraph and ConcurrentGraph.
+ *
+ * @param <K> type of keys in this map, must be immutable
+ * @param <V> type of values in this map, must be immutable
+ */
+final class PersistentMap<K, V> {
+
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+
+    private final Node root; // null iff empty
+    private final int size;
+
+    // Abstraction function:
+    //   - Represents the map containing every Entry reachable from root.
+    // Representation invariant:
+    //   - size is the number of reachable entries, and keys are distinct.
+    //   - in a BitmapNode at depth d, slot for bit i holds only entries whose
+    //     hash has i in bits [5d, 5d + 5); no BitmapNode is empty.
+    //   - a CollisionNode holds at least two entries, all with the same hash.
+    // Safety from rep exposure:
+    //   - Nodes are never mutated after construction, and are never returned.
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * @param <K> type of keys
+     * @param <V> type of values
+     * @return the empty map
+     */
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    /**
+     * @return number of entries in this map
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * @param key a key
+     * @return the value for key, or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    V get(Object key) {
+        if (root == null || key == null) {
+            return null;
+        }
+        return (V) root.get(0, hash(key), key);
+    }
+
+    /**
+     * @param key a non-null key
+     * @param value a non-null value
+     * @return a map equal to this one except that key maps to value
+     */
+    PersistentMap<K, V> put(K key, V value) {
+        Change change = new Change();
+        Entry entry = new Entry(hash(key), key, value);
+        if (root == null) {
+            return new PersistentMap<>(BitmapNode.of(0, entry), 1);
+        }
+        Node updated = root.put(0, entry, change);
+        if (updated == root) {
+            return this;
+        }
+        return new PersistentMap<>(updated, change.added ? size + 1 : size);
+    }
+
+    /**
+     * @param key a key
+     * @return a map equal to this one except that key has no value
+     */
+    PersistentMap<K, V> remove(Object key) {
+        if (root == null || key == null) {
+            return this;
+        }
+        Object updated = root.remove(0, hash(key), key);
+        if (updated == root) {
+            return this;
+        }
+        if (updated instanceof Entry) {
+            updated = BitmapNode.of(0, (Entry) updated);
+        }
+        return new PersistentMap<>((Node) updated, size - 1);
+    }
+
+    /**
+     * @return a read-only Map view of this map
+     */
+    Map<K, V> asMap() {
+        return new AbstractMap<K, V>() {
+            @Override
+            public V get(Object key) {
+                return PersistentMap.this.get(key);
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return PersistentMap.this.get(key) != null;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Set<Map.Entry<K, V>> entrySet() {
+                return new AbstractSet<Map.Entry<K, V>>() {
+                    @Override
+                    public Iterator<Map.Entry<K, V>> iterator() {
+                        return PersistentMap.this.iterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return size;
+                    }
+                };
+            }
+        };
+    }
+
+    /**
+     * @return a read-only Set view of the keys of this map
+     */
+    Set<K> keySet() {
+        return asMap().keySet();
+    }
+
+    /**
+     * @return an iterator over the entries of this map, depth first
+     */
+    @SuppressWarnings("unchecked")
+    Iterator<Map.Entry<K, V>> iterator() {
+        Deque<Object[]> stack = new ArrayDeque<>();
+        Deque<Integer> positions = new ArrayDeque<>();
+        if (root != null) {
+            stack.push(root.children());
+            positions.push(0);
+        }
+        return new Iterator<Map.Entry<K, V>>() {
+            private Entry next = advance();
+
+            private Entry advance() {
+                while (!stack.isEmpty()) {
+                    Object[] children = stack.peek();
+                    int position = positions.pop();
+                    if (position == children.length) {
+                        stack.pop();
+                        continue;
+                    }
+                    positions.push(position + 1);
+                    Object child = children[position];
+                    if (child instanceof Entry) {
+                        return (Entry) child;
+                    }
+                    stack.push(((Node) child).children());
+                    positions.push(0);
+                }
+                return null;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next != null;
+            }
+
+            @Override
+            public Map.Entry<K, V> next() {
+                if (next == null) {
+                    throw new NoSuchElementException();
+                }
+                Entry result = next;
+                next = advance();
+                return (Map.Entry<K, V>) (Map.Entry<?, ?>) result;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return asMap().toString();
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Records whether a put() added a new key rather than replacing a value.
+     */
+    private static final class Change {
+        boolean added = false;
+    }
+
+    /**
+     * An immutable key-value pair together with the hash of its key.
+     */
+    private static final class Entry extends AbstractMap.SimpleImmutableEntry<Object, Object> {
+
+        private static final long serialVersionUID = 1L;
+
+        final int hash;
+
+        Entry(int hash, Object key, Object value) {
+            super(key, value);
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * An immutable trie node.
+     */
+    private abstract static class Node {
+
+        abstract Object get(int shift, int hash, Object key);
+
+        /**
+         * @return this node if unchanged, otherwise a new node with entry added
+         *         or its value replaced
+         */
+        abstract Node put(int shift, Entry entry, Change change);
+
+        /**
+         * @return this node if key is absent; otherwise the node without key,
+         *         an Entry if only one entry would remain, or null if none would
+         */
+        abstract Object remove(int shift, int hash, Object key);
+
+        /**
+         * @return the child entries and nodes, for iteration; must not be modified
+         */
+        abstract Object[] children();
+    }
+
+    /**
+     * Combine two entries or subtries that share a slot at the given shift.
+     *
+     * @param existing an Entry or CollisionNode
+     * @param existingHash the hash of every key under existing
+     */
+    private static Node merge(int shift, Object existing, int existingHash, Entry entry) {
+        if (existingHash == entry.hash) {
+            if (existing instanceof CollisionNode) {
+                return ((CollisionNode) existing).with(entry);
+            }
+            return new CollisionNode(entry.hash, new Entry[] { (Entry) existing, entry });
+        }
+        int a = (existingHash >>> shift) & MASK;
+        int b = (entry.hash >>> shift) & MASK;
+        if (a == b) {
+            return new BitmapNode(1 << a, new Object[] { merge(shift + BITS, existing, existingHash, entry) });
+        }
+        Object[] children = a < b ? new Object[] { existing, entry } : new Object[] { entry, existing };
+        return new BitmapNode((1 << a) | (1 << b), children);
+    }
+
+    /**
+     * A node with up to 32 children, one per 5-bit chunk of the hash at its depth.
+     */
+    private static final class BitmapNode extends Node {
+
+        private final int bitmap;
+        private final Object[] children; // Entry or Node, in bit order
+
+        BitmapNode(int bitmap, Object[] children) {
+            this.bitmap = bitmap;
+            this.children = children;
+        }
+
+        static BitmapNode of(int shift, Entry entry) {
+            return new BitmapNode(1 << ((entry.hash >>> shift) & MASK), new Object[] { entry });
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object get(int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            Object child = children[index(bit)];
+            if (child instanceof Entry) {
+                Entry entry = (Entry) child;
+                return entry.hash == hash && entry.getKey().equals(key) ? entry.getValue() : null;
+            }
+            return ((Node) child).get(shift + BITS, hash, key);
+        }
+
+        @Override
+        Node put(int shift, Entry entry, Change change) {
+            int bit = 1 << ((entry.hash >>> shift) & MASK);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] copy = new Object[children.length + 1];
+                System.arraycopy(children, 0, copy, 0, index);
+                copy[index] = entry;
+                System.arraycopy(children, index, copy, index + 1, children.length - index);
+                change.added = true;
+                return new BitmapNode(bitmap | bit, copy);
+            }
+
+            Object child = children[index];
+            Object replacement;
+            if (child instanceof Entry) {
+                Entry existing = (Entry) child;
+                if (existing.hash == entry.hash && existing.getKey().equals(entry.getKey())) {
+                    if (existing.getValue().equals(entry.getValue())) {
+                        return this;
+                    }
+                    replacement = entry;
+                } else {
+                    change.added = true;
+                    replacement = merge(shift + BITS, existing, existing.hash, entry);
+                }
+            } else {
+                Node updated = ((Node) child).put(shift + BITS, entry, change);
+                if (updated == child) {
+                    return this;
+                }
+                replacement = updated;
+            }
+            Object[] copy = children.clone();
+            copy[index] = replacement;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        @Override
+        Object remove(int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Object child = children[index];
+            Object replacement;
+            if (child instanceof Entry) {
+                Entry entry = (Entry) child;
+                if (entry.hash != hash || !entry.getKey().equals(key)) {
+                    return this;
+                }
+                replacement = null;
+            } else {
+                replacement = ((Node) child).remove(shift + BITS, hash, key);
+                if (replacement == child) {
+                    return this;
+                }
+            }
+
+            if (replacement != null) {
+                Object[] copy = children.clone();
+                copy[index] = replacement;
+                return new BitmapNode(bitmap, copy);
+            }
+            if (children.length == 1) {
+                return null;
+            }
+            if (children.length == 2 && children[1 - index] instanceof Entry) {
+                return children[1 - index]; // Let the parent inline the last entry
+            }
+            Object[] copy = new Object[children.length - 1];
+            System.arraycopy(children, 0, copy, 0, index);
+            System.arraycopy(children, index + 1, copy, index, copy.length - index);
+            return new BitmapNode(bitmap & ~bit, copy);
+        }
+
+        @Override
+        Object[] children() {
+            return children;
+        }
+    }
+
+    /**
+     * A node holding entries whose keys have identical hashes.
+     */
+    private static final class CollisionNode extends Node {
+
+        private final int hash;
+        private final Entry[] entries;
+
+        CollisionNode(int hash, Entry[] entries) {
+            this.hash = hash;
+            this.entries = entries;
+        }
+
+        private int find(Object key) {
+            for (int i = 0; i < entries.length; i++) {
+                if (entries[i].getKey().equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        CollisionNode with(Entry entry) {
+            int index = find(entry.getKey());
+            Entry[] copy;
+            if (index >= 0) {
+                copy = entries.clone();
+                copy[index] = entry;
+            } else {
+                copy = Arrays.copyOf(entries, entries.length + 1);
+                copy[entries.length] = entry;
+            }
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        Object get(int shift, int hash, Object key) {
+            if (hash != this.hash) {
+                return null;
+            }
+            int index = find(key);
+            return index < 0 ? null : entries[index].getValue();
+        }
+
+        @Override
+        Node put(int shift, Entry entry, Change change) {
+            if (entry.hash != hash) {
+                change.added = true;
+                return merge(shift, this, hash, entry);
+            }
+            int index = find(entry.getKey());
+            if (index >= 0 && entries[index].getValue().equals(entry.getValue())) {
+                return this;
+            }
+            change.added = index < 0;
+            return with(entry);
+        }
+
+        @Override
+        Object remove(int shift, int hash, Object key) {
+            int index = hash == this.hash ? find(key) : -1;
+            if (index < 0) {
+                return this;
+            }
+            if (entries.length == 2) {
+                return entries[1 - index];
+            }
+            Entry[] copy = new Entry[entries.length - 1];
+            System.arraycopy(entries, 0, copy, 0, index);
+            System.arraycopy(entries, index + 1, copy, index, copy.length - index);
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        Object[] children() {
+            return entries;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package graph;
+
+import java.util.*;
+
+/**
+ * A mutable, weighted, directed graph with labeled vertices whose edge weights
+ * are stored as primitive {@code int}s.
+ *
+ * <p>Each vertex keeps its outgoing and incoming edges in open-addressing
+ * object-to-int tables, so adding, updating and removing edges never boxes a
+ * weight. Only the read-only maps returned by {@link #targets(Object)} and
+ * {@link #sources(Object)} box weights, as they are read.
+ *
+ * @param <L> type of vertex labels in this graph, must be immutable
+ */
+public class PrimitiveGraph<L> implements CountingGraph<L> {
+
+    // Outgoing and incoming edge tables of every vertex
+    private final Map<L, ObjectIntMap<L>> outgoing = new HashMap<>();
+    private final Map<L, ObjectIntMap<L>> incoming = new HashMap<>();
+
+    // Abstraction function:
+    //   - Represents the graph with vertex set outgoing.keySet() and an edge
+    //     s -> t of weight w for every entry t -> w of outgoing.get(s).
+    // Representation invariant:
+    //   - outgoing and incoming have the same key set.
+    //   - outgoing.get(s).get(t) == incoming.get(t).get(s) for all vertices s, t.
+    //   - every stored weight is positive.
+    // Safety from rep exposure:
+    //   - The tables are private and never returned; vertices(), targets() and
+    //     sources() return unmodifiable views.
+
+    @Override
+    public boolean add(L vertex) {
+        if (outgoing.containsKey(vertex)) {
+            return false; // Vertex already exists
+        }
+        outgoing.put(vertex, new ObjectIntMap<>());
+        incoming.put(vertex, new ObjectIntMap<>());
+        return true;
+    }
+
+    @Override
+    public int set(L source, L target, int weight) {
+        if (weight == 0) {
+            // Removing an edge never adds vertices
+            ObjectIntMap<L> edges = outgoing.get(source);
+            if (edges == null || !outgoing.containsKey(target)) {
+                return 0;
+            }
+            incoming.get(target).remove(source);
+            return edges.remove(target);
+        }
+
+        add(source);
+        add(target);
+        incoming.get(target).put(source, weight);
+        return outgoing.get(source).put(target, weight);
+    }
+
+    @Override
+    public int increment(L source, L target, int delta) {
+        ObjectIntMap<L> edges = outgoing.get(source);
+        if (edges == null || !outgoing.containsKey(target)) {
+            if (delta < 0) {
+                throw new IllegalArgumentException("edge weight would become negative: " + delta);
+            }
+            if (delta == 0) {
+                return 0; // No such edge, and the graph is not modified
+            }
+            add(source);
+            add(target);
+            edges = outgoing.get(source);
+        }
+
+        int weight = edges.addTo(target, delta);
+        incoming.get(target).put(source, weight);
+        return weight;
+    }
+
+    /**
+     * Get the weight of an edge without boxing it.
+     *
+     * @param source label of the source vertex
+     * @param target label of the target vertex
+     * @return the weight of the edge from source to target, or zero if there
+     *         is no such edge
+     */
+    public int weight(L source, L target) {
+        ObjectIntMap<L> edges = outgoing.get(source);
+        return edges == null ? 0 : edges.get(target);
+    }
+
+    @Override
+    public boolean remove(L vertex) {
+        ObjectIntMap<L> out = outgoing.remove(vertex);
+        if (out == null) {
+            return false; // Vertex does not exist
+        }
+        ObjectIntMap<L> in = incoming.remove(vertex);
+
+        // Only the vertex's own neighbors hold edges that mention it
+        for (L target : out.keys()) {
+            ObjectIntMap<L> edges = incoming.get(target);
+            if (edges != null) {
+                edges.remove(vertex);
+            }
+        }
+        for (L source : in.keys()) {
+            ObjectIntMap<L> edges = outgoing.get(source);
+            if (edges != null) {
+                edges.remove(vertex);
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public Set<L> vertices() {
+        return Collections.unmodifiableSet(outgoing.keySet());
+    }
+
+    @Override
+    public Map<L, Integer> sources(L target) {
+        ObjectIntMap<L> edges = incoming.get(target);
+        return edges == null ? Collections.<L, Integer>emptyMap() : edges.asMap();
+    }
+
+    @Override
+    public Map<L, Integer> targets(L source) {
+        ObjectIntMap<L> edges = outgoing.get(source);
+        return edges == null ? Collections.<L, Integer>emptyMap() : edges.asMap();
+    }
+
+    @Override
+    public String toString() {
+        return outgoing.toString();
+    }
+}
@@ -0,0 +1,274 @@
+package poet;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import graph.PrimitiveGraph;
+
+/**
+ * Mutable word adjacency counts of a stretch of corpus text.
+ *
+ * <p>Counts of consecutive stretches can be built independently and then
+ * concatenated, which adds the one adjacency that spans the two stretches, so
+ * the result equals counting the whole text at once.
+ *
+ * <p>Adjacencies are counted between word ids of the counts' own vocabulary,
+ * in {@link EdgeCounts} shards chosen by the hash of the first word. Combining
+ * two counts renumbers the smaller vocabulary into the larger one, which takes
+ * time proportional to the number of words, and then merges the shards, which
+ * takes time proportional to the number of adjacencies; inside a fork/join
+ * pool, the shards are merged by parallel subtasks.
+ *
+ * <p>This class is internal to GraphPoet.
+ */
+final class AdjacencyCounts {
+
+    // Number of shards, a power of two; bounds the parallelism of a merge
+    private static final int SHARD_COUNT = 32;
+
+    private final Vocabulary vocabulary = new Vocabulary();
+    private final EdgeCounts[] shards = new EdgeCounts[SHARD_COUNT];
+    private int firstWord = -1;
+    private int lastWord = -1;
+
+    // Abstraction function:
+    //   - Represents the adjacency counts of a word sequence starting with word
+    //     firstWord and ending with word lastWord of vocabulary (empty if both
+    //     are -1), where the number of times w1 is followed by w2 is the count
+    //     of edge (w1, w2) in shards[shard(w1)]. After merge(), the shards
+    //     cover several sequences, and firstWord and lastWord are those of one
+    //     of them.
+    // Representation invariant:
+    //   - firstWord and lastWord are both -1 or both ids of vocabulary.
+    //   - every shard is non-null, and holds only edges between ids of
+    //     vocabulary whose source w1 has shard(w1) equal to its index.
+    // Safety from rep exposure:
+    //   - vocabulary() hands out the rep, and is only called once counting is
+    //     finished; freeze() and addTo() copy the counts.
+
+    AdjacencyCounts() {
+        for (int i = 0; i < SHARD_COUNT; i++) {
+            shards[i] = new EdgeCounts();
+        }
+    }
+
+    /**
+     * @return index of the shard holding the adjacencies that follow word
+     */
+    private int shard(int word) {
+        // The same for every vocabulary, since Strings cache their hash
+        int h = vocabulary.word(word).hashCode() * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (SHARD_COUNT - 1);
+    }
+
+    /**
+     * Count the adjacencies of the words read from a stream, following the
+     * words counted so far. The reader is not closed.
+     *
+     * @param text source of corpus text
+     * @throws IOException if the text cannot be read
+     */
+    void addAll(Reader text) throws IOException {
+        addAll(new WordTokenizer(text));
+    }
+
+    /**
+     * Count the adjacencies of the words of a tokenizer, following the words
+     * counted so far.
+     *
+     * @param words tokenizer over corpus text
+     * @throws IOException if the text cannot be read
+     */
+    void addAll(WordTokenizer words) throws IOException {
+        while (words.next()) {
+            // Only a word seen for the first time allocates a String
+            add(vocabulary.internId(words.folded(), words.foldedLength()));
+        }
+    }
+
+    /**
+     * Count the adjacencies of the words of a memory-mapped file, following
+     * the words counted so far.
+     *
+     * @param words tokenizer over the file
+     * @throws IOException if the file cannot be mapped or is not valid UTF-8
+     */
+    void addAll(MappedWordTokenizer words) throws IOException {
+        while (words.next()) {
+            // ASCII words are looked up by their bytes, without decoding
+            if (words.isAscii()) {
+                add(vocabulary.internId(words.bytes(), words.length()));
+            } else {
+                words.decodeFolded();
+                add(vocabulary.internId(words.folded(), words.foldedLength()));
+            }
+        }
+    }
+
+    /**
+     * Count the adjacency of one more word, following the words counted so far.
+     *
+     * @param word id of a lower-case word of vocabulary
+     */
+    private void add(int word) {
+        if (lastWord < 0) {
+            firstWord = word;
+        } else {
+            // Count one more adjacency from lastWord to word
+            shards[shard(lastWord)].add(lastWord, word, 1);
+        }
+        lastWord = word;
+    }
+
+    /**
+     * Combine the counts of two consecutive stretches of text. Both arguments
+     * may be modified, and must not be used afterwards.
+     *
+     * @param earlier counts of a stretch of text
+     * @param later counts of the text that immediately follows it
+     * @return the counts of both stretches together
+     */
+    static AdjacencyCounts concat(AdjacencyCounts earlier, AdjacencyCounts later) {
+        if (later.firstWord < 0) {
+            return earlier;
+        }
+        if (earlier.firstWord < 0) {
+            return later;
+        }
+        String first = earlier.vocabulary.word(earlier.firstWord);
+        String boundarySource = earlier.vocabulary.word(earlier.lastWord);
+        String boundaryTarget = later.vocabulary.word(later.firstWord);
+        String last = later.vocabulary.word(later.lastWord);
+        AdjacencyCounts into = union(earlier, later);
+
+        // The adjacency that spans the boundary between the two stretches
+        int source = into.vocabulary.id(boundarySource);
+        into.shards[into.shard(source)].add(source, into.vocabulary.id(boundaryTarget), 1);
+        into.firstWord = into.vocabulary.id(first);
+        into.lastWord = into.vocabulary.id(last);
+        return into;
+    }
+
+    /**
+     * Combine the counts of two separate texts, with no adjacency between them.
+     * Both arguments may be modified, and must not be used afterwards. The
+     * result may be merged again or frozen, but not concatenated.
+     *
+     * @param first counts of a text
+     * @param second counts of another text
+     * @return the counts of both texts together
+     */
+    static AdjacencyCounts merge(AdjacencyCounts first, AdjacencyCounts second) {
+        if (second.firstWord < 0) {
+            return first;
+        }
+        if (first.firstWord < 0) {
+            return second;
+        }
+        return union(first, second);
+    }
+
+    /**
+     * Add the edges and vocabulary of the counts with the smaller vocabulary
+     * to the other. Inside a fork/join pool, the shards are merged by
+     * parallel subtasks.
+     *
+     * @return the counts with the larger vocabulary, holding the edges of both
+     */
+    private static AdjacencyCounts union(AdjacencyCounts a, AdjacencyCounts b) {
+        boolean intoA = a.vocabulary.size() >= b.vocabulary.size();
+        AdjacencyCounts into = intoA ? a : b;
+        AdjacencyCounts from = intoA ? b : a;
+        // Words without edges, e.g. of a one-word text, are still words of the corpus
+        int[] ids = new int[from.vocabulary.size()];
+        for (int id = 0; id < ids.length; id++) {
+            ids[id] = into.vocabulary.internId(from.vocabulary.word(id));
+        }
+        if (ForkJoinTask.inForkJoinPool()) {
+            List<ForkJoinTask<?>> merges = new ArrayList<>(SHARD_COUNT);
+            for (int i = 0; i < SHARD_COUNT; i++) {
+                int shard = i;
+                merges.add(ForkJoinTask.adapt(() -> into.unionShard(from, ids, shard)));
+            }
+            ForkJoinTask.invokeAll(merges);
+        } else {
+            for (int shard = 0; shard < SHARD_COUNT; shard++) {
+                into.unionShard(from, ids, shard);
+            }
+        }
+        return into;
+    }
+
+    /**
+     * Add the edges of one shard of other counts to the same shard of these.
+     * Modifies only that shard, so different shards may be merged at once.
+     *
+     * @param from other counts
+     * @param ids the id in this vocabulary of each word id of from
+     * @param shard shard index
+     */
+    private void unionShard(AdjacencyCounts from, int[] ids, int shard) {
+        EdgeCounts into = shards[shard];
+        from.shards[shard].forEach((source, target, count) -> into.add(ids[source], ids[target], count));
+    }
+
+    /**
+     * Add these counts to the edge weights of a graph.
+     *
+     * @param graph graph to add to
+     * @param words numbering of the vertices of the result; must number the
+     *              words of graph as graph.words() does, and contain every
+     *              word of vocabulary()
+     * @return graph with the words of words, plus these counts
+     */
+    WordGraph addTo(WordGraph graph, WordIds words) {
+        PrimitiveGraph<String> counts = new PrimitiveGraph<>();
+        for (EdgeCounts shard : shards) {
+            shard.forEach((source, target, count) ->
+                    counts.increment(vocabulary.word(source), vocabulary.word(target), count));
+        }
+        return graph.plus(counts, words);
+    }
+
+    /**
+     * @return the vocabulary of the counted text
+     */
+    Vocabulary vocabulary() {
+        return vocabulary;
+    }
+
+    /**
+     * @return immutable word affinity graph of the counted text, whose vertices
+     *         are numbered by a snapshot of vocabulary()
+     */
+    WordGraph freeze() {
+        // The counts are read-only from here on, so freeze them into compact CSR form
+        int n = vocabulary.size();
+        int[] offsets = new int[n + 1];
+        for (EdgeCounts shard : shards) {
+            shard.forEach((source, target, count) -> offsets[source + 1]++);
+        }
+        for (int source = 0; source < n; source++) {
+            offsets[source + 1] += offsets[source];
+        }
+        // Each row as (target << 32) | count, sorted by target
+        long[] row = new long[offsets[n]];
+        int[] next = Arrays.copyOf(offsets, n);
+        for (EdgeCounts shard : shards) {
+            shard.forEach((source, target, count) -> row[next[source]++] = (long) target << 32 | count);
+        }
+        int[] targets = new int[row.length];
+        int[] weights = new int[row.length];
+        for (int source = 0; source < n; source++) {
+            Arrays.sort(row, offsets[source], offsets[source + 1]);
+        }
+        for (int i = 0; i < row.length; i++) {
+            targets[i] = (int) (row[i] >>> 32);
+            weights[i] = (int) row[i];
+        }
+        return WordGraph.fromRows(vocabulary.snapshot(), offsets, targets, weights);
+    }
+}
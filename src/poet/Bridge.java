@@ -0,0 +1,59 @@
+package poet;
+
+/**
+ * An immutable candidate bridge word between two words, with the weight of
+ * the two-edge path through it.
+ */
+public final class Bridge {
+
+    private final String word;
+    private final long weight;
+
+    // Abstraction function:
+    //   - Represents the path w1 -> word -> w2 of total weight weight, for the
+    //     two words w1 and w2 whose bridges were asked for.
+    // Representation invariant:
+    //   - word is a non-empty lower-case word, and weight > 0.
+    // Safety from rep exposure:
+    //   - All fields are private, final and immutable.
+
+    Bridge(String word, long weight) {
+        this.word = word;
+        this.weight = weight;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert !word.isEmpty();
+        assert weight > 0;
+    }
+
+    /**
+     * @return the bridge word, in lower case
+     */
+    public String word() {
+        return word;
+    }
+
+    /**
+     * @return the sum of the weights of the edges into and out of the bridge word
+     */
+    public long weight() {
+        return weight;
+    }
+
+    @Override
+    public boolean equals(Object that) {
+        return that instanceof Bridge && word.equals(((Bridge) that).word) && weight == ((Bridge) that).weight;
+    }
+
+    @Override
+    public int hashCode() {
+        return word.hashCode() * 31 + Long.hashCode(weight);
+    }
+
+    @Override
+    public String toString() {
+        return word + "=" + weight;
+    }
+}
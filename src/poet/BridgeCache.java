@@ -0,0 +1,190 @@
+package poet;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, thread-safe cache of the best bridges between pairs of words,
+ * including pairs that have no bridge.
+ *
+ * <p>Pairs are keyed by the packed long (w1 id, w2 id) of their lower-case
+ * words, and spread over independently locked shards, each evicting its
+ * least recently used pair when full. Poems repeat a few pairs very often
+ * (word pairs follow a Zipfian distribution), and those stay in the cache.
+ *
+ * <p>A cache holds bridges of one version of the graph. When the graph
+ * changes, the cache is replaced by an empty one from invalidated(), which
+ * keeps counting hits, misses and evictions where the old one stopped.
+ *
+ * <p>This class is internal to GraphPoet.
+ */
+final class BridgeCache {
+
+    /** Result of get() for a pair that is not in the cache. */
+    static final int ABSENT = -1;
+    /** Bridge of a pair that has no bridge. */
+    static final int NO_BRIDGE = -2;
+
+    private static final int MAX_SHARDS = 16;  // power of two
+
+    private final int capacity;
+    private final Shard[] shards;
+    private final Counters counters;
+
+    // Abstraction function:
+    //   - Represents the map from (w1, w2) to bridge id, or NO_BRIDGE, that is
+    //     the union of the maps of the shards, holding at most capacity pairs,
+    //     together with the counts in counters.
+    // Representation invariant:
+    //   - shards.length is a power of two at most MAX_SHARDS, and every key is
+    //     in the shard for its hash.
+    //   - the capacities of the shards sum to capacity, and are positive if capacity is.
+    // Safety from rep exposure:
+    //   - All fields are private; keys and values are immutable.
+    // Thread safety argument:
+    //   - Each shard's map is only accessed while holding its lock, and the
+    //     counters are LongAdders.
+
+    /**
+     * Make an empty cache.
+     *
+     * @param capacity greatest number of pairs to hold, nonnegative; 0 disables the cache
+     */
+    BridgeCache(int capacity) {
+        this(capacity, new Counters());
+    }
+
+    private BridgeCache(int capacity, Counters counters) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("cache capacity must be nonnegative: " + capacity);
+        }
+        this.capacity = capacity;
+        this.counters = counters;
+        // Small caches get fewer shards, so that no shard is empty
+        this.shards = new Shard[Integer.highestOneBit(Math.max(1, Math.min(MAX_SHARDS, capacity)))];
+        for (int i = 0; i < shards.length; i++) {
+            int shardCapacity = capacity / shards.length + (i < capacity % shards.length ? 1 : 0);
+            shards[i] = new Shard(shardCapacity, counters);
+        }
+    }
+
+    /**
+     * @return an empty cache with the same capacity, continuing this cache's
+     *         counts, for a new version of the graph
+     */
+    BridgeCache invalidated() {
+        return new BridgeCache(capacity, counters);
+    }
+
+    /**
+     * @return an empty cache with a new capacity, continuing this cache's counts
+     */
+    BridgeCache resized(int newCapacity) {
+        return new BridgeCache(newCapacity, counters);
+    }
+
+    /**
+     * @return true iff this cache can hold any pairs
+     */
+    boolean enabled() {
+        return capacity > 0;
+    }
+
+    /**
+     * Look up a pair, counting a hit or a miss.
+     *
+     * @param first id of the first word
+     * @param second id of the second word
+     * @return the cached bridge id, NO_BRIDGE, or ABSENT if the pair is not cached
+     */
+    int get(int first, int second) {
+        long key = (long) first << 32 | second;
+        Integer bridge = shard(key).get(key);
+        if (bridge == null) {
+            counters.misses.increment();
+            return ABSENT;
+        }
+        counters.hits.increment();
+        return bridge;
+    }
+
+    /**
+     * Cache the bridge of a pair, evicting the least recently used pair of
+     * its shard if that is full.
+     *
+     * @param first id of the first word
+     * @param second id of the second word
+     * @param bridge id of the best bridge, or NO_BRIDGE
+     */
+    void put(int first, int second, int bridge) {
+        long key = (long) first << 32 | second;
+        shard(key).put(key, bridge);
+    }
+
+    /**
+     * @return the current counts and size of this cache
+     */
+    BridgeCacheStats stats() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.size();
+        }
+        return new BridgeCacheStats(counters.hits.sum(), counters.misses.sum(), counters.evictions.sum(),
+                size, capacity);
+    }
+
+    private Shard shard(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return shards[(int) (h >>> 60) & (shards.length - 1)];
+    }
+
+    /**
+     * Counts shared by a cache and the caches that replace it.
+     */
+    private static final class Counters {
+
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+    }
+
+    /**
+     * One least-recently-used shard of the cache.
+     */
+    private static final class Shard {
+
+        private final int capacity;
+        private final Map<Long, Integer> bridges;
+
+        Shard(int capacity, Counters counters) {
+            this.capacity = capacity;
+            bridges = new LinkedHashMap<Long, Integer>(16, 0.75f, true) {
+                private static final long serialVersionUID = 1L;
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Integer> eldest) {
+                    if (size() > capacity) {
+                        counters.evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+
+        synchronized Integer get(long key) {
+            return bridges.get(key);
+        }
+
+        synchronized void put(long key, int bridge) {
+            if (capacity > 0) {
+                bridges.put(key, bridge);
+            }
+        }
+
+        synchronized int size() {
+            return bridges.size();
+        }
+    }
+}
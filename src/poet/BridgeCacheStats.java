@@ -0,0 +1,87 @@
+package poet;
+
+/**
+ * An immutable report of the activity of a GraphPoet's bridge cache.
+ * Counts are totals since the poet was created, over every version of the
+ * graph; the size is that of the cache for the current graph.
+ */
+public final class BridgeCacheStats {
+
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int size;
+    private final int capacity;
+
+    // Abstraction function:
+    //   - Represents a cache that had answered hits + misses lookups, hits of
+    //     them from the cache, and evicted evictions pairs, and now holds size
+    //     of at most capacity pairs.
+    // Representation invariant:
+    //   - hits, misses, evictions >= 0, 0 <= size <= capacity.
+    // Safety from rep exposure:
+    //   - All fields are private, final and immutable.
+
+    BridgeCacheStats(long hits, long misses, long evictions, int size, int capacity) {
+        this.hits = hits;
+        this.misses = misses;
+        this.evictions = evictions;
+        this.size = size;
+        this.capacity = capacity;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert hits >= 0 && misses >= 0 && evictions >= 0;
+        assert 0 <= size && size <= capacity;
+    }
+
+    /**
+     * @return number of word pairs whose bridge was found in the cache
+     */
+    public long hits() {
+        return hits;
+    }
+
+    /**
+     * @return number of word pairs whose bridge was not in the cache and had to be searched
+     */
+    public long misses() {
+        return misses;
+    }
+
+    /**
+     * @return number of pairs removed from the cache to make room for others
+     */
+    public long evictions() {
+        return evictions;
+    }
+
+    /**
+     * @return number of pairs in the cache now
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return greatest number of pairs the cache holds; 0 if it is disabled
+     */
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * @return fraction of lookups that were hits, or 0 if there were none
+     */
+    public double hitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d hits, %d misses (%.1f%% hit rate), %d evictions, %d/%d pairs",
+                hits, misses, hitRate() * 100, evictions, size, capacity);
+    }
+}
@@ -0,0 +1,145 @@
+package poet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps the k best bridges of a word pair among the candidates offered to it.
+ *
+ * <p>Candidates are ranked by decreasing path weight, and then by increasing
+ * word in String order, so the first one is the bridge GraphPoet inserts.
+ * The kept candidates are a binary min-heap of parallel id and weight arrays
+ * whose root is the worst kept candidate, so offering a candidate costs
+ * O(log k) and allocates nothing. drain() empties the heap, so one heap can
+ * rank the pairs of a whole poem.
+ *
+ * <p>This class is internal to GraphPoet.
+ */
+final class BridgeHeap {
+
+    // Initial capacity of the arrays, which grow up to the limit
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final WordIds words;
+    private final int limit;
+    private int[] ids;
+    private long[] weights;
+    private int size = 0;
+
+    // Abstraction function:
+    //   - Represents the size best candidates offered since the last drain():
+    //     the bridges words.word(ids[i]) with path weights weights[i], for
+    //     0 <= i < size.
+    // Representation invariant:
+    //   - 0 <= size <= limit, and size <= ids.length == weights.length.
+    //   - ids[0..size) are distinct, and each candidate i > 0 ranks no lower
+    //     than its parent (i - 1) / 2.
+    // Safety from rep exposure:
+    //   - The arrays are never handed out; drain() returns new immutable Bridges.
+
+    /**
+     * Make an empty heap.
+     *
+     * @param words numbering of the candidate bridge words
+     * @param limit greatest number of candidates to keep, at least 0
+     */
+    BridgeHeap(WordIds words, int limit) {
+        this.words = words;
+        this.limit = limit;
+        this.ids = new int[Math.min(limit, INITIAL_CAPACITY)];
+        this.weights = new long[ids.length];
+    }
+
+    /**
+     * Offer a candidate, keeping it if it is among the best limit offered.
+     *
+     * @param id id of a bridge word not yet offered since the last drain()
+     * @param weight its path weight, positive
+     */
+    void offer(int id, long weight) {
+        if (size < limit) {
+            if (size == ids.length) {
+                int capacity = (int) Math.min(limit, ids.length * 2L);
+                ids = Arrays.copyOf(ids, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            ids[size] = id;
+            weights[size] = weight;
+            siftUp(size++);
+        } else if (limit > 0 && ranksBelow(ids[0], weights[0], id, weight)) {
+            ids[0] = id;
+            weights[0] = weight;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Empty the heap.
+     *
+     * @return the kept candidates, best first
+     */
+    List<Bridge> drain() {
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        // Heap sort: moving each worst root to the end leaves the best first
+        int count = size;
+        while (size > 1) {
+            size--;
+            swap(0, size);
+            siftDown(0);
+        }
+        size = 0;
+        List<Bridge> ranked = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            ranked.add(new Bridge(words.word(ids[i]), weights[i]));
+        }
+        return Collections.unmodifiableList(ranked);
+    }
+
+    /**
+     * @return true if candidate (id, weight) ranks below candidate (otherId, otherWeight)
+     */
+    private boolean ranksBelow(int id, long weight, int otherId, long otherWeight) {
+        return weight < otherWeight
+                || weight == otherWeight && words.word(id).compareTo(words.word(otherId)) > 0;
+    }
+
+    private void siftUp(int child) {
+        while (child > 0) {
+            int parent = (child - 1) / 2;
+            if (!ranksBelow(ids[child], weights[child], ids[parent], weights[parent])) {
+                return;
+            }
+            swap(child, parent);
+            child = parent;
+        }
+    }
+
+    private void siftDown(int parent) {
+        while (true) {
+            int lowest = parent;
+            for (int child = 2 * parent + 1; child <= 2 * parent + 2 && child < size; child++) {
+                if (ranksBelow(ids[child], weights[child], ids[lowest], weights[lowest])) {
+                    lowest = child;
+                }
+            }
+            if (lowest == parent) {
+                return;
+            }
+            swap(parent, lowest);
+            parent = lowest;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int id = ids[i];
+        ids[i] = ids[j];
+        ids[j] = id;
+        long weight = weights[i];
+        weights[i] = weights[j];
+        weights[j] = weight;
+    }
+}
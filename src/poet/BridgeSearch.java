@@ -0,0 +1,84 @@
+package poet;
+
+import java.util.Map;
+import graph.Graph;
+
+/**
+ * Finds bridge words in a word affinity graph.
+ *
+ * <p>The bridges from w1 to w2 are exactly the words that are both targets of
+ * w1 and sources of w2, so they are found by intersecting the two adjacency
+ * maps: iterating the smaller one and probing the larger one. With the
+ * incoming-edge indexes of the graph implementations, a query costs
+ * O(min(outdegree(w1), indegree(w2))) map probes, instead of one targets()
+ * lookup per target of w1.
+ *
+ * <p>This class is internal to GraphPoet.
+ */
+final class BridgeSearch {
+
+    private BridgeSearch() {
+        throw new AssertionError("not instantiable");
+    }
+
+    /**
+     * Find the best bridge word between two words.
+     *
+     * @param wordGraph word affinity graph
+     * @param firstWord a word
+     * @param secondWord a word
+     * @return the word b maximizing the weight of firstWord -> b -> secondWord,
+     *         choosing the least such b in String order if several tie, or
+     *         null if there is no such path
+     */
+    static String bestBridge(Graph<String> wordGraph, String firstWord, String secondWord) {
+        Map<String, Integer> targets = wordGraph.targets(firstWord);
+        Map<String, Integer> sources = wordGraph.sources(secondWord);
+        if (targets.isEmpty() || sources.isEmpty()) {
+            return null;
+        }
+        Map<String, Integer> scanned = targets.size() <= sources.size() ? targets : sources;
+        Map<String, Integer> probed = scanned == targets ? sources : targets;
+
+        String bridgeWord = null;
+        long highestWeight = 0;
+        for (Map.Entry<String, Integer> candidate : scanned.entrySet()) {
+            Integer otherWeight = probed.get(candidate.getKey());
+            if (otherWeight == null) {
+                continue;
+            }
+            // Sum as long, since two large counts may overflow an int
+            long pathWeight = (long) candidate.getValue() + otherWeight;
+            if (pathWeight > highestWeight
+                    || pathWeight == highestWeight && candidate.getKey().compareTo(bridgeWord) < 0) {
+                bridgeWord = candidate.getKey();
+                highestWeight = pathWeight;
+            }
+        }
+        return bridgeWord;
+    }
+
+    /**
+     * Offer every bridge word between two words to a heap of candidates.
+     *
+     * @param wordGraph word affinity graph
+     * @param firstWord a word
+     * @param secondWord a word
+     * @param words numbering of the graph's vertices, as in heap
+     * @param heap heap to offer each word b on a path firstWord -> b -> secondWord
+     *             to, with the weight of that path
+     */
+    static void offerBridges(Graph<String> wordGraph, String firstWord, String secondWord,
+            WordIds words, BridgeHeap heap) {
+        Map<String, Integer> targets = wordGraph.targets(firstWord);
+        Map<String, Integer> sources = wordGraph.sources(secondWord);
+        Map<String, Integer> scanned = targets.size() <= sources.size() ? targets : sources;
+        Map<String, Integer> probed = scanned == targets ? sources : targets;
+        for (Map.Entry<String, Integer> candidate : scanned.entrySet()) {
+            Integer otherWeight = probed.get(candidate.getKey());
+            if (otherWeight != null) {
+                heap.offer(words.id(candidate.getKey()), (long) candidate.getValue() + otherWeight);
+            }
+        }
+    }
+}
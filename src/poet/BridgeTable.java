@@ -0,0 +1,330 @@
+package poet;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import graph.Graph;
+
+/**
+ * An immutable table of the best bridge word for every pair of words
+ * (w1, w2) connected by a two-edge path, for a chosen set of first words.
+ *
+ * <p>Row w1 of the table is the max-plus product of w1's row of the
+ * adjacency matrix with the whole matrix: for each w2 reachable in two steps,
+ * the bridge b maximizing weight(w1, b) + weight(b, w2). Rows are computed in
+ * parallel, one source at a time, with a dense accumulator indexed by word id
+ * for each running task, walking the int rows of a WordGraph directly when
+ * the graph is one. They are then stored in one open-addressing table keyed by the
+ * packed long (w1 id, w2 id), holding the bridge id, so a lookup is one hash
+ * probe.
+ *
+ * <p>Rows of hub words can hold most of the vocabulary, so only the rows of
+ * the most frequent first words are computed, and only as many of them as
+ * fit in a budget of pairs; other pairs must be searched. Rows are computed
+ * in batches, so at most one batch of rows beyond the budget is held at once.
+ *
+ * <p>This class is internal to GraphPoet.
+ */
+final class BridgeTable {
+
+    /** Result of get() for a first word whose row is not in the table. */
+    static final int NOT_COVERED = -1;
+    /** Result of get() for a pair with no bridge. */
+    static final int NO_BRIDGE = -2;
+    /** Greatest pair budget, so that the table's arrays stay within int indexes. */
+    static final int MAX_PAIRS = 1 << 29;
+
+    private static final long EMPTY = -1;
+    // Sources per fork/join leaf task
+    private static final int SOURCES_PER_TASK = 16;
+
+    private final boolean[] covered;  // indexed by word id
+    private final long[] keys;        // (w1 id << 32) | w2 id, or EMPTY
+    private final int[] bridges;      // bridge id for the key in the same slot
+    private final int size;
+
+    // Abstraction function:
+    //   - Represents the map (w1, w2) -> b for every keys[i] = (w1 << 32) | w2
+    //     with bridges[i] = b, where the rows of exactly the words w1 with
+    //     covered[w1] are complete.
+    // Representation invariant:
+    //   - keys.length == bridges.length is a power of two greater than size,
+    //     the number of non-EMPTY keys; linear probing from hash(k) finds every key k.
+    //   - every key's w1 is covered.
+    // Safety from rep exposure:
+    //   - The arrays are private and never returned.
+
+    private BridgeTable(boolean[] covered, long[] keys, int[] bridges, int size) {
+        this.covered = covered;
+        this.keys = keys;
+        this.bridges = bridges;
+        this.size = size;
+    }
+
+    /**
+     * Compute the rows of the most frequent first words of a word graph,
+     * walking its int rows.
+     *
+     * @param wordGraph word affinity graph
+     * @param maxSources greatest number of rows to compute, as for
+     *                   build(Graph, WordIds, int, int, ForkJoinPool)
+     * @param maxPairs greatest number of pairs in the table, as for
+     *                 build(Graph, WordIds, int, int, ForkJoinPool)
+     * @param pool pool to compute rows on
+     * @return a table of the best bridges from those words, numbered by wordGraph.words()
+     */
+    static BridgeTable build(WordGraph wordGraph, int maxSources, int maxPairs, ForkJoinPool pool) {
+        return build(wordGraph::forEachTarget, wordGraph.words(), maxSources, maxPairs, pool);
+    }
+
+    /**
+     * Compute the rows of the most frequent first words.
+     *
+     * @param wordGraph word affinity graph, whose vertices are all in vocabulary
+     * @param vocabulary numbering of the words
+     * @param maxSources greatest number of rows to compute, nonnegative; the
+     *                   rows of the words with the greatest total outgoing
+     *                   weight are computed
+     * @param maxPairs greatest number of pairs in the table, 0 <= maxPairs <=
+     *                 MAX_PAIRS; rows are added heaviest first, up to the
+     *                 first row that would exceed this budget
+     * @param pool pool to compute rows on
+     * @return a table of the best bridges from those words
+     */
+    static BridgeTable build(Graph<String> wordGraph, WordIds vocabulary, int maxSources, int maxPairs,
+            ForkJoinPool pool) {
+        Adjacency adjacency = (source, visitor) -> {
+            for (Map.Entry<String, Integer> edge : wordGraph.targets(vocabulary.word(source)).entrySet()) {
+                visitor.target(vocabulary.id(edge.getKey()), edge.getValue());
+            }
+        };
+        return build(adjacency, vocabulary, maxSources, maxPairs, pool);
+    }
+
+    private static BridgeTable build(Adjacency adjacency, WordIds vocabulary, int maxSources, int maxPairs,
+            ForkJoinPool pool) {
+        if (maxSources < 0) {
+            throw new IllegalArgumentException("maximum number of sources must be nonnegative: " + maxSources);
+        }
+        if (maxPairs < 0 || maxPairs > MAX_PAIRS) {
+            throw new IllegalArgumentException("maximum number of pairs must be in 0.." + MAX_PAIRS + ": " + maxPairs);
+        }
+        int[] sources = mostFrequentSources(adjacency, vocabulary.size(), maxSources);
+        long[][] rowKeys = new long[sources.length][];
+        int[][] rowBridges = new int[sources.length][];
+        // Scratch space of this build, shared by its leaf tasks
+        Queue<Accumulator> accumulators = new ConcurrentLinkedQueue<>();
+        int batchSize = pool.getParallelism() * SOURCES_PER_TASK * 2;
+        long size = 0;
+        int rowCount = 0; // rows of sources[0..rowCount) fit in the budget
+        batches:
+        for (int start = 0; start < sources.length; start += batchSize) {
+            int end = (int) Math.min(sources.length, (long) start + batchSize);
+            pool.invoke(new RowTask(adjacency, vocabulary, sources, start, end, rowKeys, rowBridges, accumulators));
+            for (int row = start; row < end; row++) {
+                if (size + rowKeys[row].length > maxPairs) {
+                    break batches;
+                }
+                size += rowKeys[row].length;
+                rowCount++;
+            }
+        }
+
+        // Least power of two at least 1.5 times the size, for a load factor of
+        // at most 2/3; at most 2^30, since size <= MAX_PAIRS
+        int capacity = (int) Long.highestOneBit(Math.max(2, size + (size >> 1)) - 1) << 1;
+        long[] keys = new long[capacity];
+        int[] bridges = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        boolean[] covered = new boolean[vocabulary.size()];
+        for (int row = 0; row < rowCount; row++) {
+            for (int i = 0; i < rowKeys[row].length; i++) {
+                int slot = slot(keys, rowKeys[row][i]);
+                keys[slot] = rowKeys[row][i];
+                bridges[slot] = rowBridges[row][i];
+            }
+            covered[sources[row]] = true;
+        }
+        return new BridgeTable(covered, keys, bridges, (int) size);
+    }
+
+    /**
+     * @return ids of at most max words with the greatest total outgoing
+     *         weight, and at least one outgoing edge
+     */
+    private static int[] mostFrequentSources(Adjacency adjacency, int wordCount, int max) {
+        // Sort (weight, id) pairs packed into longs, heaviest first
+        long[] ranked = new long[wordCount];
+        long[] weight = new long[1];
+        int count = 0;
+        for (int id = 0; id < wordCount; id++) {
+            weight[0] = 0;
+            adjacency.forEachTarget(id, (target, edgeWeight) -> weight[0] += edgeWeight);
+            if (weight[0] > 0) {
+                ranked[count++] = Math.min(weight[0], Integer.MAX_VALUE) << 32 | id;
+            }
+        }
+        Arrays.sort(ranked, 0, count);
+        int[] sources = new int[Math.min(max, count)];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = (int) ranked[count - 1 - i];
+        }
+        return sources;
+    }
+
+    /**
+     * Look up the best bridge between two words.
+     *
+     * @param first id of the first word
+     * @param second id of the second word
+     * @return the id of the best bridge word, NO_BRIDGE if there is none, or
+     *         NOT_COVERED if first's row is not in this table
+     */
+    int get(int first, int second) {
+        if (first >= covered.length || !covered[first]) {
+            return NOT_COVERED;
+        }
+        int slot = slot(keys, key(first, second));
+        return keys[slot] == EMPTY ? NO_BRIDGE : bridges[slot];
+    }
+
+    /**
+     * @return number of (w1, w2) pairs in this table
+     */
+    int size() {
+        return size;
+    }
+
+    private static long key(int first, int second) {
+        return (long) first << 32 | second;
+    }
+
+    /**
+     * @return the slot holding key, or the empty slot where it belongs
+     */
+    private static int slot(long[] keys, long key) {
+        int mask = keys.length - 1;
+        long h = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (h ^ (h >>> 32)) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Outgoing edges of a graph whose vertices are word ids.
+     */
+    private interface Adjacency {
+        /**
+         * @param source id of a word
+         * @param visitor receives each edge source -> target
+         */
+        void forEachTarget(int source, WordGraph.TargetVisitor visitor);
+    }
+
+    /**
+     * Computes the rows of sources[from..to), splitting them in halves.
+     */
+    private static final class RowTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient Adjacency adjacency;
+        private final transient WordIds vocabulary;
+        private final int[] sources;
+        private final int from;
+        private final int to;
+        private final long[][] rowKeys;
+        private final int[][] rowBridges;
+        // Idle accumulators of this build, each reused across rows
+        private final transient Queue<Accumulator> accumulators;
+
+        RowTask(Adjacency adjacency, WordIds vocabulary, int[] sources, int from, int to,
+                long[][] rowKeys, int[][] rowBridges, Queue<Accumulator> accumulators) {
+            this.adjacency = adjacency;
+            this.vocabulary = vocabulary;
+            this.sources = sources;
+            this.from = from;
+            this.to = to;
+            this.rowKeys = rowKeys;
+            this.rowBridges = rowBridges;
+            this.accumulators = accumulators;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > SOURCES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(
+                        new RowTask(adjacency, vocabulary, sources, from, middle, rowKeys, rowBridges, accumulators),
+                        new RowTask(adjacency, vocabulary, sources, middle, to, rowKeys, rowBridges, accumulators));
+                return;
+            }
+            // At most one accumulator per concurrently running leaf, freed with the build
+            Accumulator accumulator = accumulators.poll();
+            if (accumulator == null) {
+                accumulator = new Accumulator(vocabulary.size());
+            }
+            for (int i = from; i < to; i++) {
+                row(i, accumulator);
+            }
+            accumulators.offer(accumulator);
+        }
+
+        /**
+         * Compute the row of sources[index] into rowKeys[index] and rowBridges[index].
+         */
+        private void row(int index, Accumulator accumulator) {
+            int first = sources[index];
+            adjacency.forEachTarget(first, (bridge, firstWeight) ->
+                    adjacency.forEachTarget(bridge, (second, secondWeight) ->
+                            accumulator.offer(second, bridge, (long) firstWeight + secondWeight, vocabulary)));
+
+            long[] keys = new long[accumulator.touchedCount];
+            int[] bridges = new int[accumulator.touchedCount];
+            for (int i = 0; i < accumulator.touchedCount; i++) {
+                int second = accumulator.touched[i];
+                keys[i] = key(first, second);
+                bridges[i] = accumulator.bestBridge[second];
+                accumulator.bestWeight[second] = 0;
+            }
+            accumulator.touchedCount = 0;
+            rowKeys[index] = keys;
+            rowBridges[index] = bridges;
+        }
+    }
+
+    /**
+     * Dense scratch space for one row: the best bridge and path weight so far
+     * for every second word, and the list of second words seen.
+     */
+    private static final class Accumulator {
+
+        final long[] bestWeight;  // 0 = no path yet
+        final int[] bestBridge;
+        final int[] touched;
+        int touchedCount = 0;
+
+        Accumulator(int wordCount) {
+            bestWeight = new long[wordCount];
+            bestBridge = new int[wordCount];
+            touched = new int[wordCount];
+        }
+
+        void offer(int second, int bridge, long weight, WordIds vocabulary) {
+            long best = bestWeight[second];
+            if (best == 0) {
+                touched[touchedCount++] = second;
+            } else if (weight < best || weight == best
+                    && vocabulary.word(bridge).compareTo(vocabulary.word(bestBridge[second])) >= 0) {
+                return; // Same tie-break as BridgeSearch: least word in String order
+            }
+            bestWeight[second] = weight;
+            bestBridge[second] = bridge;
+        }
+    }
+}
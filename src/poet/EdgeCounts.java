@@ -0,0 +1,120 @@
+package poet;
+
+import java.util.Arrays;
+
+/**
+ * A mutable multiset of directed edges between word ids, counting how many
+ * times each edge was added.
+ *
+ * <p>Edges are kept in one open-addressing table keyed by the packed long
+ * (source id, target id), holding the count, so adding an edge is one hash
+ * probe and allocates nothing unless the table grows.
+ *
+ * <p>This class is internal to GraphPoet.
+ */
+final class EdgeCounts {
+
+    /**
+     * Receives the edges of an EdgeCounts.
+     */
+    interface EdgeVisitor {
+        /**
+         * @param source id of the source word
+         * @param target id of the target word
+         * @param count positive number of times the edge was added
+         */
+        void edge(int source, int target, int count);
+    }
+
+    private static final long EMPTY = -1;
+
+    private long[] keys = newKeys(16);  // (source id << 32) | target id, or EMPTY
+    private int[] counts = new int[16]; // count for the key in the same slot
+    private int size = 0;
+
+    // Abstraction function:
+    //   - Represents the multiset holding edge (s, t) counts[i] times for every
+    //     keys[i] = (s << 32) | t.
+    // Representation invariant:
+    //   - keys.length == counts.length is a power of two and at least 2 * size,
+    //     where size is the number of non-EMPTY keys; linear probing from
+    //     hash(k) finds every key k.
+    //   - every count of a non-EMPTY key is positive.
+    // Safety from rep exposure:
+    //   - The arrays are private and never returned.
+
+    /**
+     * Add an edge some number of times.
+     *
+     * @param source id of the source word, nonnegative
+     * @param target id of the target word, nonnegative
+     * @param count positive number of times to add it
+     */
+    void add(int source, int target, int count) {
+        long key = (long) source << 32 | target;
+        int slot = slot(keys, key);
+        if (keys[slot] == EMPTY) {
+            keys[slot] = key;
+            counts[slot] = count;
+            if (++size * 2 > keys.length) {
+                rehash();
+            }
+        } else {
+            counts[slot] += count;
+        }
+    }
+
+    /**
+     * @return number of distinct edges
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Pass every distinct edge to a visitor, in no particular order.
+     *
+     * @param visitor receives the edges; must not modify this table
+     */
+    void forEach(EdgeVisitor visitor) {
+        for (int slot = 0; slot < keys.length; slot++) {
+            long key = keys[slot];
+            if (key != EMPTY) {
+                visitor.edge((int) (key >>> 32), (int) key, counts[slot]);
+            }
+        }
+    }
+
+    private static long[] newKeys(int capacity) {
+        long[] keys = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+        return keys;
+    }
+
+    /**
+     * @return the slot holding key, or the empty slot where it belongs
+     */
+    private static int slot(long[] keys, long key) {
+        int mask = keys.length - 1;
+        long h = key * 0x9E3779B97F4A7C15L;
+        int slot = (int) (h ^ (h >>> 32)) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = newKeys(oldKeys.length * 2);
+        counts = new int[keys.length];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int slot = slot(keys, oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+}
@@ -2,11 +2,21 @@ package poet;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
-import java.util.Map;
-import graph.ConcreteGraph;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 import graph.Graph;
+import graph.MappedGraph;
 
 /**
  * A graph-based poetry generator.
@@ -52,101 +62,702 @@ import graph.Graph;
  */
 public class GraphPoet {
 
-    private final Graph<String> wordGraph = new ConcreteGraph<>();  // The word affinity graph
+    /** Number of word pairs whose bridges a new poet caches. */
+    public static final int DEFAULT_BRIDGE_CACHE_CAPACITY = 1 << 16;
+    /** Greatest number of word pairs precomputeBridges(int, ForkJoinPool) puts in a table. */
+    public static final int DEFAULT_MAX_BRIDGE_PAIRS = 1 << 22;
+    /** Greatest pair budget accepted by precomputeBridges(). */
+    public static final int MAX_BRIDGE_PAIRS = BridgeTable.MAX_PAIRS;
+
+    // Number of poem chars buffered before they are written to a Writer
+    private static final int WRITE_BUFFER_SIZE = 8192;
+    // Greatest capacity of a poem buffer kept for the next poem on the same thread
+    private static final int MAX_REUSED_POEM_CAPACITY = 1 << 16;
+    // Tokenizer and poem buffers of each thread, reused from poem to poem
+    private static final ThreadLocal<PoemBuffers> POEM_BUFFERS = ThreadLocal.withInitial(PoemBuffers::new);
+
+    private volatile Model model;  // The word affinity graph and its vocabulary, replaced as a whole by learn()
+    private final Object learnLock = new Object();  // Serializes learn()
 
     // Abstraction function:
     //   - Represents a word affinity graph where vertices are words, and edges are weighted by adjacency frequency.
     // Representation invariant:
     //   - Graph vertices represent case-insensitive words extracted from the corpus.
     //   - Edge weights are non-negative integers, representing the frequency of word adjacency.
+    //   - Every vertex of the graph is in the vocabulary.
+    //   - model's idGraph is null (for a mapped graph), or model's graph is a
+    //     view of it, numbered by model's vocabulary.
+    //   - model's bridge table is null, or holds the best bridges of model's graph.
+    //   - model's bridge cache holds only best bridges of model's graph.
     // Safety from rep exposure:
     //   - The graph is encapsulated and not directly exposed outside of the class.
+    //   - The graph of a Model is immutable (a view of a WordGraph, or a
+    //     MappedGraph), and the vocabulary of a Model is an immutable
+    //     Vocabulary.Snapshot or MappedWords.
     //   - The class does not expose any mutable references to internal state, ensuring safe data encapsulation.
+    // Thread safety argument:
+    //   - Readers read the volatile model once and then use only that immutable Model.
+    //   - learn() holds learnLock while it appends to the vocabulary and adds
+    //     to the graph, and then publishes a new Model with one volatile write.
+    //     Appending leaves the published vocabulary snapshots unchanged, and
+    //     Vocabulary allows snapshots to be read during one thread's appends.
+    //   - precomputeBridges() also holds learnLock, so a table is never
+    //     published for a graph that learn() has already replaced.
+    //   - Every new graph is published with a new, empty bridge cache, so a
+    //     poem generated from an old Model can only fill the old cache.
+    //     BridgeCache is thread-safe.
+
+    /**
+     * An immutable word affinity graph together with the numbering of its
+     * words, optionally a table of its best bridges, and a cache of its bridges.
+     * Bridges are searched in the int-labelled idGraph, or in a mapped graph
+     * if there is none.
+     */
+    private static final class Model {
+
+        final Graph<String> wordGraph;
+        final WordGraph idGraph;    // null if wordGraph is a MappedGraph
+        final WordIds vocabulary;
+        final BridgeTable bridges;  // null if not precomputed
+        final BridgeCache cache;    // Bridges of this graph only
+
+        Model(WordGraph idGraph, BridgeTable bridges, BridgeCache cache) {
+            this(idGraph.asGraph(), idGraph, idGraph.words(), bridges, cache);
+        }
+
+        Model(Graph<String> wordGraph, WordGraph idGraph, WordIds vocabulary, BridgeTable bridges, BridgeCache cache) {
+            this.wordGraph = wordGraph;
+            this.idGraph = idGraph;
+            this.vocabulary = vocabulary;
+            this.bridges = bridges;
+            this.cache = cache;
+        }
+
+        Model with(BridgeTable bridges, BridgeCache cache) {
+            return new Model(wordGraph, idGraph, vocabulary, bridges, cache);
+        }
+    }
+
+    /**
+     * A tokenizer and a poem buffer, used by one thread at a time.
+     */
+    private static final class PoemBuffers {
+
+        final WordTokenizer words = new WordTokenizer("");
+        StringBuilder poem = new StringBuilder();
+    }
 
     /**
      * Create a new poet with the graph constructed from the given corpus text file.
      * This method processes the corpus to build a graph where vertices are words, 
      * and edges represent word adjacency with weighted counts.
+     * The file is decoded as UTF-8 and streamed, so memory use is bounded by the
+     * size of the vocabulary and its adjacencies rather than the size of the file.
      *
      * @param corpus text file from which to derive the poet's affinity graph
      * @throws IOException if the corpus file cannot be found or read
      */
     public GraphPoet(File corpus) throws IOException {
-        List<String> linesFromCorpus = Files.readAllLines(corpus.toPath());
-        StringBuilder fullText = new StringBuilder();
-        
-        // Append each line to the content string
-        for (String line : linesFromCorpus) {
-            fullText.append(line).append(" ");
+        this(count(corpus));
+    }
+
+    /**
+     * Create a new poet with the graph constructed from corpus text read from a
+     * stream. The text is tokenized in fixed-size buffers as it is read, so it
+     * is never held in memory as a whole. The reader is not closed.
+     *
+     * @param corpus source of the corpus text
+     * @throws IOException if the corpus cannot be read
+     */
+    public GraphPoet(Reader corpus) throws IOException {
+        this(count(corpus));
+    }
+
+    /**
+     * Create a new poet with the graph constructed from the given corpus text
+     * file, counting word adjacencies on all threads of a pool.
+     * The UTF-8 file is split into whitespace-aligned byte ranges that are
+     * memory-mapped, counted in parallel and then merged, so the resulting
+     * poet is the same as one created by {@link #GraphPoet(File)}.
+     *
+     * @param corpus text file from which to derive the poet's affinity graph
+     * @param pool pool whose threads count the ranges of the file
+     * @throws IOException if the corpus file cannot be found or read
+     */
+    public GraphPoet(File corpus, ForkJoinPool pool) throws IOException {
+        this(ParallelCorpusLoader.count(corpus.toPath(), pool));
+    }
+
+    /**
+     * Create a new poet with the graph constructed from the given corpus text
+     * file, reading the file through memory-mapped windows instead of a Reader.
+     * Words made of ASCII bytes are case-folded and looked up in place without
+     * decoding, and a String is created only the first time a word is seen.
+     * The resulting poet is the same as one created by {@link #GraphPoet(File)}.
+     *
+     * @param corpus UTF-8 text file from which to derive the poet's affinity
+     *               graph; may be larger than 2 GB
+     * @return a new poet for the corpus
+     * @throws IOException if the corpus file cannot be found, mapped or decoded
+     */
+    public static GraphPoet mapped(File corpus) throws IOException {
+        try (FileChannel channel = FileChannel.open(corpus.toPath(), StandardOpenOption.READ)) {
+            AdjacencyCounts counts = new AdjacencyCounts();
+            counts.addAll(new MappedWordTokenizer(channel, 0, channel.size()));
+            return new GraphPoet(counts);
         }
+    }
 
-        // Split the content into words and build the word graph
-        String[] wordsInCorpus = fullText.toString().toLowerCase().split("\\s+");
-        for (int i = 0; i < wordsInCorpus.length - 1; i++) {
-            String firstWord = wordsInCorpus[i];
-            String secondWord = wordsInCorpus[i + 1];
-            // Set the adjacency count for the edge from firstWord to secondWord
-            int currentWeight = wordGraph.set(firstWord, secondWord, wordGraph.targets(firstWord).getOrDefault(secondWord, 0) + 1);
+    /**
+     * Create a new poet with the graph constructed from a corpus made of many
+     * text files. Each file is a separate text, so the last word of one file
+     * is not adjacent to the first word of the next. Files are memory-mapped
+     * and counted concurrently on a fixed number of threads, and their counts
+     * are merged into one word affinity graph.
+     *
+     * @param corpusFiles UTF-8 text files from which to derive the poet's
+     *                    affinity graph
+     * @param threads number of threads to count files on, positive
+     * @param progress called after each file is counted, with the number of
+     *                 files and bytes done so far and the throughput; it is
+     *                 always called on the thread that called this method
+     * @return a new poet for the corpus
+     * @throws IOException if a corpus file cannot be found, read or decoded
+     */
+    public static GraphPoet fromFiles(List<Path> corpusFiles, int threads, Consumer<IngestionProgress> progress)
+            throws IOException {
+        return new GraphPoet(MultiFileLoader.count(List.copyOf(corpusFiles), threads, progress));
+    }
+
+    /**
+     * Create a new poet with the graph constructed from the text files of a
+     * directory tree that match a glob pattern, as by
+     * {@link #fromFiles(List, int, Consumer)}.
+     *
+     * @param directory root of the directory tree holding the corpus files
+     * @param glob pattern, such as {@code "**.txt"}, in the syntax of
+     *             {@link java.nio.file.FileSystem#getPathMatcher(String)}; it is
+     *             matched against each file's path relative to directory
+     * @param threads number of threads to count files on, positive
+     * @param progress called after each file is counted, as for fromFiles()
+     * @return a new poet for the corpus
+     * @throws IOException if the directory tree cannot be read, or a corpus
+     *         file cannot be read or decoded
+     */
+    public static GraphPoet fromDirectory(Path directory, String glob, int threads,
+            Consumer<IngestionProgress> progress) throws IOException {
+        return fromFiles(MultiFileLoader.find(directory, glob), threads, progress);
+    }
+
+    /**
+     * Create a new poet with the graph saved in a file by {@link #save(Path)}.
+     * The file's graph is read into compact arrays without any tokenizing or
+     * counting, so this is much faster than reading the original corpus.
+     *
+     * @param file model file written by save()
+     * @return a new poet with the saved graph
+     * @throws IOException if the file cannot be read, is not a model file of
+     *         a supported version, or is truncated or corrupt
+     */
+    public static GraphPoet load(Path file) throws IOException {
+        ModelFile saved = ModelFile.read(file);
+        return new GraphPoet(new Model(saved.wordGraph, null, newCache()));
+    }
+
+    private GraphPoet(AdjacencyCounts counts) {
+        this(new Model(counts.freeze(), null, newCache()));
+    }
+
+    /**
+     * Create a new poet that serves its graph directly from a file written by
+     * {@link #saveMapped(Path)}. The file is memory-mapped rather than read,
+     * so opening it takes the same short time for any size of graph, and
+     * processes that open the same file share its pages in the operating
+     * system's page cache. Words are looked up by binary search in the file.
+     * The first call to learn() copies the whole graph into memory.
+     *
+     * @param file graph file written by saveMapped(); it must not be
+     *             modified while the poet is in use
+     * @return a new poet with the graph of the file
+     * @throws IOException if the file cannot be mapped, or is not a mapped
+     *         graph file of a supported version
+     */
+    public static GraphPoet openMapped(Path file) throws IOException {
+        MappedGraph wordGraph = MappedGraph.open(file);
+        return new GraphPoet(new Model(wordGraph, null, new MappedWords(wordGraph), null, newCache()));
+    }
+
+    private GraphPoet(Model model) {
+        this.model = model;
+        assert verifyRep();  // Ensure that the representation invariant holds
+    }
+
+    private static BridgeCache newCache() {
+        return new BridgeCache(DEFAULT_BRIDGE_CACHE_CAPACITY);
+    }
+
+    /**
+     * @param corpus text file
+     * @return word adjacency counts of the file, read as a UTF-8 stream
+     * @throws IOException if the file cannot be found or read
+     */
+    private static AdjacencyCounts count(File corpus) throws IOException {
+        try (Reader reader = Files.newBufferedReader(corpus.toPath())) {
+            return count(reader);
         }
+    }
 
-        verifyRep();  // Ensure that the representation invariant holds
+    /**
+     * @param corpus source of corpus text
+     * @return word adjacency counts of the text
+     * @throws IOException if the text cannot be read
+     */
+    private static AdjacencyCounts count(Reader corpus) throws IOException {
+        AdjacencyCounts counts = new AdjacencyCounts();
+        counts.addAll(corpus);
+        return counts;
     }
 
     /**
      * Check the representation invariant to ensure that all graph edges have non-negative weights.
      */
-    private void verifyRep() {
+    private boolean verifyRep() {
+        Model current = model;
         // Check that all edge weights are non-negative
-        for (String vertex : wordGraph.vertices()) {
-            for (int edgeWeight : wordGraph.targets(vertex).values()) {
+        for (String vertex : current.wordGraph.vertices()) {
+            for (int edgeWeight : current.wordGraph.targets(vertex).values()) {
                 assert edgeWeight >= 0 : "Edge weight must be non-negative";
             }
+            assert current.vocabulary.id(vertex) >= 0 : "Vertex must be in the vocabulary";
+        }
+        assert current.idGraph == null || current.idGraph.words() == current.vocabulary
+                : "The id graph must be numbered by the vocabulary";
+        return true;
+    }
+
+    /**
+     * Save this poet's word affinity graph, including learned text, to a file
+     * that {@link #load(Path)} restores it from. The file is a compact binary
+     * format with a version number and a checksum; precomputed bridges and
+     * cached bridges are not saved.
+     *
+     * @param file file to write; replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void save(Path file) throws IOException {
+        Model current = model;
+        ModelFile.write(file, current.wordGraph, current.vocabulary);
+    }
+
+    /**
+     * Save this poet's word affinity graph, including learned text, to a file
+     * that {@link #openMapped(Path)} serves the graph from without loading it.
+     * Unlike {@link #save(Path)}, the file holds fixed-size arrays that can be
+     * searched in place, so it is larger, and has no checksum.
+     *
+     * @param file file to write; replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public void saveMapped(Path file) throws IOException {
+        MappedGraph.write(model.wordGraph, file);
+    }
+
+    /**
+     * Precompute the best bridge between every pair of words w1, w2 connected
+     * by a two-edge path, for the most frequent first words w1, so that
+     * generating a poem looks up each of their bridges in one hash probe
+     * instead of searching the graph. Pairs whose first word is not among them
+     * are still searched. The table is computed on all threads of a pool, and
+     * is discarded by the next call to learn().
+     *
+     * <p>Poems are the same with or without the table.
+     *
+     * <p>The table holds at most {@link #DEFAULT_MAX_BRIDGE_PAIRS} pairs.
+     *
+     * @param maxSources greatest number of first words to precompute bridges
+     *                   for, nonnegative; the words with the greatest number
+     *                   of adjacencies in the corpus are chosen
+     * @param pool pool whose threads compute the table
+     * @return number of word pairs in the table
+     */
+    public int precomputeBridges(int maxSources, ForkJoinPool pool) {
+        return precomputeBridges(maxSources, DEFAULT_MAX_BRIDGE_PAIRS, pool);
+    }
+
+    /**
+     * Precompute the best bridges of the most frequent first words, as
+     * precomputeBridges(int, ForkJoinPool) does, within a budget of pairs.
+     * A row can hold as many pairs as there are words, so maxSources alone
+     * does not bound the memory used by the table; maxPairs does, at about
+     * 36 bytes per pair at most.
+     *
+     * @param maxSources greatest number of first words to precompute bridges
+     *                   for, nonnegative
+     * @param maxPairs greatest number of word pairs in the table, 0 <=
+     *                 maxPairs <= {@link #MAX_BRIDGE_PAIRS}; the rows of the
+     *                 most frequent words are added until the next would
+     *                 exceed it
+     * @param pool pool whose threads compute the table
+     * @return number of word pairs in the table
+     */
+    public int precomputeBridges(int maxSources, int maxPairs, ForkJoinPool pool) {
+        synchronized (learnLock) {
+            Model current = model;
+            BridgeTable bridges = current.idGraph != null
+                    ? BridgeTable.build(current.idGraph, maxSources, maxPairs, pool)
+                    : BridgeTable.build(current.wordGraph, current.vocabulary, maxSources, maxPairs, pool);
+            model = current.with(bridges, current.cache);
+            return bridges.size();
+        }
+    }
+
+    /**
+     * Set the number of word pairs whose bridges are cached, emptying the
+     * cache. Generating a poem looks up each pair of adjacent words that are
+     * both in the corpus in the cache, unless precomputeBridges() covers it,
+     * and caches the bridges it has to search for, evicting the least
+     * recently used pairs. A poet starts with a cache of
+     * {@link #DEFAULT_BRIDGE_CACHE_CAPACITY} pairs.
+     *
+     * @param capacity greatest number of pairs to cache, nonnegative; 0
+     *                 disables the cache
+     */
+    public void setBridgeCacheCapacity(int capacity) {
+        synchronized (learnLock) {
+            Model current = model;
+            model = current.with(current.bridges, current.cache.resized(capacity));
+        }
+    }
+
+    /**
+     * @return hits, misses and evictions of the bridge cache since this poet
+     *         was created, and its current size
+     */
+    public BridgeCacheStats bridgeCacheStats() {
+        return model.cache.stats();
+    }
+
+    /**
+     * Add the word adjacencies of more text to this poet's affinity graph.
+     * The text is a separate text from the corpus and from previously learned
+     * text: its first word is not adjacent to any earlier word. Bridges
+     * precomputed by precomputeBridges() are discarded, and the bridge cache
+     * is emptied.
+     *
+     * <p>May be called while other threads are generating poems; each poem is
+     * generated entirely from the graph before or after the text is learned.
+     * Concurrent calls to learn() take effect one at a time.
+     *
+     * @param text corpus text to learn from
+     */
+    public void learn(String text) {
+        AdjacencyCounts counts = new AdjacencyCounts();
+        try {
+            counts.addAll(new WordTokenizer(text));
+        } catch (IOException e) {
+            throw new AssertionError("reading a String cannot fail", e);
+        }
+        learn(counts);
+    }
+
+    /**
+     * Add the word adjacencies of a text file to this poet's affinity graph,
+     * as by {@link #learn(String)}. The file is memory-mapped and counted
+     * before any lock is taken, so generating poems is never blocked.
+     *
+     * @param file UTF-8 text file to learn from
+     * @throws IOException if the file cannot be found, read or decoded
+     */
+    public void learn(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            AdjacencyCounts counts = new AdjacencyCounts();
+            counts.addAll(new MappedWordTokenizer(channel, 0, channel.size()));
+            learn(counts);
         }
     }
 
+    /**
+     * Add counts to the graph and publish the result.
+     *
+     * @param counts adjacency counts of a separate text
+     */
+    private void learn(AdjacencyCounts counts) {
+        synchronized (learnLock) {
+            Model current = model;
+            // Published vocabularies are snapshots, so new words are appended
+            // after them without copying. A mapped graph's words are copied
+            // into a Vocabulary by the first learn().
+            Vocabulary vocabulary = Vocabulary.extending(current.vocabulary);
+            vocabulary.internAll(counts.vocabulary());
+            WordIds words = vocabulary.snapshot();
+            // The first learn() of a mapped graph copies it into memory
+            WordGraph graph = current.idGraph != null ? current.idGraph : WordGraph.of(current.wordGraph, words);
+            model = new Model(counts.addTo(graph, words), null, current.cache.invalidated());
+        }
+        assert verifyRep();
+    }
+
     /**
      * Generate a poem by inserting bridge words between adjacent words in the input string.
-     * The bridge word is chosen such that the path from firstWord to bridge to secondWord has the maximum weight.
+     * The bridge word is chosen such that the path from firstWord to bridge to secondWord has the maximum weight;
+     * if several bridge words tie, the least in {@link String#compareTo(String)} order is chosen.
      * 
      * @param input string from which to create the poem
      * @return poem (with bridge words inserted as described)
      */
     public String generatePoem(String input) {
-        String[] wordsInInput = input.split("\\s+");
+        return generatePoem(model, input);  // The whole poem comes from one version of the graph
+    }
+
+    /**
+     * Generate a poem from an input stream of any length, as by
+     * {@link #generatePoem(String)}, writing it to an output stream as the
+     * input is read. Only the current word and the previous word's place in
+     * the graph are held, so memory use does not grow with the input, only
+     * with its longest word. The whole poem comes from one version of the
+     * graph. Neither stream is closed or flushed.
+     *
+     * @param in source of the input text
+     * @param out destination of the poem
+     * @throws IOException if in cannot be read or out cannot be written; the
+     *         poem may then have been partly written
+     */
+    public void generatePoem(Reader in, Writer out) throws IOException {
+        StringBuilder poemResult = new StringBuilder(WRITE_BUFFER_SIZE + 256);
+        writePoem(model, new WordTokenizer(in), poemResult, out, null, null);
+        out.append(poemResult);
+    }
+
+    /**
+     * Generate poems for many inputs in parallel on the common ForkJoinPool,
+     * as by {@link #generatePoems(List, Executor)}.
+     *
+     * @param inputs strings from which to create poems
+     * @return the poems of inputs, in the same order
+     */
+    public List<String> generatePoems(List<String> inputs) {
+        return generatePoems(inputs, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Generate poems for many inputs in parallel, as by
+     * {@link #generatePoem(String)}. Consecutive inputs are grouped into tasks
+     * that run on the executor, each thread reusing its own tokenizer and
+     * poem buffers. All poems of the batch come from the same version of the
+     * graph, even if text is learned meanwhile.
+     *
+     * @param inputs strings from which to create poems
+     * @param executor executor to generate the poems on, such as a ForkJoinPool
+     * @return the poems of inputs, in the same order
+     */
+    public List<String> generatePoems(List<String> inputs, Executor executor) {
+        Model current = model;
+        return PoemBatches.generate(List.copyOf(inputs), input -> generatePoem(current, input), executor);
+    }
+
+    /**
+     * Generate poems for a stream of inputs in parallel, as by
+     * {@link #generatePoem(String)}. The inputs are consumed lazily in groups
+     * of consecutive inputs, which are generated on the executor a bounded
+     * number of groups ahead of the poem being consumed, so the stream of
+     * inputs may be unbounded. Each poem comes from one version of the graph,
+     * but later poems may see text learned meanwhile.
+     *
+     * @param inputs strings from which to create poems; closed when the
+     *               returned stream is closed
+     * @param executor executor to generate the poems on, such as a ForkJoinPool
+     * @return sequential stream of the poems of inputs, in the same order
+     */
+    public Stream<String> generatePoems(Stream<String> inputs, Executor executor) {
+        return PoemBatches.generate(inputs, this::generatePoem, executor);
+    }
+
+    /**
+     * Find the best bridge words between two words, ranked as generatePoem()
+     * ranks them: by decreasing weight of the path through the bridge, then
+     * in {@link String#compareTo(String)} order. The first is the bridge
+     * generatePoem() inserts. Finding them costs O(c log k) for c candidate
+     * bridges, and is not cached.
+     *
+     * @param firstWord a word, in any case
+     * @param secondWord a word, in any case
+     * @param k greatest number of bridges to return, at least 0
+     * @return the at most k best bridges b from firstWord to secondWord, best
+     *         first, in an unmodifiable list; empty if there are none
+     * @throws IllegalArgumentException if k < 0
+     */
+    public List<Bridge> bridges(String firstWord, String secondWord, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must be at least 0: " + k);
+        }
+        Model current = model;
+        int first = current.vocabulary.id(firstWord.toLowerCase());
+        int second = current.vocabulary.id(secondWord.toLowerCase());
+        if (first < 0 || second < 0) {
+            return Collections.emptyList();
+        }
+        BridgeHeap ranking = new BridgeHeap(current.vocabulary, k);
+        offerBridges(current, first, second, ranking);
+        return ranking.drain();
+    }
+
+    /**
+     * Generate a poem as by {@link #generatePoem(String)}, together with the
+     * k best bridge candidates of each pair of adjacent input words, as
+     * {@link #bridges(String, String, int)} finds them. Candidates are not
+     * cached, so this is slower than generatePoem().
+     *
+     * @param input string from which to create the poem
+     * @param k greatest number of candidates per pair, at least 1
+     * @return the poem and its candidates, from one version of the graph
+     * @throws IllegalArgumentException if k < 1
+     */
+    public RankedPoem generateRankedPoem(String input, int k) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1: " + k);
+        }
+        Model current = model;
         StringBuilder poemResult = new StringBuilder();
+        List<List<Bridge>> candidates = new ArrayList<>();
+        try {
+            writePoem(current, new WordTokenizer(input), poemResult, null,
+                    new BridgeHeap(current.vocabulary, k), candidates);
+        } catch (IOException e) {
+            throw new AssertionError("reading a String cannot fail", e);
+        }
+        return new RankedPoem(poemResult.toString(), candidates);
+    }
+
+    /**
+     * Generate a poem from one version of the graph, using this thread's buffers.
+     *
+     * @param current version of the graph to find bridges in
+     * @param input string from which to create the poem
+     * @return poem (with bridge words inserted as described)
+     */
+    private static String generatePoem(Model current, String input) {
+        PoemBuffers buffers = POEM_BUFFERS.get();
+        WordTokenizer words = buffers.words;
+        words.reset(input);
+        StringBuilder poemResult = buffers.poem;
+        poemResult.setLength(0);
+        try {
+            writePoem(current, words, poemResult, null, null, null);
+        } catch (IOException e) {
+            throw new AssertionError("reading a String cannot fail", e);
+        }
+        String poem = poemResult.toString();
+        words.reset("");  // Do not keep the input reachable
+        if (poemResult.capacity() > MAX_REUSED_POEM_CAPACITY) {
+            buffers.poem = new StringBuilder();  // Do not keep a huge buffer per thread
+        }
+        return poem;  // Return the generated poem
+    }
+
+    /**
+     * Generate the poem of the words of a tokenizer, from one version of the graph.
+     *
+     * @param current version of the graph to find bridges in
+     * @param words tokenizer of the input
+     * @param poemResult empty buffer to build the poem in
+     * @param out writer to write the poem to whenever poemResult holds
+     *            WRITE_BUFFER_SIZE chars, and to leave the rest of the poem
+     *            in poemResult for; or null to build the whole poem in poemResult
+     * @param ranking empty heap to rank the bridges of each pair of words with,
+     *                or null to look up only the best bridge
+     * @param candidates list to add the ranked bridges of each pair to, if
+     *                   ranking is not null
+     * @throws IOException if words cannot read its input or out cannot be written
+     */
+    private static void writePoem(Model current, WordTokenizer words, StringBuilder poemResult, Writer out,
+            BridgeHeap ranking, List<List<Bridge>> candidates) throws IOException {
+        boolean firstWord = true;
+        int previousWord = -1;  // Id of the lower-case previous input word, or -1 if it is not in the corpus
 
-        // Iterate through the input words and insert bridge words where possible
-        for (int i = 0; i < wordsInInput.length - 1; i++) {
-            String firstWord = wordsInInput[i].toLowerCase();  // Lowercase firstWord for graph consistency
-            String secondWord = wordsInInput[i + 1].toLowerCase();  // Lowercase secondWord for graph consistency
-
-            // Find the best bridge word
-            String bridgeWord = null;
-            int highestWeight = 0;
-
-            // Iterate through the possible target words for firstWord
-            for (Map.Entry<String, Integer> adjacent : wordGraph.targets(firstWord).entrySet()) {
-                String possibleBridge = adjacent.getKey();
-                // Calculate the combined weight for a possible bridge
-                int bridgeWeight = adjacent.getValue() + wordGraph.targets(possibleBridge).getOrDefault(secondWord, 0);
-                
-                // If a path exists and it has the highest weight so far, choose this bridge
-                if (wordGraph.targets(possibleBridge).containsKey(secondWord) && bridgeWeight > highestWeight) {
-                    bridgeWord = possibleBridge;
-                    highestWeight = bridgeWeight;
+        // Each word is written as soon as it is read; only the previous word's id is remembered
+        while (words.next()) {
+            // Words not in the vocabulary have no bridges, so they need no String
+            int word = current.vocabulary.id(words.folded(), words.foldedLength());
+            if (!firstWord) {
+                poemResult.append(' ');
+                String bridgeWord = null;
+                if (ranking != null) {
+                    // The best candidate is the bridge, so rank instead of looking it up
+                    if (previousWord >= 0 && word >= 0) {
+                        offerBridges(current, previousWord, word, ranking);
+                    }
+                    List<Bridge> ranked = ranking.drain();
+                    candidates.add(ranked);
+                    bridgeWord = ranked.isEmpty() ? null : ranked.get(0).word();
+                } else if (previousWord >= 0 && word >= 0) {
+                    bridgeWord = bridge(current, previousWord, word);
+                }
+                if (bridgeWord != null) {
+                    poemResult.append(bridgeWord).append(' ');
                 }
             }
+            // Input words keep their original case
+            poemResult.append(words.word(), 0, words.wordLength());
+            firstWord = false;
+            previousWord = word;
 
-            // Append the first word and optionally the bridge word
-            poemResult.append(wordsInInput[i]).append(" ");
-            if (bridgeWord != null) {
-                poemResult.append(bridgeWord).append(" ");
+            if (out != null && poemResult.length() >= WRITE_BUFFER_SIZE) {
+                out.append(poemResult);
+                poemResult.setLength(0);
             }
         }
+    }
 
-        // Append the last word in the input
-        poemResult.append(wordsInInput[wordsInInput.length - 1]);
-        return poemResult.toString();  // Return the generated poem
+    /**
+     * @return the best bridge word between two words of current's vocabulary,
+     *         from its bridge table if that covers firstWord, else from its
+     *         cache or a search, or null if none
+     */
+    private static String bridge(Model current, int firstWord, int secondWord) {
+        if (current.bridges != null) {
+            int bridgeWord = current.bridges.get(firstWord, secondWord);
+            if (bridgeWord == BridgeTable.NO_BRIDGE) {
+                return null;
+            } else if (bridgeWord != BridgeTable.NOT_COVERED) {
+                return current.vocabulary.word(bridgeWord);
+            }
+        }
+        int bridgeWord;
+        if (!current.cache.enabled()) {
+            bridgeWord = search(current, firstWord, secondWord);
+        } else {
+            bridgeWord = current.cache.get(firstWord, secondWord);
+            if (bridgeWord == BridgeCache.ABSENT) {
+                bridgeWord = search(current, firstWord, secondWord);
+                current.cache.put(firstWord, secondWord, bridgeWord < 0 ? BridgeCache.NO_BRIDGE : bridgeWord);
+            }
+        }
+        return bridgeWord < 0 ? null : current.vocabulary.word(bridgeWord);
+    }
+
+    /**
+     * Offer every bridge between two words of a model's vocabulary to a heap.
+     */
+    private static void offerBridges(Model current, int firstWord, int secondWord, BridgeHeap ranking) {
+        if (current.idGraph != null) {
+            current.idGraph.offerBridges(firstWord, secondWord, ranking);
+        } else {
+            BridgeSearch.offerBridges(current.wordGraph, current.vocabulary.word(firstWord),
+                    current.vocabulary.word(secondWord), current.vocabulary, ranking);
+        }
+    }
+
+    /**
+     * @return id of the best bridge between two words of a model's vocabulary
+     *         in its graph, or a negative number if there is none
+     */
+    private static int search(Model current, int firstWord, int secondWord) {
+        if (current.idGraph != null) {
+            return current.idGraph.bestBridge(firstWord, secondWord);
+        }
+        String bridgeWord = BridgeSearch.bestBridge(current.wordGraph,
+                current.vocabulary.word(firstWord), current.vocabulary.word(secondWord));
+        return bridgeWord == null ? -1 : current.vocabulary.id(bridgeWord);
     }
 
     /**
@@ -156,6 +767,6 @@ public class GraphPoet {
      */
     @Override
     public String toString() {
-        return "GraphPoet with graph: " + wordGraph.toString();  // Return the string form of the graph
+        return "GraphPoet with graph: " + model.wordGraph.toString();  // Return the string form of the graph
     }
 }
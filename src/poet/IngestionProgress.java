@@ -0,0 +1,97 @@
+package poet;
+
+import java.nio.file.Path;
+
+/**
+ * An immutable report of the progress of loading a multi-file corpus, given
+ * to a progress callback each time one more file has been counted.
+ */
+public final class IngestionProgress {
+
+    private final Path file;
+    private final int filesDone;
+    private final int fileCount;
+    private final long bytesDone;
+    private final long totalBytes;
+    private final long elapsedNanos;
+
+    // Abstraction function:
+    //   - Represents the state of a load just after file was counted, when
+    //     filesDone of fileCount files, holding bytesDone of totalBytes bytes,
+    //     had been counted in elapsedNanos.
+    // Representation invariant:
+    //   - 0 < filesDone <= fileCount, 0 <= bytesDone <= totalBytes, elapsedNanos >= 0.
+    // Safety from rep exposure:
+    //   - All fields are private, final and immutable.
+
+    IngestionProgress(Path file, int filesDone, int fileCount, long bytesDone, long totalBytes, long elapsedNanos) {
+        this.file = file;
+        this.filesDone = filesDone;
+        this.fileCount = fileCount;
+        this.bytesDone = bytesDone;
+        this.totalBytes = totalBytes;
+        this.elapsedNanos = elapsedNanos;
+        checkRep();
+    }
+
+    private void checkRep() {
+        assert 0 < filesDone && filesDone <= fileCount;
+        assert 0 <= bytesDone && bytesDone <= totalBytes;
+        assert elapsedNanos >= 0;
+    }
+
+    /**
+     * @return the file that has just been counted
+     */
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * @return number of files counted so far, including file()
+     */
+    public int filesDone() {
+        return filesDone;
+    }
+
+    /**
+     * @return number of files in the corpus
+     */
+    public int fileCount() {
+        return fileCount;
+    }
+
+    /**
+     * @return total size in bytes of the files counted so far
+     */
+    public long bytesDone() {
+        return bytesDone;
+    }
+
+    /**
+     * @return total size in bytes of all files in the corpus
+     */
+    public long totalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return nanoseconds since the load started
+     */
+    public long elapsedNanos() {
+        return elapsedNanos;
+    }
+
+    /**
+     * @return average throughput of the load so far, in bytes per second
+     */
+    public double bytesPerSecond() {
+        return elapsedNanos == 0 ? 0 : bytesDone * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d/%d files, %d/%d bytes, %.1f MB/s (%s)",
+                filesDone, fileCount, bytesDone, totalBytes, bytesPerSecond() / 1e6, file);
+    }
+}
@@ -0,0 +1,243 @@
+package poet;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Splits a byte range of a UTF-8 file into GraphPoet words, reading the bytes
+ * in place from memory-mapped windows of the file.
+ *
+ * <p>Words are the same as those of {@link WordTokenizer} on the decoded text:
+ * every {@code \s} char is a single ASCII byte in UTF-8 and never occurs inside
+ * a multi-byte char, so words can be found without decoding. A word of ASCII
+ * bytes is case-folded in a reusable byte buffer and never decoded; only a
+ * word containing other bytes is decoded (strictly, so malformed UTF-8 is
+ * reported as for a Reader from {@code Files.newBufferedReader}) and folded
+ * as {@link WordTokenizer} folds it, into reusable char buffers, so a word
+ * is decoded and folded without allocating.
+ *
+ * <p>The range is mapped in windows of at most {@link #WINDOW_SIZE} bytes, so
+ * files larger than 2 GB are supported; a word may span two windows.
+ *
+ * <p>This class is internal to GraphPoet.
+ */
+final class MappedWordTokenizer {
+
+    // Largest window mapped at once, in bytes
+    static final long WINDOW_SIZE = 1L << 30;
+
+    private final FileChannel channel;
+    private final long end;
+    private final long windowSize;
+    private long windowStart;  // file offset of window[0]
+    private ByteBuffer window = ByteBuffer.allocate(0);
+
+    private byte[] word = new byte[32];
+    private int wordLength = 0;
+    private boolean ascii = true;
+
+    // Decoding and folding of words that are not all ASCII
+    private final CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+    private ByteBuffer encoded = ByteBuffer.wrap(word);
+    private CharBuffer decoded = CharBuffer.allocate(32);
+    private char[] folded = new char[32];
+    private int foldedLength = 0;
+
+    // Abstraction function:
+    //   - Represents the remaining words of bytes [windowStart + window.position(), end)
+    //     of the file, where the current word is word[0..wordLength), in
+    //     lower case if ascii, and as written otherwise; after decodeFolded(),
+    //     its folded form is folded[0..foldedLength).
+    // Representation invariant:
+    //   - windowStart + window.limit() <= end, and window.limit() <= windowSize.
+    //   - word[0..wordLength) contains no whitespace bytes.
+    //   - encoded wraps word, and decoded has a backing array.
+    // Safety from rep exposure:
+    //   - bytes() and folded() expose the reused buffers, which callers read
+    //     only until the next call to next().
+
+    /**
+     * Create a tokenizer over part of a file.
+     *
+     * @param channel file to read; must stay open while this tokenizer is used
+     * @param start offset of the first byte to read
+     * @param end offset just after the last byte to read
+     */
+    MappedWordTokenizer(FileChannel channel, long start, long end) {
+        this(channel, start, end, WINDOW_SIZE);
+    }
+
+    /**
+     * Create a tokenizer over part of a file with a given window size.
+     *
+     * @param channel file to read; must stay open while this tokenizer is used
+     * @param start offset of the first byte to read
+     * @param end offset just after the last byte to read
+     * @param windowSize largest number of bytes to map at once, positive and at
+     *                   most Integer.MAX_VALUE
+     */
+    MappedWordTokenizer(FileChannel channel, long start, long end, long windowSize) {
+        this.channel = channel;
+        this.end = end;
+        this.windowSize = windowSize;
+        this.windowStart = start;
+    }
+
+    /**
+     * @return true if a byte is available in window, mapping the next window if needed
+     * @throws IOException if the file cannot be mapped
+     */
+    private boolean available() throws IOException {
+        if (window.hasRemaining()) {
+            return true;
+        }
+        windowStart += window.limit();
+        if (windowStart >= end) {
+            return false;
+        }
+        long size = Math.min(windowSize, end - windowStart);
+        MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, size);
+        window = mapped;
+        return true;
+    }
+
+    /**
+     * Advance to the next word.
+     *
+     * @return true if there is a next word, false at the end of the range
+     * @throws IOException if the file cannot be mapped
+     */
+    boolean next() throws IOException {
+        // Skip whitespace, possibly across windows
+        while (true) {
+            if (!available()) {
+                wordLength = 0;
+                return false;
+            }
+            if (!WordTokenizer.isWordDelimiter((char) window.get(window.position()))) {
+                break;
+            }
+            window.position(window.position() + 1);
+        }
+
+        wordLength = 0;
+        int highBits = 0;  // OR of all bytes of the word; negative iff one is not ASCII
+        while (available()) {
+            ByteBuffer bytes = window;
+            int start = bytes.position();
+            int limit = bytes.limit();
+            int position = start;
+            while (position < limit) {
+                byte b = bytes.get(position);
+                if (WordTokenizer.isWordDelimiter((char) b)) {
+                    break;
+                }
+                highBits |= b;
+                position++;
+            }
+
+            // Copy the run in bulk; it continues in the next window if it reached the limit
+            int runLength = position - start;
+            if (wordLength + runLength > word.length) {
+                word = Arrays.copyOf(word, Math.max(word.length * 2, wordLength + runLength));
+                encoded = ByteBuffer.wrap(word);
+            }
+            bytes.get(word, wordLength, runLength);
+            wordLength += runLength;
+            if (position < limit) {
+                break;
+            }
+        }
+        ascii = highBits >= 0;
+        if (ascii) {
+            for (int i = 0; i < wordLength; i++) {
+                if (word[i] >= 'A' && word[i] <= 'Z') {
+                    word[i] += 'a' - 'A';
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return true iff the current word is all ASCII, in which case bytes()
+     *         holds it in lower case
+     */
+    boolean isAscii() {
+        return ascii;
+    }
+
+    /**
+     * @return buffer holding the current word in lower case if isAscii(),
+     *         otherwise as written; valid until the next call to next()
+     */
+    byte[] bytes() {
+        return word;
+    }
+
+    /**
+     * @return length in bytes of the current word
+     */
+    int length() {
+        return wordLength;
+    }
+
+    /**
+     * Decode and fold the current word into folded(), for words that are not
+     * all ASCII.
+     *
+     * @throws IOException if the word is not valid UTF-8
+     */
+    void decodeFolded() throws IOException {
+        // UTF-8 never decodes to more chars than bytes
+        if (decoded.capacity() < wordLength) {
+            decoded = CharBuffer.allocate(Math.max(decoded.capacity() * 2, wordLength));
+        }
+        encoded.limit(wordLength).position(0);
+        decoded.clear();
+        decoder.reset();
+        CoderResult result = decoder.decode(encoded, decoded, true);
+        if (result.isUnderflow()) {
+            result = decoder.flush(decoded);
+        }
+        if (result.isError()) {
+            result.throwException();
+        }
+        int length = decoded.position();
+        char[] chars = decoded.array();
+        if (folded.length < length) {
+            folded = new char[Math.max(folded.length * 2, length)];
+        }
+        foldedLength = WordTokenizer.foldNonAscii(chars, length, folded);
+        if (foldedLength < 0) {
+            String lower = new String(chars, 0, length).toLowerCase();
+            foldedLength = lower.length();
+            if (foldedLength > folded.length) {
+                folded = new char[foldedLength];
+            }
+            lower.getChars(0, foldedLength, folded, 0);
+        }
+    }
+
+    /**
+     * @return buffer holding the current word in lower case, after
+     *         decodeFolded(); valid until the next call to next()
+     */
+    char[] folded() {
+        return folded;
+    }
+
+    /**
+     * @return length of the current word in lower case, after decodeFolded()
+     */
+    int foldedLength() {
+        return foldedLength;
+    }
+}
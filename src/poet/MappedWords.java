@@ -0,0 +1,47 @@
+package poet;
+
+import graph.MappedGraph;
+
+/**
+ * The vertices of a memory-mapped word graph, numbered as in the graph's file.
+ * Words are looked up by binary search over the mapped file, so nothing is
+ * loaded when a poet is opened on the file.
+ *
+ * <p>This class is internal to GraphPoet.
+ */
+final class MappedWords implements WordIds {
+
+    private final MappedGraph wordGraph;
+
+    // Abstraction function:
+    //   - Represents the numbering of the vertices of wordGraph by their
+    //     numbers in the mapped file.
+    // Representation invariant:
+    //   - true
+    // Safety from rep exposure:
+    //   - wordGraph is immutable.
+
+    MappedWords(MappedGraph wordGraph) {
+        this.wordGraph = wordGraph;
+    }
+
+    @Override
+    public int size() {
+        return wordGraph.vertexCount();
+    }
+
+    @Override
+    public int id(char[] chars, int length) {
+        return wordGraph.indexOf(new String(chars, 0, length));
+    }
+
+    @Override
+    public int id(String word) {
+        return wordGraph.indexOf(word);
+    }
+
+    @Override
+    public String word(int id) {
+        return wordGraph.label(id);
+    }
+}
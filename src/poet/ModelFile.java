@@ -0,0 +1,409 @@
+package poet;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32C;
+import graph.Graph;
+
+/**
+ * Reads and writes a word affinity graph and its vocabulary in a compact
+ * binary file, so that a poet can be restored without its corpus.
+ *
+ * <p>The file holds, in order:
+ * <ul><li> a header: the magic bytes "GPM1", a version int, the vertex count
+ *          n as an int, and the edge count as a long (big-endian)
+ *     <li> the vocabulary: for each vertex 0..n-1, its word as a varint
+ *          length followed by that many UTF-8 bytes
+ *     <li> the adjacency lists in CSR order: for each vertex, its out-degree,
+ *          then for each edge in increasing target order, the difference
+ *          from the previous target (or the target itself, for the first)
+ *          and the weight, all as varints
+ *     <li> the CRC-32C of everything before it, as an int </ul>
+ * <p>Varints are unsigned LEB128: 7 bits per byte, low bits first, with the
+ * high bit set on every byte but the last.
+ *
+ * <p>Files are read and written through a fixed-size buffer, and the
+ * adjacency lists are decoded straight into the primitive arrays of a
+ * {@link WordGraph}.
+ *
+ * <p>This class is internal to GraphPoet.
+ */
+final class ModelFile {
+
+    private static final int MAGIC = 0x47504D31;  // "GPM1"
+    private static final int VERSION = 1;
+    // Fewest bytes a vertex (word length and out-degree) and an edge (target
+    // difference and weight) take in a file, as varints
+    private static final int MIN_VERTEX_BYTES = 2;
+    private static final int MIN_EDGE_BYTES = 2;
+    // Bytes read or written at a time
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    final WordGraph wordGraph;
+    final WordIds vocabulary;
+
+    // Abstraction function:
+    //   - Represents the contents of a model file: wordGraph, whose vertices
+    //     are exactly the words of vocabulary.
+    // Representation invariant:
+    //   - wordGraph.words() == vocabulary.
+    // Safety from rep exposure:
+    //   - wordGraph and vocabulary are immutable; vocabulary is a snapshot of a new Vocabulary.
+
+    private ModelFile(WordGraph wordGraph, WordIds vocabulary) {
+        this.wordGraph = wordGraph;
+        this.vocabulary = vocabulary;
+    }
+
+    /**
+     * Write a graph to a file, replacing the file if it exists.
+     *
+     * @param file file to write
+     * @param wordGraph word affinity graph, whose vertices are all in vocabulary
+     * @param vocabulary numbering of the graph's vertices; vertices are
+     *                   written in the order of their ids
+     * @throws IOException if the file cannot be written
+     */
+    static void write(Path file, Graph<String> wordGraph, WordIds vocabulary) throws IOException {
+        // Number the vertices in vocabulary order, skipping words that are not vertices
+        int[] ids = new int[vocabulary.size()];
+        List<String> vertices = new ArrayList<>(wordGraph.vertices().size());
+        long edgeCount = 0;
+        for (int id = 0; id < vocabulary.size(); id++) {
+            String word = vocabulary.word(id);
+            if (wordGraph.vertices().contains(word)) {
+                ids[id] = vertices.size();
+                vertices.add(word);
+                edgeCount += wordGraph.targets(word).size();
+            } else {
+                ids[id] = -1;
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            Output out = new Output(channel);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(vertices.size());
+            out.writeLong(edgeCount);
+            for (String word : vertices) {
+                byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+                out.writeVarint(bytes.length);
+                out.write(bytes);
+            }
+
+            long[] row = new long[16];
+            for (String word : vertices) {
+                // Sort (target, weight) pairs packed into longs by target
+                Map<String, Integer> targets = wordGraph.targets(word);
+                if (targets.size() > row.length) {
+                    row = new long[Math.max(targets.size(), row.length * 2)];
+                }
+                int degree = 0;
+                for (Map.Entry<String, Integer> edge : targets.entrySet()) {
+                    row[degree++] = (long) ids[vocabulary.id(edge.getKey())] << 32 | edge.getValue();
+                }
+                Arrays.sort(row, 0, degree);
+                out.writeVarint(degree);
+                int previousTarget = 0;
+                for (int i = 0; i < degree; i++) {
+                    int target = (int) (row[i] >>> 32);
+                    out.writeVarint(target - previousTarget);
+                    out.writeVarint((int) row[i]);
+                    previousTarget = target;
+                }
+            }
+            out.writeChecksum();
+            out.flush();
+        }
+    }
+
+    /**
+     * Read a graph from a file written by write().
+     *
+     * @param file file to read
+     * @return the graph, as an immutable WordGraph, and a new vocabulary
+     *         numbering its vertices in the order they were written
+     * @throws IOException if the file cannot be read, is not a model file of
+     *         a supported version, or is truncated or corrupt
+     */
+    static ModelFile read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            Input in = new Input(channel);
+            if (in.readInt() != MAGIC) {
+                throw new IOException("not a GraphPoet model file: " + file);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported GraphPoet model file version " + version + ": " + file);
+            }
+            int vertexCount = in.readInt();
+            long edgeCount = in.readLong();
+            if (vertexCount < 0 || edgeCount < 0 || edgeCount > Integer.MAX_VALUE - 8) {
+                throw new IOException("corrupt GraphPoet model file header: " + file);
+            }
+            // The counts size the arrays, so check them against the file before
+            // allocating; the checksum is only checked at the end
+            if (MIN_VERTEX_BYTES * (long) vertexCount + MIN_EDGE_BYTES * edgeCount + Integer.BYTES > in.remaining()) {
+                throw new IOException("GraphPoet model file header does not match its size: " + file);
+            }
+
+            Vocabulary vocabulary = new Vocabulary();
+            for (int id = 0; id < vertexCount; id++) {
+                String word = in.readString();
+                if (vocabulary.id(word) >= 0) {
+                    throw new IOException("duplicate word in GraphPoet model file: " + file);
+                }
+                vocabulary.intern(word);
+            }
+
+            int[] offsets = new int[vertexCount + 1];
+            int[] targets = new int[(int) edgeCount];
+            int[] weights = new int[(int) edgeCount];
+            int edge = 0;
+            for (int source = 0; source < vertexCount; source++) {
+                int degree = in.readVarint();
+                if (degree > edgeCount - edge) {
+                    throw new IOException("corrupt GraphPoet model file adjacency lists: " + file);
+                }
+                int target = 0;
+                for (int i = 0; i < degree; i++) {
+                    target += in.readVarint();
+                    targets[edge] = target;
+                    weights[edge] = in.readVarint();
+                    edge++;
+                }
+                offsets[source + 1] = edge;
+            }
+            if (edge != edgeCount) {
+                throw new IOException("corrupt GraphPoet model file adjacency lists: " + file);
+            }
+            in.checkChecksum(file);
+
+            try {
+                WordIds words = vocabulary.snapshot();
+                return new ModelFile(WordGraph.fromRows(words, offsets, targets, weights), words);
+            } catch (IllegalArgumentException e) {
+                throw new IOException("corrupt GraphPoet model file: " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Buffered output to a channel, keeping a checksum of the bytes written.
+     */
+    private static final class Output {
+
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final CRC32C checksum = new CRC32C();
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void writeInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void writeLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        /**
+         * Write a nonnegative int as a varint.
+         */
+        void writeVarint(int value) throws IOException {
+            ensure(5);
+            while ((value & ~0x7F) != 0) {
+                buffer.put((byte) (value & 0x7F | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        void write(byte[] bytes) throws IOException {
+            int offset = 0;
+            while (offset < bytes.length) {
+                ensure(1);
+                int length = Math.min(buffer.remaining(), bytes.length - offset);
+                buffer.put(bytes, offset, length);
+                offset += length;
+            }
+        }
+
+        /**
+         * Write the checksum of everything written so far.
+         */
+        void writeChecksum() throws IOException {
+            drain();
+            buffer.putInt((int) checksum.getValue());
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+        /**
+         * Add the buffered bytes to the checksum and write them.
+         */
+        private void drain() throws IOException {
+            checksum.update(buffer.array(), 0, buffer.position());
+            flush();
+        }
+    }
+
+    /**
+     * Buffered input from a channel, keeping a checksum of the bytes consumed.
+     */
+    private static final class Input {
+
+        private final FileChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        private final CRC32C checksum = new CRC32C();
+        private int checked = 0;  // Bytes of buffer already added to checksum
+
+        Input(FileChannel channel) {
+            this.channel = channel;
+            buffer.limit(0);
+        }
+
+        int readInt() throws IOException {
+            require(Integer.BYTES);
+            return buffer.getInt();
+        }
+
+        long readLong() throws IOException {
+            require(Long.BYTES);
+            return buffer.getLong();
+        }
+
+        /**
+         * Read a varint encoding a nonnegative int.
+         */
+        int readVarint() throws IOException {
+            if (buffer.remaining() < 5) {
+                // Near the end of the buffer or the file, read byte by byte
+                int value = 0;
+                for (int shift = 0; shift < 35; shift += 7) {
+                    require(1);
+                    byte b = buffer.get();
+                    value |= (b & 0x7F) << shift;
+                    if (b >= 0) {
+                        return checkVarint(value, shift, b);
+                    }
+                }
+                throw new IOException("corrupt varint");
+            }
+            byte[] bytes = buffer.array();
+            int position = buffer.position();
+            int value = 0;
+            for (int shift = 0; shift < 35; shift += 7) {
+                byte b = bytes[position++];
+                value |= (b & 0x7F) << shift;
+                if (b >= 0) {
+                    buffer.position(position);
+                    return checkVarint(value, shift, b);
+                }
+            }
+            throw new IOException("corrupt varint");
+        }
+
+        private static int checkVarint(int value, int shift, byte last) throws IOException {
+            if (value < 0 || shift == 28 && last > 0x07) {
+                throw new IOException("corrupt varint");
+            }
+            return value;
+        }
+
+        /**
+         * Read a varint length followed by that many bytes of UTF-8.
+         *
+         * @throws EOFException if the file is shorter than the length, which
+         *         is checked before the bytes are buffered
+         */
+        String readString() throws IOException {
+            int length = readVarint();
+            if (length > remaining()) {
+                throw new EOFException("truncated GraphPoet model file");
+            }
+            require(length);
+            String value = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+            buffer.position(buffer.position() + length);
+            return value;
+        }
+
+        /**
+         * @return number of bytes of the file not yet consumed
+         */
+        long remaining() throws IOException {
+            return buffer.remaining() + channel.size() - channel.position();
+        }
+
+        /**
+         * Check that the next int is the checksum of everything before it,
+         * and that it ends the file.
+         */
+        void checkChecksum(Path file) throws IOException {
+            require(Integer.BYTES);
+            checksum.update(buffer.array(), checked, buffer.position() - checked);
+            checked = buffer.position();
+            int expected = (int) checksum.getValue();
+            if (buffer.getInt() != expected) {
+                throw new IOException("checksum mismatch in GraphPoet model file: " + file);
+            }
+            if (buffer.hasRemaining() || channel.position() != channel.size()) {
+                throw new IOException("trailing bytes in GraphPoet model file: " + file);
+            }
+        }
+
+        /**
+         * Make at least bytes bytes available in the buffer, growing it if needed.
+         *
+         * @throws EOFException if the file ends first
+         */
+        private void require(int bytes) throws IOException {
+            if (buffer.remaining() >= bytes) {
+                return;
+            }
+            // Checksum the consumed bytes, then move the rest to the front and refill
+            checksum.update(buffer.array(), checked, buffer.position() - checked);
+            if (bytes > buffer.capacity()) {
+                ByteBuffer larger = ByteBuffer.allocate(bytes);
+                larger.put(buffer);
+                buffer = larger;
+            } else {
+                buffer.compact();
+            }
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    throw new EOFException("truncated GraphPoet model file");
+                }
+            }
+            buffer.flip();
+            checked = 0;
+        }
+    }
+}
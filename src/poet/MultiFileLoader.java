@@ -0,0 +1,162 @@
+package poet;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Counts the word adjacencies of a corpus made of many UTF-8 files.
+ *
+ * <p>Each file is counted on its own, as a separate text: the last word of
+ * one file is not adjacent to the first word of the next. Files are counted
+ * by a fixed number of worker threads, and each finished file's counts are
+ * merged into the total on the calling thread as soon as it completes. At
+ * most twice as many files as there are threads are in flight at once, so
+ * memory is bounded by the total counts plus that many per-file counts, no
+ * matter how many files there are.
+ *
+ * <p>This class is internal to GraphPoet.
+ */
+final class MultiFileLoader {
+
+    private MultiFileLoader() {
+        throw new AssertionError("not instantiable");
+    }
+
+    /**
+     * Find the files of a directory tree that match a glob pattern.
+     *
+     * @param directory root of the directory tree
+     * @param glob pattern in the syntax of {@link java.nio.file.FileSystem#getPathMatcher(String)},
+     *             matched against each file's path relative to directory
+     * @return the matching regular files, sorted by path
+     * @throws IOException if the directory tree cannot be read
+     */
+    static List<Path> find(Path directory, String glob) throws IOException {
+        PathMatcher matcher = directory.getFileSystem().getPathMatcher("glob:" + glob);
+        try (Stream<Path> paths = Files.walk(directory)) {
+            return paths
+                    .filter(Files::isRegularFile)
+                    .filter(path -> matcher.matches(directory.relativize(path)))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * Count the word adjacencies of a set of files.
+     *
+     * @param files UTF-8 text files
+     * @param threads number of worker threads, positive
+     * @param progress called on the calling thread after each file is counted
+     * @return the adjacency counts of all the files
+     * @throws IOException if a file cannot be read or is not valid UTF-8
+     */
+    static AdjacencyCounts count(List<Path> files, int threads, Consumer<IngestionProgress> progress)
+            throws IOException {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("thread count must be positive: " + threads);
+        }
+        long[] sizes = new long[files.size()];
+        long totalBytes = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            sizes[i] = Files.size(files.get(i));
+            totalBytes += sizes[i];
+        }
+
+        long start = System.nanoTime();
+        ExecutorService workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "GraphPoet-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            CompletionService<FileCounts> completed = new ExecutorCompletionService<>(workers);
+            int maxInFlight = 2 * threads;
+            int submitted = 0;
+            AdjacencyCounts total = new AdjacencyCounts();
+            long bytesDone = 0;
+            for (int done = 0; done < files.size(); done++) {
+                // Keep the workers busy, but hold only a few per-file counts at a time
+                while (submitted < files.size() && submitted - done < maxInFlight) {
+                    int index = submitted++;
+                    completed.submit(() -> countFile(files.get(index), index));
+                }
+                FileCounts result = take(completed);
+                total = AdjacencyCounts.merge(total, result.counts);
+                bytesDone += sizes[result.index];
+                progress.accept(new IngestionProgress(files.get(result.index), done + 1, files.size(),
+                        bytesDone, totalBytes, System.nanoTime() - start));
+            }
+            return total;
+        } finally {
+            workers.shutdownNow();
+        }
+    }
+
+    /**
+     * @return the next completed result
+     * @throws IOException if its file could not be counted
+     */
+    private static FileCounts take(CompletionService<FileCounts> completed) throws IOException {
+        try {
+            Future<FileCounts> next = completed.take();
+            return next.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while loading corpus");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new AssertionError(cause);
+        }
+    }
+
+    /**
+     * @return the counts of one file, as a text of its own
+     * @throws IOException if the file cannot be read or is not valid UTF-8
+     */
+    private static FileCounts countFile(Path file, int index) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            AdjacencyCounts counts = new AdjacencyCounts();
+            counts.addAll(new MappedWordTokenizer(channel, 0, channel.size()));
+            return new FileCounts(index, counts);
+        }
+    }
+
+    /**
+     * The counts of one file, with the file's index in the list of files.
+     */
+    private static final class FileCounts {
+
+        final int index;
+        final AdjacencyCounts counts;
+
+        FileCounts(int index, AdjacencyCounts counts) {
+            this.index = index;
+            this.counts = counts;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package poet;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the word adjacencies of a UTF-8 corpus file on several threads.
+ *
+ * <p>The file is cut into byte ranges that begin and end at whitespace bytes.
+ * Every whitespace char is a single byte in UTF-8 that never occurs inside a
+ * multi-byte char, so no word and no char is split between two ranges. Each
+ * range is tokenized in place with a {@link MappedWordTokenizer} and counted
+ * into its own {@link AdjacencyCounts} by a fork/join task, and the results
+ * are concatenated pairwise up the task tree, which also counts the
+ * adjacency spanning each pair of neighboring ranges. Each concatenation
+ * merges the edge shards of its two counts in parallel subtasks, so the
+ * merges near the root of the tree do not run on one thread.
+ * The counts are therefore exactly those of reading the file sequentially.
+ *
+ * <p>This class is internal to GraphPoet.
+ */
+final class ParallelCorpusLoader {
+
+    // Smallest range worth a task of its own, in bytes
+    private static final long MIN_CHUNK_SIZE = 1 << 20;
+    // Ranges per worker thread, so that threads that finish early can steal
+    // work; kept small because every extra range costs a merge
+    private static final int CHUNKS_PER_THREAD = 2;
+    // Bytes scanned at a time when looking for whitespace
+    private static final int SCAN_SIZE = 4096;
+
+    private ParallelCorpusLoader() {
+        throw new AssertionError("not instantiable");
+    }
+
+    /**
+     * Count the word adjacencies of a corpus file.
+     *
+     * @param corpus UTF-8 text file
+     * @param pool pool to count on
+     * @return the adjacency counts of the whole file
+     * @throws IOException if the file cannot be read or is not valid UTF-8
+     */
+    static AdjacencyCounts count(Path corpus, ForkJoinPool pool) throws IOException {
+        int parallelism = pool.getParallelism();
+        if (parallelism == 1) {
+            return count(corpus, pool, Long.MAX_VALUE); // Merging would only add work
+        }
+        long fileSize = corpus.toFile().length();
+        long chunkSize = Math.max(MIN_CHUNK_SIZE, fileSize / ((long) parallelism * CHUNKS_PER_THREAD) + 1);
+        return count(corpus, pool, chunkSize);
+    }
+
+    /**
+     * Count the word adjacencies of a corpus file, in ranges of about chunkSize bytes.
+     *
+     * @param corpus UTF-8 text file
+     * @param pool pool to count on
+     * @param chunkSize requested range size in bytes, positive
+     * @return the adjacency counts of the whole file
+     * @throws IOException if the file cannot be read or is not valid UTF-8
+     */
+    static AdjacencyCounts count(Path corpus, ForkJoinPool pool, long chunkSize) throws IOException {
+        try (FileChannel channel = FileChannel.open(corpus, StandardOpenOption.READ)) {
+            long[] boundaries = boundaries(channel, chunkSize);
+            return pool.invoke(new CountTask(channel, boundaries, 0, boundaries.length - 1));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Cut a file into ranges that start and end at whitespace.
+     *
+     * @return offsets b[0] = 0 < b[1] < ... < b[n] = file size, where range i
+     *         is [b[i], b[i + 1]) and every b[i] other than 0 and the file size
+     *         is the offset of a whitespace byte
+     */
+    private static long[] boundaries(FileChannel channel, long chunkSize) throws IOException {
+        long fileSize = channel.size();
+        int chunkCount = (int) Math.max(1, Math.min(Integer.MAX_VALUE - 1, fileSize / chunkSize));
+        long[] boundaries = new long[chunkCount + 1];
+        int count = 1;
+        for (int i = 1; i < chunkCount; i++) {
+            long nominal = fileSize * i / chunkCount;
+            if (nominal <= boundaries[count - 1]) {
+                continue; // Skipped over by a long word
+            }
+            long aligned = nextWhitespace(channel, nominal, fileSize);
+            if (aligned == fileSize) {
+                break;
+            }
+            boundaries[count++] = aligned;
+        }
+        boundaries[count++] = fileSize;
+        return Arrays.copyOf(boundaries, count);
+    }
+
+    /**
+     * @return offset of the first whitespace byte at or after position, or
+     *         fileSize if there is none
+     */
+    private static long nextWhitespace(FileChannel channel, long position, long fileSize) throws IOException {
+        ByteBuffer scan = ByteBuffer.allocate(SCAN_SIZE);
+        while (position < fileSize) {
+            scan.clear();
+            int read = channel.read(scan, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (WordTokenizer.isWordDelimiter((char) scan.get(i))) {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+        return fileSize;
+    }
+
+    /**
+     * Counts ranges first..last of the file, splitting them in halves.
+     */
+    private static final class CountTask extends RecursiveTask<AdjacencyCounts> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient FileChannel channel;
+        private final long[] boundaries;
+        private final int first;
+        private final int last;
+
+        CountTask(FileChannel channel, long[] boundaries, int first, int last) {
+            this.channel = channel;
+            this.boundaries = boundaries;
+            this.first = first;
+            this.last = last;
+        }
+
+        @Override
+        protected AdjacencyCounts compute() {
+            if (last - first == 1) {
+                AdjacencyCounts counts = new AdjacencyCounts();
+                try {
+                    counts.addAll(new MappedWordTokenizer(channel, boundaries[first], boundaries[last]));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return counts;
+            }
+            int middle = (first + last) >>> 1;
+            CountTask later = new CountTask(channel, boundaries, middle, last);
+            later.fork();
+            AdjacencyCounts earlier = new CountTask(channel, boundaries, first, middle).compute();
+            return AdjacencyCounts.concat(earlier, later.join());
+        }
+    }
+}
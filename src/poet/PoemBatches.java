@@ -0,0 +1,158 @@
+package poet;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Generates poems for many inputs on the threads of an executor.
+ *
+ * <p>Inputs are split into chunks of consecutive inputs, and each chunk is
+ * one task, so the per-task overhead is shared by many short inputs. Results
+ * are stored by index, so they come out in input order however the tasks
+ * are scheduled. A stream of inputs is consumed lazily, with a bounded number
+ * of chunks in flight, so it may be unbounded.
+ *
+ * <p>This class is internal to GraphPoet.
+ */
+final class PoemBatches {
+
+    // Inputs per task
+    private static final int CHUNK_SIZE = 64;
+    // Chunks of a stream submitted ahead of the one being consumed
+    private static final int CHUNKS_IN_FLIGHT = 64;
+
+    private PoemBatches() {
+        throw new AssertionError("not instantiable");
+    }
+
+    /**
+     * Generate the poems for a list of inputs.
+     *
+     * @param inputs inputs to generate poems for
+     * @param poet function from an input to its poem, safe to call concurrently
+     * @param executor executor to run the tasks on
+     * @return the poems of inputs, in the same order
+     */
+    static List<String> generate(List<String> inputs, Function<String, String> poet, Executor executor) {
+        String[] poems = new String[inputs.size()];
+        CompletableFuture<?>[] chunks = new CompletableFuture<?>[(inputs.size() + CHUNK_SIZE - 1) / CHUNK_SIZE];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            int from = chunk * CHUNK_SIZE;
+            int to = Math.min(from + CHUNK_SIZE, inputs.size());
+            chunks[chunk] = CompletableFuture.runAsync(() -> {
+                for (int i = from; i < to; i++) {
+                    poems[i] = poet.apply(inputs.get(i));
+                }
+            }, executor);
+        }
+        join(CompletableFuture.allOf(chunks));
+        return Arrays.asList(poems);
+    }
+
+    /**
+     * Generate the poems for a stream of inputs, lazily.
+     *
+     * @param inputs inputs to generate poems for; closed when the result is closed
+     * @param poet function from an input to its poem, safe to call concurrently
+     * @param executor executor to run the tasks on
+     * @return sequential stream of the poems of inputs, in the same order
+     */
+    static Stream<String> generate(Stream<String> inputs, Function<String, String> poet, Executor executor) {
+        Iterator<String> poems = new ChunkIterator(inputs.iterator(), poet, executor);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(poems, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(inputs::close);
+    }
+
+    /**
+     * Wait for a future, rethrowing the exception of a failed task.
+     */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Iterates over the poems of inputs, keeping up to CHUNKS_IN_FLIGHT
+     * chunks submitted ahead of the poem being returned.
+     */
+    private static final class ChunkIterator implements Iterator<String> {
+
+        private final Iterator<String> inputs;
+        private final Function<String, String> poet;
+        private final Executor executor;
+        private final Queue<CompletableFuture<String[]>> inFlight = new ArrayDeque<>();
+        private String[] current = new String[0];
+        private int position = 0;
+
+        ChunkIterator(Iterator<String> inputs, Function<String, String> poet, Executor executor) {
+            this.inputs = inputs;
+            this.poet = poet;
+            this.executor = executor;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (position == current.length) {
+                fill();
+                if (inFlight.isEmpty()) {
+                    return false;
+                }
+                current = join(inFlight.remove());
+                position = 0;
+            }
+            return true;
+        }
+
+        @Override
+        public String next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return current[position++];
+        }
+
+        /**
+         * Submit chunks of the remaining inputs until CHUNKS_IN_FLIGHT are in flight.
+         */
+        private void fill() {
+            while (inFlight.size() < CHUNKS_IN_FLIGHT && inputs.hasNext()) {
+                String[] chunk = new String[CHUNK_SIZE];
+                int length = 0;
+                while (length < CHUNK_SIZE && inputs.hasNext()) {
+                    chunk[length++] = inputs.next();
+                }
+                String[] chunkInputs = Arrays.copyOf(chunk, length);
+                inFlight.add(CompletableFuture.supplyAsync(() -> {
+                    String[] poems = new String[chunkInputs.length];
+                    for (int i = 0; i < poems.length; i++) {
+                        poems[i] = poet.apply(chunkInputs[i]);
+                    }
+                    return poems;
+                }, executor));
+            }
+        }
+    }
+}
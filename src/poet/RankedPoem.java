@@ -0,0 +1,54 @@
+package poet;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * An immutable poem together with the ranked bridge candidates of each pair
+ * of adjacent input words, for choosing other bridges than the poem's.
+ */
+public final class RankedPoem {
+
+    private final String poem;
+    private final List<List<Bridge>> candidates;
+
+    // Abstraction function:
+    //   - Represents poem, generated from an input of candidates.size() + 1
+    //     words (or of no words, if poem is empty), where candidates.get(i)
+    //     are the best bridges between input words i and i + 1, best first.
+    // Representation invariant:
+    //   - each list of candidates is sorted by decreasing weight, then
+    //     increasing word, and holds distinct words.
+    // Safety from rep exposure:
+    //   - poem is immutable; candidates and its lists are unmodifiable, and
+    //     hold immutable Bridges.
+
+    RankedPoem(String poem, List<List<Bridge>> candidates) {
+        this.poem = poem;
+        this.candidates = Collections.unmodifiableList(new ArrayList<>(candidates));
+    }
+
+    /**
+     * @return the text of the poem, equal to the one generatePoem() generates
+     *         from the same input
+     */
+    public String text() {
+        return poem;
+    }
+
+    /**
+     * @return one list per pair of adjacent input words, in input order, of
+     *         at most k candidate bridges between them, best first; the first
+     *         candidate, if any, is the bridge inserted in the poem. The
+     *         lists are unmodifiable.
+     */
+    public List<List<Bridge>> candidates() {
+        return candidates;
+    }
+
+    @Override
+    public String toString() {
+        return poem + " " + candidates;
+    }
+}
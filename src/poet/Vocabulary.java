@@ -0,0 +1,412 @@
+package poet;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * A mutable set of words that can be searched with a slice of a char buffer
+ * or of an ASCII byte buffer, so that looking up a word that is already
+ * present allocates nothing. Words are numbered by WordIds in the order they
+ * were added.
+ *
+ * <p>Words are only ever added, so the first n words of a vocabulary never
+ * change. A {@link Snapshot} is an immutable numbering of the words present
+ * when it was taken, which later additions do not change; snapshots may be
+ * read by any number of threads while one thread adds words.
+ *
+ * <p>This class is internal to GraphPoet.
+ */
+final class Vocabulary implements WordIds {
+
+    // Arrays are replaced whole when they grow, after being filled, so a
+    // reader that reads either field sees at least the words of its snapshot
+    private volatile String[] words = new String[16];  // in insertion order
+    private int size = 0;
+    private volatile int[] slots = new int[32];         // open addressing, index into words + 1; 0 = empty
+
+    // Abstraction function:
+    //   - Represents the set words[0..size).
+    // Representation invariant:
+    //   - words[0..size) are distinct and non-null.
+    //   - slots.length is a power of two and at least 2 * size, and linear
+    //     probing from hash(w) finds every word w.
+    // Safety from rep exposure:
+    //   - The arrays are private and never returned; Strings are immutable.
+    // Thread safety argument:
+    //   - Only one thread adds words. A word is added by writing words[id],
+    //     then its slot; old slots and old entries of words are never changed,
+    //     and grown arrays are filled before they are published.
+    //   - A Snapshot of size n was published to its readers after words
+    //     0..n-1 were added, so they see those words and their slots in any
+    //     array they read. Probing skips slots of later ids, which may be
+    //     seen before their words.
+
+    /**
+     * @return number of words in this vocabulary
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return an immutable numbering of the words now in this vocabulary, by
+     *         their ids, unchanged by words added later
+     */
+    Snapshot snapshot() {
+        return new Snapshot(this, size);
+    }
+
+    /**
+     * Find a vocabulary to add words to that numbers its first words like a
+     * numbering. Takes time proportional to the number of words only if it
+     * must copy them.
+     *
+     * @param words a numbering of words
+     * @return the vocabulary of words, if words is a snapshot of all the words
+     *         of its vocabulary; otherwise a new copy of words. The result
+     *         must only be modified by one thread at a time.
+     */
+    static Vocabulary extending(WordIds words) {
+        if (words instanceof Snapshot) {
+            Snapshot snapshot = (Snapshot) words;
+            if (snapshot.size == snapshot.vocabulary.size) {
+                return snapshot.vocabulary;
+            }
+        }
+        return copyOf(words);
+    }
+
+    /**
+     * Find a word given as chars, without creating a String.
+     *
+     * @param chars buffer holding the word
+     * @param length length of the word, at the start of chars
+     * @return the equal word in this vocabulary, or null if there is none
+     */
+    String get(char[] chars, int length) {
+        int id = id(chars, length);
+        return id < 0 ? null : words[id];
+    }
+
+    /**
+     * Find the id of a word given as chars, without creating a String.
+     * Words are numbered 0, 1, 2, ... in the order they were added, and a
+     * copy() keeps the ids of its words.
+     *
+     * @param chars buffer holding the word
+     * @param length length of the word, at the start of chars
+     * @return the id of the equal word in this vocabulary, or -1 if there is none
+     */
+    @Override
+    public int id(char[] chars, int length) {
+        return find(chars, length, size);
+    }
+
+    /**
+     * @param word a word
+     * @return the id of word in this vocabulary, or -1 if it is not present
+     */
+    @Override
+    public int id(String word) {
+        return find(word, size);
+    }
+
+    /**
+     * @param id a word id, 0 <= id < size()
+     * @return the word with that id
+     */
+    @Override
+    public String word(int id) {
+        if (id >= size) {
+            throw new IndexOutOfBoundsException("no word with id " + id);
+        }
+        return words[id];
+    }
+
+    /**
+     * Find a word given as chars, adding it if it is not yet present.
+     * A String is created only the first time a word is added.
+     *
+     * @param chars buffer holding the word
+     * @param length length of the word, at the start of chars
+     * @return the id of the equal word in this vocabulary
+     */
+    int internId(char[] chars, int length) {
+        int[] slots = this.slots;
+        String[] words = this.words;
+        int hash = hash(chars, length);
+        int mask = slots.length - 1;
+        int slot = spread(hash) & mask;
+        while (slots[slot] != 0) {
+            if (matches(words[slots[slot] - 1], hash, chars, length)) {
+                return slots[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return insert(new String(chars, 0, length), slot);
+    }
+
+    /**
+     * Find a word given as ASCII bytes, adding it if it is not yet present.
+     * A String is created only the first time a word is added.
+     *
+     * @param ascii buffer holding the word, one byte in 0..127 per char
+     * @param length length of the word, at the start of ascii
+     * @return the id of the equal word in this vocabulary
+     */
+    int internId(byte[] ascii, int length) {
+        int[] slots = this.slots;
+        String[] words = this.words;
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + ascii[i];
+        }
+        int mask = slots.length - 1;
+        int slot = spread(hash) & mask;
+        while (slots[slot] != 0) {
+            if (matches(words[slots[slot] - 1], hash, ascii, length)) {
+                return slots[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return insert(new String(ascii, 0, length, StandardCharsets.US_ASCII), slot);
+    }
+
+    /**
+     * Find a word, adding it if it is not yet present.
+     *
+     * @param word a word
+     * @return the id of the equal word in this vocabulary
+     */
+    int internId(String word) {
+        int[] slots = this.slots;
+        String[] words = this.words;
+        int mask = slots.length - 1;
+        int slot = spread(word.hashCode()) & mask;
+        while (slots[slot] != 0) {
+            if (words[slots[slot] - 1].equals(word)) {
+                return slots[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return insert(word, slot);
+    }
+
+    /**
+     * Find a word, adding it if it is not yet present.
+     *
+     * @param word a word
+     * @return the equal word in this vocabulary, which is word itself if it was
+     *         not yet present
+     */
+    String intern(String word) {
+        int id = internId(word); // may grow words
+        return words[id];
+    }
+
+    /**
+     * @return a new vocabulary with the same words, in the same order
+     */
+    Vocabulary copy() {
+        Vocabulary copy = new Vocabulary();
+        copy.words = Arrays.copyOf(words, words.length);
+        copy.size = size;
+        copy.slots = slots.clone();
+        return copy;
+    }
+
+    /**
+     * @param words numbered words
+     * @return a new vocabulary with the same words and ids
+     */
+    static Vocabulary copyOf(WordIds words) {
+        if (words instanceof Vocabulary) {
+            return ((Vocabulary) words).copy();
+        }
+        Vocabulary copy = new Vocabulary();
+        for (int id = 0; id < words.size(); id++) {
+            copy.intern(words.word(id));
+        }
+        return copy;
+    }
+
+    /**
+     * Add all words of another vocabulary that are not yet present.
+     *
+     * @param other a vocabulary
+     */
+    void internAll(Vocabulary other) {
+        for (int id = 0; id < other.size; id++) {
+            internId(other.words[id]);
+        }
+    }
+
+    /**
+     * Add a word that is not yet present.
+     *
+     * @param word the word
+     * @param slot the empty slot where word belongs
+     * @return the id of word
+     */
+    private int insert(String word, int slot) {
+        if (size == words.length) {
+            words = Arrays.copyOf(words, size * 2);
+        }
+        words[size] = word;
+        slots[slot] = ++size;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return size - 1;
+    }
+
+    /**
+     * @param limit number of words to search, the first ones added
+     * @return the id of the word among the first limit words, or -1
+     */
+    private int find(char[] chars, int length, int limit) {
+        int[] slots = this.slots;
+        String[] words = this.words;
+        int hash = hash(chars, length);
+        int mask = slots.length - 1;
+        int slot = spread(hash) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            if (entry <= limit && matches(words[entry - 1], hash, chars, length)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * @param limit number of words to search, the first ones added
+     * @return the id of the word among the first limit words, or -1
+     */
+    private int find(String word, int limit) {
+        int[] slots = this.slots;
+        String[] words = this.words;
+        int mask = slots.length - 1;
+        int slot = spread(word.hashCode()) & mask;
+        int entry;
+        while ((entry = slots[slot]) != 0) {
+            if (entry <= limit && words[entry - 1].equals(word)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private static boolean matches(String word, int hash, char[] chars, int length) {
+        if (word.length() != length || word.hashCode() != hash) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != chars[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean matches(String word, int hash, byte[] ascii, int length) {
+        if (word.length() != length || word.hashCode() != hash) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (word.charAt(i) != ascii[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void rehash() {
+        String[] words = this.words;
+        int[] grown = new int[slots.length * 2];
+        int mask = grown.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = spread(words[id].hashCode()) & mask;
+            while (grown[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            grown[slot] = id + 1;
+        }
+        slots = grown;
+    }
+
+    /**
+     * @return the same hash as String.hashCode() of the word, which Strings cache
+     */
+    private static int hash(char[] chars, int length) {
+        int h = 0;
+        for (int i = 0; i < length; i++) {
+            h = 31 * h + chars[i];
+        }
+        return h;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(Arrays.copyOf(words, size));
+    }
+
+    /**
+     * The first words of a vocabulary, numbered as in the vocabulary.
+     * Immutable, since words are only ever added after them.
+     */
+    static final class Snapshot implements WordIds {
+
+        private final Vocabulary vocabulary;
+        private final int size;
+
+        // Abstraction function:
+        //   - Represents the numbering of vocabulary's words 0..size-1.
+        // Representation invariant:
+        //   - size <= vocabulary.size().
+        // Safety from rep exposure:
+        //   - vocabulary is never returned, except to extending(), which only
+        //     adds words after these.
+
+        private Snapshot(Vocabulary vocabulary, int size) {
+            this.vocabulary = vocabulary;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public int id(char[] chars, int length) {
+            return vocabulary.find(chars, length, size);
+        }
+
+        @Override
+        public int id(String word) {
+            return vocabulary.find(word, size);
+        }
+
+        @Override
+        public String word(int id) {
+            if (id >= size) {
+                throw new IndexOutOfBoundsException("no word with id " + id);
+            }
+            return vocabulary.words[id];
+        }
+
+        @Override
+        public String toString() {
+            return Arrays.toString(Arrays.copyOf(vocabulary.words, size));
+        }
+    }
+}
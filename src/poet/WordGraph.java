@@ -0,0 +1,632 @@
+package poet;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import graph.Graph;
+
+/**
+ * An immutable word affinity graph whose vertices are the word ids of a
+ * WordIds numbering, with primitive int edges.
+ *
+ * <p>Edges are kept in compressed sparse row (CSR) form, for both outgoing and
+ * incoming edges, in arrays indexed by word id, so finding a bridge compares
+ * and searches ints only; Strings are needed only to turn input words into ids
+ * and bridge ids back into words. Adding counts with plus() shares the arrays:
+ * the rows it changes are stored as separate sorted arrays in a copy-on-write
+ * overlay of chunks of rows, so each update costs time proportional to the
+ * rows it changes. When the overlay holds as many edges as half the CSR
+ * arrays, everything is compacted into new CSR arrays.
+ *
+ * <p>asGraph() is a read-only {@code Graph<String>} view of the graph, for
+ * code that works on word Strings.
+ *
+ * <p>This class is internal to GraphPoet.
+ */
+final class WordGraph {
+
+    /**
+     * Receives the outgoing edges of a vertex.
+     */
+    interface TargetVisitor {
+        /**
+         * @param target id of the target word
+         * @param weight positive weight of the edge
+         */
+        void target(int target, int weight);
+    }
+
+    // Rows per overlay chunk
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    // Overlays smaller than this many edges are never compacted
+    private static final int MIN_COMPACTION_EDGES = 1 << 16;
+
+    private final WordIds words;
+    private final int vertexCount;
+
+    // CSR rows of vertices 0..baseCount-1: the outgoing edges of vertex i are
+    // targets[offsets[i]..offsets[i + 1]), sorted, with matching weights;
+    // the in* arrays are their transpose
+    private final int baseCount;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final int[] inOffsets;
+    private final int[] inSources;
+    private final int[] inWeights;
+
+    // Overlay rows replacing CSR rows: outRows[v >> CHUNK_BITS][v & (CHUNK_SIZE - 1)]
+    // is null, or holds the d sorted target ids of v followed by their d weights
+    private final int[][][] outRows;
+    private final int[][][] inRows;
+    private final long overlayEdges;
+
+    // Abstraction function:
+    //   - Represents the graph whose vertices are words.word(0..vertexCount), with
+    //     an edge i -> j of weight w for every target j and weight w in the
+    //     overlay row of i in outRows if there is one, else in the CSR row of i
+    //     if i < baseCount; vertices without either have no outgoing edges.
+    // Representation invariant:
+    //   - words.size() == vertexCount, and baseCount <= vertexCount.
+    //   - every row is sorted by strictly increasing ids in 0..vertexCount-1,
+    //     with positive weights.
+    //   - the rows given by inRows and the in* arrays are the exact transpose
+    //     of the rows given by outRows and the out arrays.
+    //   - outRows and inRows have ceil(vertexCount / CHUNK_SIZE) chunks, and
+    //     overlayEdges is at least the number of edges in outRows.
+    // Safety from rep exposure:
+    //   - Arrays are never handed out, and arrays shared with other WordGraphs
+    //     are never modified after construction; asGraph() is a read-only view.
+
+    private WordGraph(WordIds words, int vertexCount, int baseCount,
+            int[] offsets, int[] targets, int[] weights, int[] inOffsets, int[] inSources, int[] inWeights,
+            int[][][] outRows, int[][][] inRows, long overlayEdges) {
+        this.words = words;
+        this.vertexCount = vertexCount;
+        this.baseCount = baseCount;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.weights = weights;
+        this.inOffsets = inOffsets;
+        this.inSources = inSources;
+        this.inWeights = inWeights;
+        this.outRows = outRows;
+        this.inRows = inRows;
+        this.overlayEdges = overlayEdges;
+        assert words.size() == vertexCount && baseCount <= vertexCount;
+    }
+
+    /**
+     * Make a graph from CSR arrays.
+     *
+     * @param words numbering of the vertices; vertex i is words.word(i)
+     * @param offsets words.size() + 1 offsets, starting at 0 and non-decreasing;
+     *                the outgoing edges of vertex i are at indexes
+     *                offsets[i]..offsets[i + 1) of targets and weights
+     * @param targets target id of each edge, strictly increasing within each row
+     * @param weights positive weight of each edge
+     * @return a graph with those edges; the arrays must not be modified afterwards
+     * @throws IllegalArgumentException if the arrays do not describe a graph as above
+     */
+    static WordGraph fromRows(WordIds words, int[] offsets, int[] targets, int[] weights) {
+        int n = words.size();
+        if (offsets.length != n + 1 || offsets[0] != 0
+                || offsets[n] != targets.length || targets.length != weights.length) {
+            throw new IllegalArgumentException("offsets do not match the vertices and edges");
+        }
+        for (int source = 0; source < n; source++) {
+            if (offsets[source] > offsets[source + 1]) {
+                throw new IllegalArgumentException("offsets must be non-decreasing");
+            }
+            for (int k = offsets[source]; k < offsets[source + 1]; k++) {
+                if (targets[k] < 0 || targets[k] >= n
+                        || k > offsets[source] && targets[k] <= targets[k - 1]) {
+                    throw new IllegalArgumentException("targets of vertex " + source + " are not increasing ids");
+                }
+                if (weights[k] <= 0) {
+                    throw new IllegalArgumentException("edge weights must be positive");
+                }
+            }
+        }
+        return build(words, offsets, targets, weights);
+    }
+
+    /**
+     * Copy a graph of words.
+     *
+     * @param graph graph whose vertices all have ids in words
+     * @param words numbering of the vertices
+     * @return a graph with the same edges as graph, and a vertex for every word
+     *         of words
+     */
+    static WordGraph of(Graph<String> graph, WordIds words) {
+        int n = words.size();
+        int[] offsets = new int[n + 1];
+        int[] targets = new int[16];
+        int[] weights = new int[16];
+        int edgeCount = 0;
+        long[] packed = new long[16];
+        for (int source = 0; source < n; source++) {
+            Map<String, Integer> row = graph.targets(words.word(source));
+            if (edgeCount + row.size() > targets.length) {
+                int capacity = Math.max(targets.length * 2, edgeCount + row.size());
+                targets = Arrays.copyOf(targets, capacity);
+                weights = Arrays.copyOf(weights, capacity);
+            }
+            int degree = sortedRow(row, words, packed = ensure(packed, row.size()));
+            for (int i = 0; i < degree; i++) {
+                targets[edgeCount] = (int) (packed[i] >>> 32);
+                weights[edgeCount] = (int) packed[i];
+                edgeCount++;
+            }
+            offsets[source + 1] = edgeCount;
+        }
+        return build(words, offsets, Arrays.copyOf(targets, edgeCount), Arrays.copyOf(weights, edgeCount));
+    }
+
+    /**
+     * @return a graph with the given out-edge CSR arrays, and their transpose
+     */
+    private static WordGraph build(WordIds words, int[] offsets, int[] targets, int[] weights) {
+        int n = words.size();
+        int[] inOffsets = new int[n + 1];
+        int[] inSources = new int[targets.length];
+        int[] inWeights = new int[targets.length];
+        for (int target : targets) {
+            inOffsets[target + 1]++;
+        }
+        for (int i = 0; i < n; i++) {
+            inOffsets[i + 1] += inOffsets[i];
+        }
+        int[] next = Arrays.copyOf(inOffsets, n);
+        for (int source = 0; source < n; source++) {
+            for (int k = offsets[source]; k < offsets[source + 1]; k++) {
+                int position = next[targets[k]]++;
+                inSources[position] = source;
+                inWeights[position] = weights[k];
+            }
+        }
+        return new WordGraph(words, n, n, offsets, targets, weights, inOffsets, inSources, inWeights,
+                new int[chunkCount(n)][][], new int[chunkCount(n)][][], 0);
+    }
+
+    /**
+     * @return the numbering of this graph's vertices
+     */
+    WordIds words() {
+        return words;
+    }
+
+    /**
+     * @return number of vertices, equal to words().size()
+     */
+    int vertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Add counted adjacencies to the edge weights of this graph.
+     *
+     * @param counts graph of adjacency counts to add, whose vertices all have
+     *               ids in newWords
+     * @param newWords numbering of the vertices of the result; must number the
+     *                 words of this graph as words() does, and may add words
+     * @return a graph with the vertices of newWords, whose edge weights are
+     *         the sums of those of this graph and counts
+     * @throws ArithmeticException if an edge weight would overflow an int
+     */
+    WordGraph plus(Graph<String> counts, WordIds newWords) {
+        int n = newWords.size();
+        int[][][] newOutRows = Arrays.copyOf(outRows, chunkCount(n));
+        int[][][] newInRows = Arrays.copyOf(inRows, chunkCount(n));
+        boolean[] outCopied = new boolean[newOutRows.length];
+        boolean[] inCopied = new boolean[newInRows.length];
+        long edges = overlayEdges;
+        long[] packed = new long[16];
+        for (String word : counts.vertices()) {
+            int id = newWords.id(word);
+            Map<String, Integer> added = counts.targets(word);
+            if (!added.isEmpty()) {
+                int[] row = merge(outRow(id), added, newWords, packed = ensure(packed, added.size()));
+                edges += row.length / 2;
+                setRow(newOutRows, outCopied, id, row);
+            }
+            added = counts.sources(word);
+            if (!added.isEmpty()) {
+                setRow(newInRows, inCopied, id, merge(inRow(id), added, newWords, packed = ensure(packed, added.size())));
+            }
+        }
+        WordGraph sum = new WordGraph(newWords, n, baseCount,
+                offsets, targets, weights, inOffsets, inSources, inWeights, newOutRows, newInRows, edges);
+        return edges > Math.max(MIN_COMPACTION_EDGES, targets.length / 2) ? sum.compact() : sum;
+    }
+
+    /**
+     * @return the same graph with every row in new CSR arrays and an empty overlay
+     */
+    private WordGraph compact() {
+        int edgeCount = 0;
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            edgeCount += outRow(vertex).size;
+        }
+        int[] newOffsets = new int[vertexCount + 1];
+        int[] newTargets = new int[edgeCount];
+        int[] newWeights = new int[edgeCount];
+        int edge = 0;
+        for (int vertex = 0; vertex < vertexCount; vertex++) {
+            Row row = outRow(vertex);
+            System.arraycopy(row.ids, row.idStart, newTargets, edge, row.size);
+            System.arraycopy(row.weights, row.weightStart, newWeights, edge, row.size);
+            edge += row.size;
+            newOffsets[vertex + 1] = edge;
+        }
+        return build(words, newOffsets, newTargets, newWeights);
+    }
+
+    /**
+     * Find the best bridge word between two words.
+     *
+     * @param first id of a word
+     * @param second id of a word
+     * @return the id of the word b maximizing the weight of first -> b -> second,
+     *         choosing the least such word in String order if several tie, or
+     *         -1 if there is no such path
+     */
+    int bestBridge(int first, int second) {
+        Row out = outRow(first);
+        Row in = inRow(second);
+        // The bridges are the ids in both rows: scan the shorter, and search the longer
+        Row scanned = out.size <= in.size ? out : in;
+        Row probed = scanned == out ? in : out;
+
+        int bridge = -1;
+        long highestWeight = 0;
+        int low = 0;  // Both rows are sorted, so each search starts after the last match
+        for (int i = 0; i < scanned.size && low < probed.size; i++) {
+            int candidate = scanned.ids[scanned.idStart + i];
+            int position = probed.search(candidate, low);
+            if (position < 0) {
+                low = -position - 1;
+                continue;
+            }
+            low = position + 1;
+            // Sum as long, since two large counts may overflow an int
+            long pathWeight = (long) scanned.weights[scanned.weightStart + i]
+                    + probed.weights[probed.weightStart + position];
+            if (pathWeight > highestWeight || pathWeight == highestWeight
+                    && words.word(candidate).compareTo(words.word(bridge)) < 0) {
+                bridge = candidate;
+                highestWeight = pathWeight;
+            }
+        }
+        return bridge;
+    }
+
+    /**
+     * Offer every bridge word between two words to a heap of candidates.
+     *
+     * @param first id of a word
+     * @param second id of a word
+     * @param heap heap numbered by words(), to offer each word b on a path
+     *             first -> b -> second to, with the weight of that path
+     */
+    void offerBridges(int first, int second, BridgeHeap heap) {
+        Row out = outRow(first);
+        Row in = inRow(second);
+        Row scanned = out.size <= in.size ? out : in;
+        Row probed = scanned == out ? in : out;
+        int low = 0;
+        for (int i = 0; i < scanned.size && low < probed.size; i++) {
+            int candidate = scanned.ids[scanned.idStart + i];
+            int position = probed.search(candidate, low);
+            if (position < 0) {
+                low = -position - 1;
+                continue;
+            }
+            low = position + 1;
+            heap.offer(candidate, (long) scanned.weights[scanned.weightStart + i]
+                    + probed.weights[probed.weightStart + position]);
+        }
+    }
+
+    /**
+     * Pass the outgoing edges of a vertex to a visitor, in increasing order of
+     * target id.
+     *
+     * @param source id of a word
+     * @param visitor receives each edge source -> target
+     */
+    void forEachTarget(int source, TargetVisitor visitor) {
+        Row row = outRow(source);
+        for (int i = 0; i < row.size; i++) {
+            visitor.target(row.ids[row.idStart + i], row.weights[row.weightStart + i]);
+        }
+    }
+
+    /**
+     * @return a read-only view of this graph with word vertices; its mutators
+     *         throw UnsupportedOperationException
+     */
+    Graph<String> asGraph() {
+        return new View();
+    }
+
+    private Row outRow(int vertex) {
+        return row(outRows, vertex, offsets, targets, weights);
+    }
+
+    private Row inRow(int vertex) {
+        return row(inRows, vertex, inOffsets, inSources, inWeights);
+    }
+
+    private Row row(int[][][] overlay, int vertex, int[] rowOffsets, int[] ids, int[] rowWeights) {
+        if (vertex >= vertexCount) {
+            return Row.EMPTY;
+        }
+        int[][] chunk = overlay[vertex >>> CHUNK_BITS];
+        int[] row = chunk == null ? null : chunk[vertex & (CHUNK_SIZE - 1)];
+        if (row != null) {
+            return new Row(row, 0, row, row.length / 2, row.length / 2);
+        }
+        if (vertex >= baseCount) {
+            return Row.EMPTY;
+        }
+        int start = rowOffsets[vertex];
+        return new Row(ids, start, rowWeights, start, rowOffsets[vertex + 1] - start);
+    }
+
+    /**
+     * Replace the overlay row of a vertex, copying its chunk the first time.
+     */
+    private static void setRow(int[][][] overlay, boolean[] copied, int vertex, int[] row) {
+        int chunk = vertex >>> CHUNK_BITS;
+        if (!copied[chunk]) {
+            overlay[chunk] = overlay[chunk] == null ? new int[CHUNK_SIZE][] : overlay[chunk].clone();
+            copied[chunk] = true;
+        }
+        overlay[chunk][vertex & (CHUNK_SIZE - 1)] = row;
+    }
+
+    /**
+     * @return an overlay row with the edges of row plus those of added
+     * @throws ArithmeticException if a weight would overflow an int
+     */
+    private static int[] merge(Row row, Map<String, Integer> added, WordIds words, long[] packed) {
+        int addedCount = sortedRow(added, words, packed);
+        int[] ids = new int[row.size + addedCount];
+        int[] sums = new int[ids.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < row.size || j < addedCount) {
+            int rowId = i < row.size ? row.ids[row.idStart + i] : Integer.MAX_VALUE;
+            int addedId = j < addedCount ? (int) (packed[j] >>> 32) : Integer.MAX_VALUE;
+            if (rowId < addedId) {
+                ids[size] = rowId;
+                sums[size] = row.weights[row.weightStart + i++];
+            } else if (addedId < rowId) {
+                ids[size] = addedId;
+                sums[size] = (int) packed[j++];
+            } else {
+                ids[size] = rowId;
+                sums[size] = Math.addExact(row.weights[row.weightStart + i++], (int) packed[j++]);
+            }
+            size++;
+        }
+        int[] merged = Arrays.copyOf(ids, size * 2);
+        System.arraycopy(sums, 0, merged, size, size);
+        return merged;
+    }
+
+    /**
+     * Put the (id, weight) pairs of a row of word edges, packed into longs,
+     * sorted by id into packed.
+     *
+     * @return number of pairs
+     */
+    private static int sortedRow(Map<String, Integer> row, WordIds words, long[] packed) {
+        int count = 0;
+        for (Map.Entry<String, Integer> edge : row.entrySet()) {
+            packed[count++] = (long) words.id(edge.getKey()) << 32 | edge.getValue();
+        }
+        Arrays.sort(packed, 0, count);
+        return count;
+    }
+
+    private static long[] ensure(long[] array, int length) {
+        return array.length >= length ? array : new long[Math.max(length, array.length * 2)];
+    }
+
+    private static int chunkCount(int vertexCount) {
+        return (vertexCount + CHUNK_SIZE - 1) >>> CHUNK_BITS;
+    }
+
+    /**
+     * One row of edges: ids[idStart..idStart + size) with weights
+     * weights[weightStart..weightStart + size).
+     */
+    private static final class Row {
+
+        static final Row EMPTY = new Row(new int[0], 0, new int[0], 0, 0);
+
+        final int[] ids;
+        final int idStart;
+        final int[] weights;
+        final int weightStart;
+        final int size;
+
+        Row(int[] ids, int idStart, int[] weights, int weightStart, int size) {
+            this.ids = ids;
+            this.idStart = idStart;
+            this.weights = weights;
+            this.weightStart = weightStart;
+            this.size = size;
+        }
+
+        /**
+         * @return the index of id in this row, searching from index from, or
+         *         -(insertion index) - 1 if it is not there
+         */
+        int search(int id, int from) {
+            int position = Arrays.binarySearch(ids, idStart + from, idStart + size, id);
+            return position >= 0 ? position - idStart : position + idStart;
+        }
+    }
+
+    /**
+     * Read-only view of the graph with word vertices.
+     */
+    private final class View implements Graph<String> {
+
+        @Override
+        public boolean add(String vertex) {
+            throw new UnsupportedOperationException("GraphPoet's graph is read-only");
+        }
+
+        @Override
+        public int set(String source, String target, int weight) {
+            throw new UnsupportedOperationException("GraphPoet's graph is read-only");
+        }
+
+        @Override
+        public boolean remove(String vertex) {
+            throw new UnsupportedOperationException("GraphPoet's graph is read-only");
+        }
+
+        @Override
+        public Set<String> vertices() {
+            return new AbstractSet<String>() {
+                @Override
+                public boolean contains(Object label) {
+                    return idOf(label) >= 0;
+                }
+
+                @Override
+                public Iterator<String> iterator() {
+                    return new Iterator<String>() {
+                        private int next = 0;
+
+                        @Override
+                        public boolean hasNext() {
+                            return next < vertexCount;
+                        }
+
+                        @Override
+                        public String next() {
+                            if (!hasNext()) {
+                                throw new NoSuchElementException();
+                            }
+                            return words.word(next++);
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return vertexCount;
+                }
+            };
+        }
+
+        @Override
+        public Map<String, Integer> sources(String target) {
+            int id = idOf(target);
+            return id < 0 ? Collections.emptyMap() : new RowView(inRow(id));
+        }
+
+        @Override
+        public Map<String, Integer> targets(String source) {
+            int id = idOf(source);
+            return id < 0 ? Collections.emptyMap() : new RowView(outRow(id));
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder result = new StringBuilder("{");
+            for (int id = 0; id < vertexCount; id++) {
+                if (id > 0) {
+                    result.append(", ");
+                }
+                result.append(words.word(id)).append('=').append(new RowView(outRow(id)));
+            }
+            return result.append('}').toString();
+        }
+
+        private int idOf(Object label) {
+            return label instanceof String ? words.id((String) label) : -1;
+        }
+
+        /**
+         * Read-only map view of one row.
+         */
+        private final class RowView extends AbstractMap<String, Integer> {
+
+            private final Row row;
+
+            RowView(Row row) {
+                this.row = row;
+            }
+
+            private int find(Object key) {
+                int id = idOf(key);
+                return id < 0 ? -1 : row.search(id, 0);
+            }
+
+            @Override
+            public Integer get(Object key) {
+                int position = find(key);
+                return position < 0 ? null : row.weights[row.weightStart + position];
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return find(key) >= 0;
+            }
+
+            @Override
+            public int size() {
+                return row.size;
+            }
+
+            @Override
+            public Set<Map.Entry<String, Integer>> entrySet() {
+                return new AbstractSet<Map.Entry<String, Integer>>() {
+                    @Override
+                    public Iterator<Map.Entry<String, Integer>> iterator() {
+                        return new Iterator<Map.Entry<String, Integer>>() {
+                            private int next = 0;
+
+                            @Override
+                            public boolean hasNext() {
+                                return next < row.size;
+                            }
+
+                            @Override
+                            public Map.Entry<String, Integer> next() {
+                                if (!hasNext()) {
+                                    throw new NoSuchElementException();
+                                }
+                                Map.Entry<String, Integer> entry = new AbstractMap.SimpleImmutableEntry<>(
+                                        words.word(row.ids[row.idStart + next]),
+                                        row.weights[row.weightStart + next]);
+                                next++;
+                                return entry;
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return row.size;
+                    }
+                };
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+package poet;
+
+/**
+ * A numbering of a fixed set of words as 0, 1, 2, ..., which GraphPoet uses
+ * to refer to the words of its graph by int.
+ *
+ * <p>This interface is internal to GraphPoet.
+ */
+interface WordIds {
+
+    /**
+     * @return number of words, n; the words are numbered 0..n-1
+     */
+    int size();
+
+    /**
+     * Find the id of a word given as chars.
+     *
+     * @param chars buffer holding the word
+     * @param length length of the word, at the start of chars
+     * @return the id of the word, or -1 if it is not one of these words
+     */
+    int id(char[] chars, int length);
+
+    /**
+     * @param word a word
+     * @return the id of word, or -1 if it is not one of these words
+     */
+    int id(String word);
+
+    /**
+     * @param id a word id, 0 <= id < size()
+     * @return the word with that id
+     */
+    String word(int id);
+}
@@ -0,0 +1,232 @@
+package poet;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Splits text into GraphPoet words without regexes or per-word allocation.
+ *
+ * <p>Words are maximal runs of chars that do not match the regex {@code \s}.
+ * After each call to {@link #next()} the current word is available both as
+ * written and case-folded, in buffers that are reused for the next word.
+ * Words are folded exactly as {@link String#toLowerCase()} folds them, but
+ * char by char into the reused buffer; only the rare words whose folding
+ * depends on context or on the locale, such as those with a capital sigma,
+ * are folded through a String.
+ *
+ * <p>This class is internal to GraphPoet.
+ */
+final class WordTokenizer {
+
+    // Number of chars read from a Reader at a time
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Reader reader;      // null when tokenizing text
+    private CharSequence text;        // null when tokenizing reader
+    private final char[] buffer;
+    private int position = 0;
+    private int limit = 0;
+
+    private char[] word = new char[32];
+    private int wordLength = 0;
+    private char[] folded = new char[32];
+    private int foldedLength = 0;
+
+    // Abstraction function:
+    //   - Represents the remaining words of text[position..] (or of
+    //     buffer[position..limit) followed by the rest of reader), where the
+    //     current word is word[0..wordLength) and its folded form is
+    //     folded[0..foldedLength).
+    // Representation invariant:
+    //   - exactly one of reader and text is non-null.
+    //   - 0 <= position <= limit <= buffer.length when reading from reader.
+    //   - word[0..wordLength) contains no delimiters.
+    // Safety from rep exposure:
+    //   - word() and folded() expose the reused buffers, which GraphPoet reads
+    //     only until the next call to next().
+
+    /**
+     * Create a tokenizer over a stream of text. The reader is not closed.
+     *
+     * @param reader source of the text
+     */
+    WordTokenizer(Reader reader) {
+        this.reader = reader;
+        this.text = null;
+        this.buffer = new char[BUFFER_SIZE];
+    }
+
+    /**
+     * Create a tokenizer over in-memory text.
+     *
+     * @param text the text
+     */
+    WordTokenizer(CharSequence text) {
+        this.reader = null;
+        this.text = text;
+        this.buffer = null;
+    }
+
+    /**
+     * Start tokenizing other in-memory text, reusing this tokenizer's buffers.
+     *
+     * @param text the text
+     * @throws IllegalStateException if this tokenizer reads from a Reader
+     */
+    void reset(CharSequence text) {
+        if (reader != null) {
+            throw new IllegalStateException("cannot reset a Reader tokenizer");
+        }
+        this.text = text;
+        position = 0;
+        wordLength = 0;
+        foldedLength = 0;
+    }
+
+    /**
+     * @param c a character
+     * @return true iff c separates words, i.e. it matches the regex {@code \s}
+     */
+    static boolean isWordDelimiter(char c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f' || c == '\u000B';
+    }
+
+    /**
+     * @return the next char of the input, or -1 at its end
+     * @throws IOException if the reader fails
+     */
+    private int read() throws IOException {
+        if (text != null) {
+            return position < text.length() ? text.charAt(position++) : -1;
+        }
+        if (position == limit) {
+            int count = reader.read(buffer, 0, buffer.length);
+            if (count <= 0) {
+                return -1;
+            }
+            position = 0;
+            limit = count;
+        }
+        return buffer[position++];
+    }
+
+    /**
+     * Advance to the next word.
+     *
+     * @return true if there is a next word, false at the end of the input
+     * @throws IOException if the reader fails
+     */
+    boolean next() throws IOException {
+        int c;
+        do {
+            c = read();
+        } while (c != -1 && isWordDelimiter((char) c));
+        if (c == -1) {
+            wordLength = 0;
+            foldedLength = 0;
+            return false;
+        }
+
+        boolean ascii = true;
+        wordLength = 0;
+        do {
+            if (wordLength == word.length) {
+                word = Arrays.copyOf(word, wordLength * 2);
+                folded = Arrays.copyOf(folded, wordLength * 2);
+            }
+            char ch = (char) c;
+            word[wordLength] = ch;
+            if (ch >= 'A' && ch <= 'Z') {
+                ch += 'a' - 'A';
+            } else if (ch >= 0x80) {
+                ascii = false;
+            }
+            folded[wordLength] = ch;
+            wordLength++;
+            c = read();
+        } while (c != -1 && !isWordDelimiter((char) c));
+
+        if (ascii) {
+            foldedLength = wordLength;
+        } else {
+            foldedLength = foldNonAscii(word, wordLength, folded);
+            if (foldedLength < 0) {
+                // Full Unicode folding may change the length, e.g. for dotted capital I
+                String lower = new String(word, 0, wordLength).toLowerCase();
+                foldedLength = lower.length();
+                if (foldedLength > folded.length) {
+                    folded = new char[foldedLength];
+                }
+                lower.getChars(0, foldedLength, folded, 0);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Fold a word to lower case code point by code point, where that gives
+     * the same result as {@link String#toLowerCase()}.
+     *
+     * @param word buffer holding the word
+     * @param length length of the word
+     * @param folded buffer to fold the word into, at least length long
+     * @return the length of the folded word, which is length, or -1 if the
+     *         word must be folded with String.toLowerCase() instead: if it
+     *         has a capital sigma (folded by context) or a dotted capital I
+     *         (folded to two chars), if some code point folds to a different
+     *         number of chars, or if the default locale folds specially
+     */
+    static int foldNonAscii(char[] word, int length, char[] folded) {
+        String language = Locale.getDefault().getLanguage();
+        if (language.equals("tr") || language.equals("az") || language.equals("lt")) {
+            return -1;
+        }
+        int i = 0;
+        while (i < length) {
+            int codePoint = Character.codePointAt(word, i, length);
+            if (codePoint == '\u03A3' || codePoint == '\u0130') {
+                return -1;
+            }
+            int lower = Character.toLowerCase(codePoint);
+            int charCount = Character.charCount(codePoint);
+            if (Character.charCount(lower) != charCount) {
+                return -1;
+            }
+            Character.toChars(lower, folded, i);
+            i += charCount;
+        }
+        return length;
+    }
+
+    /**
+     * @return buffer holding the current word as written; valid until the next
+     *         call to next()
+     */
+    char[] word() {
+        return word;
+    }
+
+    /**
+     * @return length of the current word as written
+     */
+    int wordLength() {
+        return wordLength;
+    }
+
+    /**
+     * @return buffer holding the current word in lower case; valid until the
+     *         next call to next()
+     */
+    char[] folded() {
+        return folded;
+    }
+
+    /**
+     * @return length of the current word in lower case
+     */
+    int foldedLength() {
+        return foldedLength;
+    }
+}
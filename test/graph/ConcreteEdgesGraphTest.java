@@ -5,6 +5,8 @@ package graph;
 
 import static org.junit.Assert.*;
 
+import java.util.Collections;
+
 import org.junit.Test;
 
 /**
@@ -29,17 +31,109 @@ public class ConcreteEdgesGraphTest extends GraphInstanceTest {
      */
     
     // Testing strategy for ConcreteEdgesGraph.toString()
-    //   TODO
+    //   empty graph, graph with an edge
+    //
+    // Testing strategy for ConcreteEdgesGraph.increment()
+    //   new edge, existing edge, result zero removes edge, negative result
+    
+    @Test
+    public void testToStringEmpty() {
+        assertNotNull(emptyInstance().toString());
+    }
+    
+    @Test
+    public void testToStringMentionsEdge() {
+        Graph<String> graph = emptyInstance();
+        graph.set("alpha", "beta", 7);
+        String text = graph.toString();
+        assertTrue(text.contains("alpha"));
+        assertTrue(text.contains("beta"));
+        assertTrue(text.contains("7"));
+    }
+    
+    @Test
+    public void testIncrement() {
+        ConcreteEdgesGraph graph = new ConcreteEdgesGraph();
+        assertEquals(2, graph.increment("a", "b", 2));
+        assertEquals(5, graph.increment("a", "b", 3));
+        assertEquals(Collections.singletonMap("a", 5), graph.sources("b"));
+        assertEquals(0, graph.increment("a", "b", -5));
+        assertEquals(Collections.emptyMap(), graph.targets("a"));
+    }
     
-    // TODO tests for ConcreteEdgesGraph.toString()
+    @Test(expected=IllegalArgumentException.class)
+    public void testIncrementNegative() {
+        ConcreteEdgesGraph graph = new ConcreteEdgesGraph();
+        graph.increment("a", "b", -1);
+    }
+    
+    // Testing strategy for edge list compaction
+    //   removals by set() to 0 and by remove(), enough to compact the list
+    //   (more than 64 tombstones, at least half the list); then sources(),
+    //   targets(), set() and remove() on edges that moved
+    
+    @Test
+    public void testCompaction() {
+        ConcreteEdgesGraph graph = new ConcreteEdgesGraph();
+        for (int i = 0; i < 200; i++) {
+            graph.set("s" + (i % 10), "t" + i, i + 1);
+        }
+        // Tombstone every edge but those of s9, by edge and then by vertex
+        for (int i = 0; i < 200; i++) {
+            if (i % 10 < 5) {
+                assertEquals(i + 1, graph.set("s" + (i % 10), "t" + i, 0));
+            }
+        }
+        for (int source = 5; source < 9; source++) {
+            assertTrue(graph.remove("s" + source));
+        }
+        
+        // The 20 edges of s9 survive compaction, and are still indexed
+        assertEquals(20, graph.targets("s9").size());
+        for (int i = 9; i < 200; i += 10) {
+            assertEquals(Integer.valueOf(i + 1), graph.targets("s9").get("t" + i));
+            assertEquals(Collections.singletonMap("s9", i + 1), graph.sources("t" + i));
+        }
+        int total = 0;
+        for (int weight : graph.targets("s9").values()) {
+            total += weight;
+        }
+        assertEquals(2100, total);
+        assertEquals(Collections.emptyMap(), graph.targets("s0"));
+        assertEquals(Collections.emptyMap(), graph.sources("t0"));
+        
+        assertEquals(10, graph.set("s9", "t9", 7));
+        assertEquals(Integer.valueOf(7), graph.targets("s9").get("t9"));
+        assertEquals(0, graph.set("s0", "t9", 3));
+        assertEquals(2, graph.sources("t9").size());
+        assertTrue(graph.remove("t19"));
+        assertEquals(19, graph.targets("s9").size());
+        assertEquals(200, graph.set("s9", "t199", 0));
+        assertEquals(Collections.emptyMap(), graph.sources("t199"));
+    }
     
     /*
      * Testing Edge...
      */
     
     // Testing strategy for Edge
-    //   TODO
+    //   observers return constructor arguments; withWeight() leaves original unchanged
     
-    // TODO tests for operations of Edge
+    @Test
+    public void testEdgeObservers() {
+        Edge edge = new Edge("a", "b", 3);
+        assertEquals("a", edge.source());
+        assertEquals("b", edge.target());
+        assertEquals(3, edge.weight());
+    }
+    
+    @Test
+    public void testEdgeWithWeight() {
+        Edge edge = new Edge("a", "b", 3);
+        Edge heavier = edge.withWeight(4);
+        assertEquals(4, heavier.weight());
+        assertEquals("b", heavier.target());
+        assertEquals(3, edge.weight());
+    }
     
 }
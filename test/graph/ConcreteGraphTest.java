@@ -0,0 +1,91 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import org.junit.Test;
+
+/**
+ * Tests for ConcreteGraph.
+ *
+ * This class runs the GraphInstanceTest tests against ConcreteGraph, as
+ * well as tests for that particular implementation.
+ *
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class ConcreteGraphTest extends GraphInstanceTest {
+
+    /*
+     * Provide a ConcreteGraph for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return new ConcreteGraph<>();
+    }
+
+    /*
+     * Testing ConcreteGraph...
+     */
+
+    // Testing strategy for ConcreteGraph.removeAll()
+    //   vertices: none given, one, several; all, some or none present
+    //   edges: between two removed vertices, between a removed and a kept
+    //          vertex in either direction, self-loops, between kept vertices
+    //   result: true, false (graph unchanged)
+
+    @Test
+    public void testRemoveAllEmptyCollection() {
+        ConcreteGraph<String> graph = new ConcreteGraph<>();
+        graph.set("a", "b", 1);
+        assertFalse(graph.removeAll(Collections.emptyList()));
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), graph.vertices());
+        assertEquals(Collections.singletonMap("b", 1), graph.targets("a"));
+    }
+
+    @Test
+    public void testRemoveAllAbsent() {
+        ConcreteGraph<String> graph = new ConcreteGraph<>();
+        graph.set("a", "b", 1);
+        assertFalse(graph.removeAll(Arrays.asList("x", "y")));
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), graph.vertices());
+        assertEquals(Collections.singletonMap("a", 1), graph.sources("b"));
+    }
+
+    @Test
+    public void testRemoveAllSharedEdges() {
+        ConcreteGraph<String> graph = new ConcreteGraph<>();
+        graph.set("a", "b", 1);
+        graph.set("b", "a", 2);
+        graph.set("a", "a", 3);
+        graph.set("a", "c", 4);
+        graph.set("d", "b", 5);
+        graph.set("c", "d", 6);
+
+        // a and b share edges in both directions; "x" is absent
+        assertTrue(graph.removeAll(Arrays.asList("a", "b", "x")));
+        assertEquals(new HashSet<>(Arrays.asList("c", "d")), graph.vertices());
+        assertEquals(Collections.singletonMap("d", 6), graph.targets("c"));
+        assertEquals(Collections.emptyMap(), graph.sources("c"));
+        assertEquals(Collections.emptyMap(), graph.targets("d"));
+        assertEquals(Collections.singletonMap("c", 6), graph.sources("d"));
+        assertEquals(Collections.emptyMap(), graph.targets("a"));
+        assertEquals(Collections.emptyMap(), graph.sources("b"));
+
+        // Removed vertices can be added back without their old edges
+        assertTrue(graph.add("a"));
+        assertEquals(Collections.emptyMap(), graph.targets("a"));
+        assertEquals(0, graph.set("a", "c", 7));
+        assertEquals(Collections.singletonMap("a", 7), graph.sources("c"));
+    }
+
+    @Test
+    public void testRemoveAllEveryVertex() {
+        ConcreteGraph<String> graph = new ConcreteGraph<>();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 2);
+        assertTrue(graph.removeAll(Arrays.asList("c", "b", "a", "a")));
+        assertEquals(Collections.emptySet(), graph.vertices());
+    }
+}
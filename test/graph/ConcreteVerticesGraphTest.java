@@ -5,6 +5,8 @@ package graph;
 
 import static org.junit.Assert.*;
 
+import java.util.Collections;
+
 import org.junit.Test;
 
 /**
@@ -29,17 +31,67 @@ public class ConcreteVerticesGraphTest extends GraphInstanceTest {
      */
     
     // Testing strategy for ConcreteVerticesGraph.toString()
-    //   TODO
+    //   empty graph, graph with an edge
+    //
+    // Testing strategy for ConcreteVerticesGraph.increment()
+    //   new edge, existing edge, result zero removes edge, negative result
+    
+    @Test
+    public void testToStringEmpty() {
+        assertNotNull(emptyInstance().toString());
+    }
     
-    // TODO tests for ConcreteVerticesGraph.toString()
+    @Test
+    public void testToStringMentionsEdge() {
+        Graph<String> graph = emptyInstance();
+        graph.set("alpha", "beta", 7);
+        String text = graph.toString();
+        assertTrue(text.contains("alpha"));
+        assertTrue(text.contains("beta"));
+        assertTrue(text.contains("7"));
+    }
+    
+    @Test
+    public void testIncrement() {
+        ConcreteVerticesGraph graph = new ConcreteVerticesGraph();
+        assertEquals(2, graph.increment("a", "b", 2));
+        assertEquals(5, graph.increment("a", "b", 3));
+        assertEquals(Collections.singletonMap("a", 5), graph.sources("b"));
+        assertEquals(0, graph.increment("a", "b", -5));
+        assertEquals(Collections.emptyMap(), graph.targets("a"));
+    }
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void testIncrementNegative() {
+        ConcreteVerticesGraph graph = new ConcreteVerticesGraph();
+        graph.increment("a", "b", -1);
+    }
     
     /*
      * Testing Vertex...
      */
     
     // Testing strategy for Vertex
-    //   TODO
+    //   setTarget(): new edge, update, zero removes
+    //   addToTarget(): new edge, existing edge
     
-    // TODO tests for operations of Vertex
+    @Test
+    public void testVertexSetTarget() {
+        Vertex vertex = new Vertex("a");
+        assertEquals("a", vertex.label());
+        assertEquals(0, vertex.setTarget("b", 2));
+        assertEquals(2, vertex.setTarget("b", 3));
+        assertEquals(Collections.singletonMap("b", 3), vertex.targets());
+        assertEquals(3, vertex.setTarget("b", 0));
+        assertEquals(Collections.emptyMap(), vertex.targets());
+    }
+    
+    @Test
+    public void testVertexAddToTarget() {
+        Vertex vertex = new Vertex("a");
+        assertEquals(1, vertex.addToTarget("b", 1));
+        assertEquals(3, vertex.addToTarget("b", 2));
+        assertEquals(Collections.singletonMap("b", 3), vertex.targets());
+    }
     
 }
@@ -0,0 +1,124 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Supplier;
+
+/**
+ * Multi-threaded throughput of ConcurrentGraph against a ConcreteGraph behind
+ * one global lock, from 1 to 64 threads.
+ *
+ * <p>Not a JUnit test: run the main method without -ea. Each thread performs
+ * the same mix of 80% increment() and 20% targets() lookups over skewed
+ * word-like labels; the result is total operations per second.
+ */
+public class ConcurrentGraphBenchmark {
+
+    private static final int VERTICES = 20_000;
+    private static final int OPS_PER_THREAD = 200_000;
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args unused
+     */
+    public static void main(String[] args) throws InterruptedException {
+        List<String> labels = new ArrayList<>();
+        for (int i = 0; i < VERTICES; i++) {
+            labels.add("w" + i);
+        }
+        for (int threads = 1; threads <= 64; threads *= 2) {
+            double locked = run(threads, labels, () -> new GlobalLockGraph(new ConcreteGraph<>()));
+            double striped = run(threads, labels, ConcurrentGraph::new);
+            System.out.printf("%2d threads  global lock %,12.0f ops/s  ConcurrentGraph %,12.0f ops/s%n",
+                    threads, locked, striped);
+        }
+    }
+
+    private static double run(int threadCount, List<String> labels,
+            Supplier<CountingGraph<String>> factory) throws InterruptedException {
+        CountingGraph<String> graph = factory.get();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < threadCount; t++) {
+            final Random random = new Random(t);
+            threads.add(new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                long sink = 0;
+                for (int i = 0; i < OPS_PER_THREAD; i++) {
+                    String source = labels.get(skewed(random));
+                    if (i % 5 == 0) {
+                        sink += graph.targets(source).size();
+                    } else {
+                        graph.increment(source, labels.get(skewed(random)), 1);
+                    }
+                }
+                if (sink == Long.MIN_VALUE) {
+                    System.out.println(sink);
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        return threadCount * (double) OPS_PER_THREAD / seconds;
+    }
+
+    private static int skewed(Random random) {
+        double u = random.nextDouble();
+        return (int) (VERTICES * u * u);
+    }
+
+    /**
+     * A CountingGraph that serializes every operation on one lock, as callers
+     * had to do before ConcurrentGraph.
+     */
+    private static final class GlobalLockGraph implements CountingGraph<String> {
+
+        private final CountingGraph<String> graph;
+
+        GlobalLockGraph(CountingGraph<String> graph) {
+            this.graph = graph;
+        }
+
+        @Override public synchronized boolean add(String vertex) {
+            return graph.add(vertex);
+        }
+
+        @Override public synchronized int set(String source, String target, int weight) {
+            return graph.set(source, target, weight);
+        }
+
+        @Override public synchronized int increment(String source, String target, int delta) {
+            return graph.increment(source, target, delta);
+        }
+
+        @Override public synchronized boolean remove(String vertex) {
+            return graph.remove(vertex);
+        }
+
+        @Override public synchronized java.util.Set<String> vertices() {
+            return new java.util.HashSet<>(graph.vertices());
+        }
+
+        @Override public synchronized java.util.Map<String, Integer> sources(String target) {
+            return new java.util.HashMap<>(graph.sources(target));
+        }
+
+        @Override public synchronized java.util.Map<String, Integer> targets(String source) {
+            return new java.util.HashMap<>(graph.targets(source));
+        }
+    }
+}
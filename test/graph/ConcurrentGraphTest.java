@@ -0,0 +1,148 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Tests for ConcurrentGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against ConcurrentGraph, as
+ * well as tests for that particular implementation.
+ * 
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class ConcurrentGraphTest extends GraphInstanceTest {
+    
+    /*
+     * Provide a ConcurrentGraph for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return new ConcurrentGraph<>();
+    }
+    
+    // Testing strategy for ConcurrentGraph
+    //   constructor: 1 stripe, non-power-of-two stripes, invalid count
+    //   concurrent increment() on shared edges: no lost updates
+    //   concurrent set() and remove() on overlapping vertices: both edge
+    //     directions agree afterwards
+    //   targets() and sources() during concurrent set(): a read never sees
+    //     an older weight than an earlier read in the other direction
+    //   targets() and sources() return snapshots
+    
+    @Test(expected=IllegalArgumentException.class)
+    public void testInvalidStripeCount() {
+        new ConcurrentGraph<String>(0);
+    }
+    
+    @Test
+    public void testConcurrentIncrements() throws InterruptedException {
+        ConcurrentGraph<String> graph = new ConcurrentGraph<>(3);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    graph.increment("w" + (i % 10), "w" + (i % 7), 1);
+                }
+            }));
+        }
+        runAll(threads);
+        int total = 0;
+        for (String vertex : graph.vertices()) {
+            for (int weight : graph.targets(vertex).values()) {
+                total += weight;
+            }
+        }
+        assertEquals(8 * 1000, total);
+        assertEquals(graph.targets("w3").get("w3"), graph.sources("w3").get("w3"));
+    }
+    
+    @Test
+    public void testConcurrentSetAndRemoveAgree() throws InterruptedException {
+        ConcurrentGraph<String> graph = new ConcurrentGraph<>(4);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            final int seed = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 2000; i++) {
+                    String a = "v" + ((i * 7 + seed) % 20);
+                    String b = "v" + ((i * 13 + seed * 3) % 20);
+                    if (i % 5 == 0) {
+                        graph.remove(a);
+                    } else {
+                        graph.set(a, b, i);
+                    }
+                }
+            }));
+        }
+        runAll(threads);
+        for (String vertex : graph.vertices()) {
+            for (Map.Entry<String, Integer> edge : graph.targets(vertex).entrySet()) {
+                assertTrue(graph.vertices().contains(edge.getKey()));
+                assertEquals(edge.getValue(), graph.sources(edge.getKey()).get(vertex));
+            }
+            for (Map.Entry<String, Integer> edge : graph.sources(vertex).entrySet()) {
+                assertEquals(edge.getValue(), graph.targets(edge.getKey()).get(vertex));
+            }
+        }
+    }
+    
+    @Test
+    public void testReadsLinearizable() throws InterruptedException {
+        // a and b are on different stripes, so set() writes them under two locks
+        ConcurrentGraph<String> graph = new ConcurrentGraph<>(64);
+        int writes = 200_000;
+        List<String> violations = new java.util.concurrent.CopyOnWriteArrayList<>();
+        List<Thread> threads = new ArrayList<>();
+        threads.add(new Thread(() -> {
+            for (int weight = 1; weight <= writes; weight++) {
+                graph.set("a", "b", weight);
+            }
+        }));
+        for (int t = 0; t < 2; t++) {
+            final boolean targetsFirst = t == 0;
+            threads.add(new Thread(() -> {
+                int seen = 0;
+                while (seen < writes && violations.isEmpty()) {
+                    // Weights only grow, so a later read must not see a smaller one
+                    int first = weight(targetsFirst ? graph.targets("a").get("b") : graph.sources("b").get("a"));
+                    int second = weight(targetsFirst ? graph.sources("b").get("a") : graph.targets("a").get("b"));
+                    if (second < first) {
+                        violations.add(first + " then " + second);
+                    }
+                    seen = second;
+                }
+            }));
+        }
+        runAll(threads);
+        assertEquals(new ArrayList<String>(), violations);
+    }
+    
+    @Test
+    public void testReadsAreSnapshots() {
+        ConcurrentGraph<String> graph = new ConcurrentGraph<>();
+        graph.set("a", "b", 1);
+        Map<String, Integer> targets = graph.targets("a");
+        graph.set("a", "c", 2);
+        assertEquals(java.util.Collections.singletonMap("b", 1), targets);
+        assertEquals(2, graph.targets("a").size());
+    }
+    
+    private static int weight(Integer weight) {
+        return weight == null ? 0 : weight;
+    }
+    
+    private static void runAll(List<Thread> threads) throws InterruptedException {
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+    }
+    
+}
@@ -0,0 +1,72 @@
+package graph;
+
+import static org.junit.Assert.*;
+import static graph.TestSupport.assertSameGraph;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Tests for CsrGraph.
+ *
+ * CsrGraph is immutable, so it is tested against snapshots of a mutable
+ * ConcreteGraph rather than through GraphInstanceTest.
+ */
+public class CsrGraphTest {
+
+    // Testing strategy
+    //   of(): empty graph, graph with isolated vertices, self-loops, multiple edges
+    //   targets(), sources(): vertex with 0, 1, >1 edges; label not in graph
+    //   mutators: always throw UnsupportedOperationException
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEmptySnapshot() {
+        Graph<String> snapshot = CsrGraph.of(new ConcreteGraph<String>());
+        assertEquals(Collections.emptySet(), snapshot.vertices());
+        assertEquals(Collections.emptyMap(), snapshot.targets("a"));
+    }
+
+    @Test
+    public void testSnapshotMatchesSource() {
+        Graph<String> graph = new ConcreteGraph<>();
+        graph.set("a", "b", 1);
+        graph.set("a", "c", 2);
+        graph.set("c", "a", 3);
+        graph.set("b", "b", 4);
+        graph.add("d");
+
+        Graph<String> snapshot = CsrGraph.of(graph);
+        assertSameGraph(graph, snapshot);
+        assertEquals(Integer.valueOf(2), snapshot.targets("a").get("c"));
+        assertFalse(snapshot.targets("a").containsKey("d"));
+        assertEquals(Collections.emptyMap(), snapshot.sources("e"));
+    }
+
+    @Test
+    public void testSnapshotIndependentOfSource() {
+        Graph<String> graph = new ConcreteGraph<>();
+        graph.set("a", "b", 1);
+        Graph<String> snapshot = CsrGraph.of(graph);
+        graph.set("a", "b", 5);
+        graph.remove("b");
+        assertEquals(Collections.singletonMap("b", 1), snapshot.targets("a"));
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testSetUnsupported() {
+        CsrGraph.of(new ConcreteGraph<String>()).set("a", "b", 1);
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testTargetsReadOnly() {
+        Graph<String> graph = new ConcreteGraph<>();
+        graph.set("a", "b", 1);
+        CsrGraph.of(graph).targets("a").put("c", 2);
+    }
+}
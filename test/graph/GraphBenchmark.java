@@ -0,0 +1,78 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+/**
+ * Rough throughput comparison of the mutable Graph implementations.
+ *
+ * <p>Not a JUnit test: run the main method without -ea, since assertions
+ * enable the O(V + E) rep checks. Numbers are wall-clock milliseconds for
+ * each phase on the same pseudo-random word-like workload.
+ */
+public class GraphBenchmark {
+
+    /**
+     * Run the benchmark.
+     *
+     * @param args optional vertex count and edge count
+     */
+    public static void main(String[] args) {
+        int vertexCount = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int edgeCount = args.length > 1 ? Integer.parseInt(args[1]) : 500_000;
+
+        List<String> labels = new ArrayList<>();
+        for (int i = 0; i < vertexCount; i++) {
+            labels.add("w" + i);
+        }
+        // Skewed endpoints, roughly like word frequencies
+        Random random = new Random(42);
+        int[] sources = new int[edgeCount];
+        int[] targets = new int[edgeCount];
+        for (int i = 0; i < edgeCount; i++) {
+            sources[i] = skewed(random, vertexCount);
+            targets[i] = skewed(random, vertexCount);
+        }
+
+        for (int round = 0; round < 3; round++) {
+            System.out.println("round " + round);
+            run("ConcreteGraph", ConcreteGraph::new, labels, sources, targets);
+            run("PrimitiveGraph", PrimitiveGraph::new, labels, sources, targets);
+            run("ConcreteVerticesGraph", ConcreteVerticesGraph::new, labels, sources, targets);
+            run("ConcreteEdgesGraph", ConcreteEdgesGraph::new, labels, sources, targets);
+        }
+    }
+
+    private static int skewed(Random random, int bound) {
+        double u = random.nextDouble();
+        return (int) (bound * u * u * u);
+    }
+
+    private static void run(String name, Supplier<? extends Graph<String>> factory,
+            List<String> labels, int[] sources, int[] targets) {
+        Graph<String> graph = factory.get();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < sources.length; i++) {
+            CountingGraph.increment(graph, labels.get(sources[i]), labels.get(targets[i]), 1);
+        }
+        long built = System.nanoTime();
+
+        long checksum = 0;
+        for (String label : labels) {
+            checksum += graph.targets(label).size() + graph.sources(label).size();
+        }
+        long queried = System.nanoTime();
+
+        for (int i = 0; i < labels.size(); i += 10) {
+            graph.remove(labels.get(i));
+        }
+        long removed = System.nanoTime();
+
+        System.out.printf("  %-22s increment %6d ms  targets+sources %6d ms  remove %6d ms  (%d)%n",
+                name, (built - start) / 1_000_000, (queried - built) / 1_000_000,
+                (removed - queried) / 1_000_000, checksum);
+    }
+}
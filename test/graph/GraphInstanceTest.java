@@ -5,7 +5,11 @@ package graph;
 
 import static org.junit.Assert.*;
 
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 
 import org.junit.Test;
 
@@ -20,7 +24,11 @@ import org.junit.Test;
 public abstract class GraphInstanceTest {
     
     // Testing strategy
-    //   TODO
+    //   add(): new vertex, existing vertex
+    //   set(): new edge, update edge, weight 0 removes edge, weight 0 on
+    //          missing edge, adds missing vertices, self-loop
+    //   remove(): missing vertex, vertex with incoming and outgoing edges
+    //   sources(), targets(): label not in graph, vertex with 0, >1 edges
     
     /**
      * Overridden by implementation-specific test classes.
@@ -41,6 +49,79 @@ public abstract class GraphInstanceTest {
                 Collections.emptySet(), emptyInstance().vertices());
     }
     
-    // TODO other tests for instance methods of Graph
+    @Test
+    public void testAddVertex() {
+        Graph<String> graph = emptyInstance();
+        assertTrue("expected new vertex to be added", graph.add("a"));
+        assertFalse("expected existing vertex not to be added", graph.add("a"));
+        assertEquals(Collections.singleton("a"), graph.vertices());
+    }
+    
+    @Test
+    public void testSetAddsEdgeAndVertices() {
+        Graph<String> graph = emptyInstance();
+        assertEquals(0, graph.set("a", "b", 3));
+        assertEquals(new HashSet<>(Arrays.asList("a", "b")), graph.vertices());
+        assertEquals(Collections.singletonMap("b", 3), graph.targets("a"));
+        assertEquals(Collections.singletonMap("a", 3), graph.sources("b"));
+        assertEquals(Collections.emptyMap(), graph.targets("b"));
+    }
+    
+    @Test
+    public void testSetUpdatesAndRemovesEdge() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 3);
+        assertEquals(3, graph.set("a", "b", 5));
+        assertEquals(Collections.singletonMap("b", 5), graph.targets("a"));
+        assertEquals(5, graph.set("a", "b", 0));
+        assertEquals(Collections.emptyMap(), graph.targets("a"));
+        assertEquals(Collections.emptyMap(), graph.sources("b"));
+        assertEquals("expected vertices to remain",
+                new HashSet<>(Arrays.asList("a", "b")), graph.vertices());
+        assertEquals(0, graph.set("a", "b", 0));
+    }
+    
+    @Test
+    public void testSelfLoop() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "a", 2);
+        assertEquals(Collections.singletonMap("a", 2), graph.targets("a"));
+        assertEquals(Collections.singletonMap("a", 2), graph.sources("a"));
+        assertTrue(graph.remove("a"));
+        assertEquals(Collections.emptySet(), graph.vertices());
+    }
+    
+    @Test
+    public void testRemoveVertexRemovesEdges() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 2);
+        graph.set("c", "b", 3);
+        graph.set("a", "c", 4);
+        assertFalse("expected missing vertex not to be removed", graph.remove("d"));
+        assertTrue(graph.remove("b"));
+        assertEquals(new HashSet<>(Arrays.asList("a", "c")), graph.vertices());
+        assertEquals(Collections.singletonMap("c", 4), graph.targets("a"));
+        assertEquals(Collections.singletonMap("a", 4), graph.sources("c"));
+        assertEquals(Collections.emptyMap(), graph.targets("c"));
+    }
+    
+    @Test
+    public void testMultipleEdges() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+        graph.set("a", "c", 2);
+        graph.set("d", "c", 3);
+        Map<String, Integer> expectedTargets = new HashMap<>();
+        expectedTargets.put("b", 1);
+        expectedTargets.put("c", 2);
+        assertEquals(expectedTargets, graph.targets("a"));
+        Map<String, Integer> expectedSources = new HashMap<>();
+        expectedSources.put("a", 2);
+        expectedSources.put("d", 3);
+        assertEquals(expectedSources, graph.sources("c"));
+        assertEquals(Collections.emptyMap(), graph.sources("e"));
+    }
+    
     
 }
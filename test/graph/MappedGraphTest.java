@@ -0,0 +1,124 @@
+package graph;
+
+import static org.junit.Assert.*;
+import static graph.TestSupport.assertSameGraph;
+import static graph.TestSupport.tempFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Tests for MappedGraph.
+ *
+ * MappedGraph is immutable, so it is tested against files written from a
+ * mutable ConcreteGraph rather than through GraphInstanceTest.
+ */
+public class MappedGraphTest {
+
+    // Testing strategy
+    //   write(), open(): empty graph, isolated vertices, self-loops, non-ASCII
+    //                    labels, many vertices; not a graph file, wrong length
+    //   targets(), sources(): vertex with 0, 1, >1 edges; label not in graph
+    //   indexOf(), label(): first, last, missing label; id out of range
+    //   mutators: always throw UnsupportedOperationException
+
+    @Test(expected=AssertionError.class)
+    public void testAssertionsEnabled() {
+        assert false; // make sure assertions are enabled with VM argument: -ea
+    }
+
+    @Test
+    public void testEmptyGraph() throws IOException {
+        Graph<String> mapped = roundTrip(new ConcreteGraph<String>());
+        assertEquals(Collections.emptySet(), mapped.vertices());
+        assertEquals(Collections.emptyMap(), mapped.targets("a"));
+        assertEquals(Collections.emptyMap(), mapped.sources("a"));
+    }
+
+    @Test
+    public void testMatchesSource() throws IOException {
+        Graph<String> graph = new ConcreteGraph<>();
+        graph.set("a", "b", 1);
+        graph.set("a", "c", 2);
+        graph.set("c", "a", 3);
+        graph.set("b", "b", 4);
+        graph.set("\u00E9t\u00E9", "a", 5);
+        graph.set("z", "\u00E9t\u00E9", 6);
+        graph.add("d");
+
+        MappedGraph mapped = roundTrip(graph);
+        assertSameGraph(graph, mapped);
+        assertEquals(Integer.valueOf(2), mapped.targets("a").get("c"));
+        assertFalse(mapped.targets("a").containsKey("d"));
+        assertFalse(mapped.targets("a").containsKey(42));
+        assertEquals(Collections.emptyMap(), mapped.sources("e"));
+
+        // Vertices are numbered in UTF-8 byte order
+        assertEquals(6, mapped.vertexCount());
+        assertEquals(0, mapped.indexOf("a"));
+        assertEquals("\u00E9t\u00E9", mapped.label(5));
+        assertEquals(-1, mapped.indexOf("e"));
+        assertEquals(-1, mapped.indexOf(""));
+    }
+
+    @Test
+    public void testManyVertices() throws IOException {
+        Random random = new Random(6005);
+        Graph<String> graph = new ConcreteGraph<>();
+        for (int i = 0; i < 2000; i++) {
+            graph.set("w" + random.nextInt(1000), "w" + random.nextInt(1000), 1 + random.nextInt(1000));
+        }
+        assertSameGraph(graph, roundTrip(graph));
+    }
+
+    @Test(expected=IndexOutOfBoundsException.class)
+    public void testLabelOutOfRange() throws IOException {
+        Graph<String> graph = new ConcreteGraph<>();
+        graph.add("a");
+        roundTrip(graph).label(1);
+    }
+
+    @Test
+    public void testNotAGraphFile() throws IOException {
+        Graph<String> graph = new ConcreteGraph<>();
+        graph.set("a", "b", 1);
+        Path file = tempFile("graph", ".gmg");
+        MappedGraph.write(graph, file);
+        byte[] valid = Files.readAllBytes(file);
+
+        byte[][] invalid = { new byte[0], "not a graph file at all".getBytes(),
+                java.util.Arrays.copyOf(valid, valid.length - 1), java.util.Arrays.copyOf(valid, valid.length + 1) };
+        for (byte[] contents : invalid) {
+            Files.write(file, contents);
+            try {
+                MappedGraph.open(file);
+                throw new AssertionError("expected IOException for a " + contents.length + "-byte file");
+            } catch (IOException e) {
+                // expected
+            }
+        }
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testSetUnsupported() throws IOException {
+        roundTrip(new ConcreteGraph<String>()).set("a", "b", 1);
+    }
+
+    @Test(expected=UnsupportedOperationException.class)
+    public void testTargetsReadOnly() throws IOException {
+        Graph<String> graph = new ConcreteGraph<>();
+        graph.set("a", "b", 1);
+        roundTrip(graph).targets("a").put("c", 2);
+    }
+
+    private static MappedGraph roundTrip(Graph<String> graph) throws IOException {
+        Path file = tempFile("graph", ".gmg");
+        MappedGraph.write(graph, file);
+        return MappedGraph.open(file);
+    }
+}
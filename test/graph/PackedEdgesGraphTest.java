@@ -0,0 +1,104 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Tests for ConcreteEdgesGraph in packed mode.
+ * 
+ * This class runs the GraphInstanceTest tests against
+ * ConcreteEdgesGraph.packed(), as well as tests for that particular mode.
+ * 
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class PackedEdgesGraphTest extends GraphInstanceTest {
+    
+    /*
+     * Provide a packed ConcreteEdgesGraph for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return ConcreteEdgesGraph.packed();
+    }
+    
+    // Testing strategy for packed mode
+    //   vertex ids reused after remove(); many edges (row growth);
+    //   set() to 0 at the start, middle and end of a row, then re-adding;
+    //   remove() of a vertex with many edges, a self-loop, and neighbors
+    //   with other edges; increment(); toString() materializes edges
+    
+    @Test
+    public void testReuseRemovedVertexId() {
+        Graph<String> graph = emptyInstance();
+        graph.set("a", "b", 1);
+        graph.set("b", "c", 2);
+        assertTrue(graph.remove("b"));
+        graph.set("d", "a", 3);
+        assertEquals(Collections.singletonMap("d", 3), graph.sources("a"));
+        assertEquals(Collections.emptyMap(), graph.targets("a"));
+        assertEquals(Collections.emptyMap(), graph.sources("c"));
+    }
+    
+    @Test
+    public void testManyEdges() {
+        Graph<String> graph = emptyInstance();
+        for (int i = 0; i < 100; i++) {
+            for (int j = 0; j < 20; j++) {
+                graph.set("v" + i, "v" + j, i + j + 1);
+            }
+        }
+        assertEquals(100, graph.vertices().size());
+        assertEquals(20, graph.targets("v42").size());
+        assertEquals(100, graph.sources("v7").size());
+        assertEquals(Integer.valueOf(50), graph.targets("v42").get("v7"));
+    }
+    
+    @Test
+    public void testRemoveEdgesWithinRow() {
+        Graph<String> graph = emptyInstance();
+        for (int i = 0; i < 10; i++) {
+            graph.set("a", "v" + i, i + 1);
+        }
+        assertEquals(1, graph.set("a", "v0", 0));
+        assertEquals(5, graph.set("a", "v4", 0));
+        assertEquals(10, graph.set("a", "v9", 0));
+        assertEquals(7, graph.targets("a").size());
+        assertEquals(Integer.valueOf(4), graph.targets("a").get("v3"));
+        assertEquals(Integer.valueOf(6), graph.targets("a").get("v5"));
+        assertEquals(Collections.emptyMap(), graph.sources("v4"));
+        assertEquals(0, graph.set("a", "v4", 11));
+        assertEquals(Collections.singletonMap("a", 11), graph.sources("v4"));
+        assertEquals(8, graph.targets("a").size());
+    }
+    
+    @Test
+    public void testRemoveHub() {
+        Graph<String> graph = emptyInstance();
+        for (int i = 0; i < 1000; i++) {
+            graph.set("hub", "v" + i, i + 1);
+            graph.set("v" + i, "hub", i + 1);
+            graph.set("v" + i, "v" + ((i + 1) % 1000), 1);
+        }
+        graph.set("hub", "hub", 5);
+        assertTrue(graph.remove("hub"));
+        assertFalse(graph.vertices().contains("hub"));
+        assertEquals(1000, graph.vertices().size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(Collections.singletonMap("v" + ((i + 1) % 1000), 1), graph.targets("v" + i));
+            assertEquals(Collections.singletonMap("v" + ((i + 999) % 1000), 1), graph.sources("v" + i));
+        }
+        assertEquals(0, graph.set("hub", "v0", 2));
+        assertEquals(Collections.singletonMap("v0", 2), graph.targets("hub"));
+    }
+    
+    @Test
+    public void testIncrementAndToString() {
+        ConcreteEdgesGraph graph = ConcreteEdgesGraph.packed();
+        assertEquals(1, graph.increment("alpha", "beta", 1));
+        assertEquals(3, graph.increment("alpha", "beta", 2));
+        assertTrue(graph.toString().contains("alpha -> beta (3)"));
+    }
+    
+}
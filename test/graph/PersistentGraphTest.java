@@ -0,0 +1,74 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Tests for PersistentGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against PersistentGraph, as
+ * well as tests for that particular implementation.
+ * 
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class PersistentGraphTest extends GraphInstanceTest {
+    
+    /*
+     * Provide a PersistentGraph for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return new PersistentGraph<>();
+    }
+    
+    // Testing strategy for PersistentGraph
+    //   snapshot(): unaffected by later set/remove, mutators throw
+    //   fork(): fork and original evolve independently
+    //   many vertices: trie deeper than one level, labels with equal hashes
+    
+    @Test
+    public void testSnapshotIsolation() {
+        PersistentGraph<String> graph = new PersistentGraph<>();
+        graph.set("a", "b", 1);
+        Graph<String> snapshot = graph.snapshot();
+        graph.set("a", "b", 2);
+        graph.remove("b");
+        assertEquals(Collections.singletonMap("b", 1), snapshot.targets("a"));
+        assertEquals(Collections.singletonMap("a", 1), snapshot.sources("b"));
+        assertEquals(Collections.emptyMap(), graph.targets("a"));
+    }
+    
+    @Test(expected=UnsupportedOperationException.class)
+    public void testSnapshotImmutable() {
+        new PersistentGraph<String>().snapshot().add("a");
+    }
+    
+    @Test
+    public void testForkIndependent() {
+        PersistentGraph<String> graph = new PersistentGraph<>();
+        graph.set("a", "b", 1);
+        PersistentGraph<String> fork = graph.fork();
+        fork.increment("a", "b", 4);
+        graph.set("c", "a", 2);
+        assertEquals(Integer.valueOf(5), fork.targets("a").get("b"));
+        assertEquals(Integer.valueOf(1), graph.targets("a").get("b"));
+        assertFalse(fork.vertices().contains("c"));
+    }
+    
+    @Test
+    public void testManyVerticesWithCollidingHashes() {
+        // "Aa" and "BB" have the same String hash code
+        PersistentGraph<String> graph = new PersistentGraph<>();
+        for (int i = 0; i < 2000; i++) {
+            graph.set("Aa" + i, "BB" + i, i + 1);
+        }
+        assertEquals(4000, graph.vertices().size());
+        assertEquals(Collections.singletonMap("BB1234", 1235), graph.targets("Aa1234"));
+        assertTrue(graph.remove("BB1234"));
+        assertEquals(Collections.emptyMap(), graph.targets("Aa1234"));
+        assertEquals(3999, graph.vertices().size());
+    }
+    
+}
@@ -0,0 +1,68 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+/**
+ * Tests for PrimitiveGraph.
+ * 
+ * This class runs the GraphInstanceTest tests against PrimitiveGraph, as
+ * well as tests for that particular implementation.
+ * 
+ * Tests against the Graph spec should be in GraphInstanceTest.
+ */
+public class PrimitiveGraphTest extends GraphInstanceTest {
+    
+    /*
+     * Provide a PrimitiveGraph for tests in GraphInstanceTest.
+     */
+    @Override public Graph<String> emptyInstance() {
+        return new PrimitiveGraph<>();
+    }
+    
+    // Testing strategy for PrimitiveGraph
+    //   weight(): edge present, edge absent, source absent
+    //   set(): many edges from one vertex (table growth), weight 0 removes
+    //   remove(): vertex with self-loop, incoming and outgoing edges
+    
+    @Test
+    public void testWeight() {
+        PrimitiveGraph<String> graph = new PrimitiveGraph<>();
+        graph.set("a", "b", 3);
+        assertEquals(3, graph.weight("a", "b"));
+        assertEquals(0, graph.weight("b", "a"));
+        assertEquals(0, graph.weight("c", "a"));
+    }
+    
+    @Test
+    public void testSetManyEdges() {
+        PrimitiveGraph<String> graph = new PrimitiveGraph<>();
+        for (int i = 1; i <= 1000; i++) {
+            assertEquals(0, graph.set("hub", "v" + i, i));
+        }
+        for (int i = 1; i <= 1000; i += 2) {
+            assertEquals(i, graph.set("hub", "v" + i, 0));
+        }
+        assertEquals(500, graph.targets("hub").size());
+        for (int i = 2; i <= 1000; i += 2) {
+            assertEquals(Integer.valueOf(i), graph.targets("hub").get("v" + i));
+            assertEquals(Collections.singletonMap("hub", i), graph.sources("v" + i));
+        }
+    }
+    
+    @Test
+    public void testRemoveWithSelfLoop() {
+        PrimitiveGraph<String> graph = new PrimitiveGraph<>();
+        graph.set("a", "a", 1);
+        graph.set("a", "b", 2);
+        graph.set("c", "a", 3);
+        assertTrue(graph.remove("a"));
+        assertEquals(Collections.emptyMap(), graph.sources("b"));
+        assertEquals(Collections.emptyMap(), graph.targets("c"));
+        assertFalse(graph.vertices().contains("a"));
+    }
+    
+}
@@ -0,0 +1,36 @@
+package graph;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Temporary files and graph assertions shared by the tests of package graph.
+ */
+final class TestSupport {
+
+    private TestSupport() {
+    }
+
+    /**
+     * @return a new empty file, deleted when the JVM exits
+     */
+    static Path tempFile(String prefix, String suffix) throws IOException {
+        Path file = Files.createTempFile(prefix, suffix);
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Assert that two graphs have the same vertices and edges.
+     */
+    static <L> void assertSameGraph(Graph<L> expected, Graph<L> actual) {
+        assertEquals(expected.vertices(), actual.vertices());
+        for (L vertex : expected.vertices()) {
+            assertEquals("targets of " + vertex, expected.targets(vertex), actual.targets(vertex));
+            assertEquals("sources of " + vertex, expected.sources(vertex), actual.sources(vertex));
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package poet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+class BridgeCacheTest {
+
+    // Testing strategy:
+    //   - capacity: 0, less than the number of pairs, more
+    //   - get: absent, bridge, NO_BRIDGE; recently used pair under eviction pressure
+    //   - invalidated(), resized(): empty, counts continue
+    //   - GraphPoet: repeated poems hit, learn() empties the cache, capacity 0
+
+    /**
+     * Test hits, misses and bridges, including pairs with no bridge.
+     */
+    @Test
+    void testGetPut() {
+        BridgeCache cache = new BridgeCache(100);
+        assertEquals(BridgeCache.ABSENT, cache.get(1, 2));
+        cache.put(1, 2, 7);
+        cache.put(2, 1, BridgeCache.NO_BRIDGE);
+        assertEquals(7, cache.get(1, 2));
+        assertEquals(BridgeCache.NO_BRIDGE, cache.get(2, 1));
+        assertEquals(BridgeCache.ABSENT, cache.get(1, 3));
+
+        BridgeCacheStats stats = cache.stats();
+        assertEquals(2, stats.hits());
+        assertEquals(2, stats.misses());
+        assertEquals(0, stats.evictions());
+        assertEquals(2, stats.size());
+        assertEquals(0.5, stats.hitRate());
+    }
+
+    /**
+     * Test that the cache stays within its capacity, and keeps recently used pairs.
+     */
+    @Test
+    void testEviction() {
+        BridgeCache cache = new BridgeCache(32);
+        cache.put(0, 0, 42);
+        for (int i = 1; i <= 1000; i++) {
+            assertEquals(42, cache.get(0, 0));
+            cache.put(i, i + 1, i);
+        }
+        BridgeCacheStats stats = cache.stats();
+        assertTrue(stats.size() <= 32, stats.toString());
+        assertEquals(1001 - stats.size(), stats.evictions());
+        assertEquals(1000, cache.get(1000, 1001));
+
+        BridgeCache disabled = new BridgeCache(0);
+        assertFalse(disabled.enabled());
+        disabled.put(1, 2, 3);
+        assertEquals(BridgeCache.ABSENT, disabled.get(1, 2));
+        assertEquals(0, disabled.stats().size());
+        assertThrows(IllegalArgumentException.class, () -> new BridgeCache(-1));
+    }
+
+    /**
+     * Test that a replacement cache is empty but continues the counts.
+     */
+    @Test
+    void testInvalidated() {
+        BridgeCache cache = new BridgeCache(10);
+        cache.put(1, 2, 3);
+        assertEquals(3, cache.get(1, 2));
+
+        BridgeCache next = cache.invalidated();
+        assertEquals(BridgeCache.ABSENT, next.get(1, 2));
+        assertEquals(1, next.stats().hits());
+        assertEquals(1, next.stats().misses());
+        assertEquals(0, next.stats().size());
+        assertEquals(10, next.stats().capacity());
+        assertEquals(20, next.resized(20).stats().capacity());
+    }
+
+    /**
+     * Test that GraphPoet caches bridges, and empties the cache when the graph changes.
+     */
+    @Test
+    void testGraphPoetCache() throws IOException {
+        GraphPoet poetInstance = new GraphPoet(new StringReader("This is a test of the Mugar Omni Theater sound system."));
+        assertEquals("Test of the system.", poetInstance.generatePoem("Test the system."));
+        BridgeCacheStats first = poetInstance.bridgeCacheStats();
+        assertEquals(0, first.hits());
+        assertEquals(2, first.misses());
+        assertEquals(2, first.size());
+
+        assertEquals("Test of the system.", poetInstance.generatePoem("Test the system."));
+        assertEquals(2, poetInstance.bridgeCacheStats().hits());
+
+        poetInstance.learn("test for the test for the");
+        assertEquals(0, poetInstance.bridgeCacheStats().size());
+        assertEquals("Test for the system.", poetInstance.generatePoem("Test the system."));
+        assertEquals(4, poetInstance.bridgeCacheStats().misses());
+
+        poetInstance.setBridgeCacheCapacity(0);
+        assertEquals("Test for the system.", poetInstance.generatePoem("Test the system."));
+        assertEquals(4, poetInstance.bridgeCacheStats().misses());
+        assertEquals(0, poetInstance.bridgeCacheStats().capacity());
+    }
+}
@@ -0,0 +1,68 @@
+package poet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+class BridgeHeapTest {
+
+    // Testing strategy:
+    //   - limit: 0, 1, fewer than the candidates, more, larger than the initial capacity
+    //   - candidates: none, distinct weights, tied weights, offered in any order
+    //   - drain(): empty heap, full heap, heap reused after drain()
+
+    /**
+     * Test that the kept candidates are the best, in order, for random offers.
+     */
+    @Test
+    void testMatchesSort() {
+        Random random = new Random(6005);
+        Vocabulary vocabulary = new Vocabulary();
+        for (int i = 0; i < 200; i++) {
+            vocabulary.intern("w" + i);
+        }
+        for (int limit : new int[] { 0, 1, 3, 16, 50, 500 }) {
+            BridgeHeap heap = new BridgeHeap(vocabulary, limit);
+            for (int round = 0; round < 20; round++) {
+                List<Integer> ids = new ArrayList<>();
+                for (int i = 0; i < 200; i++) {
+                    ids.add(i);
+                }
+                Collections.shuffle(ids, random);
+                List<Bridge> offered = new ArrayList<>();
+                for (int id : ids.subList(0, random.nextInt(200))) {
+                    // Few distinct weights, so that many candidates tie
+                    long weight = 1 + random.nextInt(5);
+                    heap.offer(id, weight);
+                    offered.add(new Bridge(vocabulary.word(id), weight));
+                }
+                offered.sort(Comparator.comparingLong(Bridge::weight).reversed().thenComparing(Bridge::word));
+                List<Bridge> expected = offered.subList(0, Math.min(limit, offered.size()));
+                assertEquals(expected, heap.drain());
+            }
+        }
+    }
+
+    @Test
+    void testEmpty() {
+        BridgeHeap heap = new BridgeHeap(new Vocabulary(), 5);
+        assertEquals(Collections.emptyList(), heap.drain());
+    }
+
+    @Test
+    void testDrainUnmodifiable() {
+        Vocabulary vocabulary = new Vocabulary();
+        vocabulary.intern("a");
+        BridgeHeap heap = new BridgeHeap(vocabulary, 2);
+        heap.offer(0, 3);
+        List<Bridge> ranked = heap.drain();
+        assertEquals("[a=3]", ranked.toString());
+        assertThrows(UnsupportedOperationException.class, () -> ranked.add(new Bridge("b", 1)));
+    }
+}
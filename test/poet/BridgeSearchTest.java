@@ -0,0 +1,123 @@
+package poet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import graph.ConcreteGraph;
+import graph.CsrGraph;
+import graph.Graph;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+class BridgeSearchTest {
+
+    // Testing strategy:
+    //   - smaller side: targets of w1, sources of w2, equal sizes
+    //   - bridges: none, one, several with distinct weights, several tied
+    //   - bridge is w1 or w2 itself (self-loop); w1 or w2 not in the graph
+    //   - graph: mutable ConcreteGraph, frozen CsrGraph
+    //   - weights near Integer.MAX_VALUE
+
+    /**
+     * Test that the best bridge is found whichever side is smaller.
+     */
+    @Test
+    void testBestBridgeEitherSide() {
+        Graph<String> graph = new ConcreteGraph<>();
+        graph.set("w1", "b", 1);
+        graph.set("b", "w2", 5);
+        graph.set("w1", "c", 3);
+        graph.set("c", "w2", 1);
+        assertEquals("b", BridgeSearch.bestBridge(graph, "w1", "w2"));
+
+        // Many more targets of w1 than sources of w2
+        for (int i = 0; i < 50; i++) {
+            graph.set("w1", "x" + i, 1);
+        }
+        assertEquals("b", BridgeSearch.bestBridge(graph, "w1", "w2"));
+        // Many more sources of w2 than targets of w1
+        for (int i = 0; i < 100; i++) {
+            graph.set("y" + i, "w2", 1);
+        }
+        assertEquals("b", BridgeSearch.bestBridge(graph, "w1", "w2"));
+    }
+
+    /**
+     * Test missing words, no bridge, self-loops and ties.
+     */
+    @Test
+    void testEdgeCases() {
+        Graph<String> graph = new ConcreteGraph<>();
+        graph.set("a", "b", 1);
+        assertNull(BridgeSearch.bestBridge(graph, "a", "b"));
+        assertNull(BridgeSearch.bestBridge(graph, "missing", "b"));
+        assertNull(BridgeSearch.bestBridge(graph, "a", "missing"));
+
+        graph.set("a", "a", 4);
+        assertEquals("a", BridgeSearch.bestBridge(graph, "a", "b"));
+
+        graph.set("a", "z", 2);
+        graph.set("z", "c", 2);
+        graph.set("a", "m", 3);
+        graph.set("m", "c", 1);
+        graph.set("a", "q", 1);
+        graph.set("q", "c", 3);
+        assertEquals("m", BridgeSearch.bestBridge(graph, "a", "c"));
+    }
+
+    /**
+     * Test that path weights do not overflow.
+     */
+    @Test
+    void testLargeWeights() {
+        Graph<String> graph = new ConcreteGraph<>();
+        graph.set("a", "big", Integer.MAX_VALUE);
+        graph.set("big", "c", Integer.MAX_VALUE);
+        graph.set("a", "small", 1);
+        graph.set("small", "c", 1);
+        assertEquals("big", BridgeSearch.bestBridge(graph, "a", "c"));
+    }
+
+    /**
+     * Test against the original search over targets of targets, on random graphs.
+     */
+    @Test
+    void testMatchesExhaustiveSearch() {
+        Random random = new Random(6005);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            words.add("w" + i);
+        }
+        Graph<String> graph = new ConcreteGraph<>();
+        for (int i = 0; i < 400; i++) {
+            graph.set(words.get(random.nextInt(40)), words.get(random.nextInt(40)), 1 + random.nextInt(5));
+        }
+        Graph<String> frozen = CsrGraph.of(graph);
+        for (String first : words) {
+            for (String second : words) {
+                String expected = exhaustive(graph, first, second);
+                assertEquals(expected, BridgeSearch.bestBridge(graph, first, second));
+                assertEquals(expected, BridgeSearch.bestBridge(frozen, first, second));
+            }
+        }
+    }
+
+    private static String exhaustive(Graph<String> graph, String first, String second) {
+        String best = null;
+        int bestWeight = 0;
+        for (String bridge : graph.targets(first).keySet()) {
+            Integer weight = graph.targets(bridge).get(second);
+            if (weight == null) {
+                continue;
+            }
+            int pathWeight = graph.targets(first).get(bridge) + weight;
+            if (pathWeight > bestWeight || pathWeight == bestWeight && bridge.compareTo(best) < 0) {
+                best = bridge;
+                bestWeight = pathWeight;
+            }
+        }
+        return best;
+    }
+}
@@ -0,0 +1,209 @@
+package poet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import graph.ConcreteGraph;
+import graph.CsrGraph;
+import graph.Graph;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+class BridgeTableTest {
+
+    // Testing strategy:
+    //   - maxSources: 0, fewer than the words with out-edges, more
+    //   - maxPairs: 0, stops before a row that would exceed it, more than
+    //     every row, out of range; rows in one batch, several batches
+    //   - pairs: bridged, not bridged, first word not covered, first word with no out-edges
+    //   - pool: one thread, several threads
+    //   - graph: Graph<String> with a vocabulary, WordGraph
+    //   - GraphPoet: poems with and without a table, table discarded by learn()
+
+    /**
+     * Test that covered rows match BridgeSearch on random graphs.
+     */
+    @Test
+    void testMatchesBridgeSearch() {
+        Random random = new Random(6005);
+        List<String> words = new ArrayList<>();
+        Vocabulary vocabulary = new Vocabulary();
+        for (int i = 0; i < 60; i++) {
+            words.add("w" + i);
+            vocabulary.intern("w" + i);
+        }
+        Graph<String> graph = new ConcreteGraph<>();
+        for (String word : words) {
+            graph.add(word);
+        }
+        for (int i = 0; i < 500; i++) {
+            graph.set(words.get(random.nextInt(50)), words.get(random.nextInt(60)), 1 + random.nextInt(4));
+        }
+        Graph<String> frozen = CsrGraph.of(graph);
+        WordGraph wordGraph = WordGraph.of(graph, vocabulary);
+
+        for (int parallelism : new int[] { 1, 4 }) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                assertMatchesBridgeSearch(graph, words, vocabulary,
+                        BridgeTable.build(frozen, vocabulary, 1000, BridgeTable.MAX_PAIRS, pool));
+                assertMatchesBridgeSearch(graph, words, vocabulary,
+                        BridgeTable.build(wordGraph, 1000, BridgeTable.MAX_PAIRS, pool));
+            } finally {
+                pool.shutdown();
+            }
+        }
+    }
+
+    private static void assertMatchesBridgeSearch(Graph<String> graph, List<String> words, WordIds vocabulary,
+            BridgeTable table) {
+        int pairs = 0;
+        for (String first : words) {
+            for (String second : words) {
+                String expected = BridgeSearch.bestBridge(graph, first, second);
+                int bridge = table.get(vocabulary.id(first), vocabulary.id(second));
+                if (graph.targets(first).isEmpty()) {
+                    assertEquals(BridgeTable.NOT_COVERED, bridge);
+                } else if (expected == null) {
+                    assertEquals(BridgeTable.NO_BRIDGE, bridge);
+                } else {
+                    assertEquals(expected, vocabulary.word(bridge));
+                    pairs++;
+                }
+            }
+        }
+        assertEquals(pairs, table.size());
+    }
+
+    /**
+     * Test that only the rows of the words with the most adjacencies are computed.
+     */
+    @Test
+    void testMaxSources() {
+        Vocabulary vocabulary = new Vocabulary();
+        Graph<String> graph = new ConcreteGraph<>();
+        for (String word : new String[] { "a", "b", "c", "x" }) {
+            vocabulary.intern(word);
+        }
+        graph.set("a", "x", 1);
+        graph.set("b", "x", 5);
+        graph.set("c", "x", 1);
+        graph.set("c", "a", 2);
+        graph.set("x", "b", 1);
+
+        BridgeTable none = BridgeTable.build(graph, vocabulary, 0, 100, ForkJoinPool.commonPool());
+        assertEquals(0, none.size());
+        assertEquals(BridgeTable.NOT_COVERED, none.get(vocabulary.id("b"), vocabulary.id("b")));
+
+        BridgeTable top = BridgeTable.build(graph, vocabulary, 2, 100, ForkJoinPool.commonPool());
+        assertEquals(vocabulary.id("x"), top.get(vocabulary.id("b"), vocabulary.id("b")));
+        assertEquals(BridgeTable.NO_BRIDGE, top.get(vocabulary.id("b"), vocabulary.id("a")));
+        assertEquals(vocabulary.id("a"), top.get(vocabulary.id("c"), vocabulary.id("x")));
+        assertEquals(BridgeTable.NOT_COVERED, top.get(vocabulary.id("a"), vocabulary.id("b")));
+        assertEquals(BridgeTable.NOT_COVERED, top.get(vocabulary.id("x"), vocabulary.id("x")));
+        assertThrows(IllegalArgumentException.class,
+                () -> BridgeTable.build(graph, vocabulary, -1, 100, ForkJoinPool.commonPool()));
+    }
+
+    /**
+     * Test that rows are added heaviest first up to the first row that would
+     * exceed the budget of pairs.
+     */
+    @Test
+    void testMaxPairs() {
+        Vocabulary vocabulary = new Vocabulary();
+        Graph<String> graph = new ConcreteGraph<>();
+        for (String word : new String[] { "a", "b", "c", "x" }) {
+            vocabulary.intern(word);
+        }
+        // Rows, heaviest first: b with 1 pair, c with 2, then a and x with 1 each
+        graph.set("a", "x", 1);
+        graph.set("b", "x", 5);
+        graph.set("c", "x", 1);
+        graph.set("c", "a", 2);
+        graph.set("x", "b", 1);
+
+        BridgeTable none = BridgeTable.build(graph, vocabulary, 4, 0, ForkJoinPool.commonPool());
+        assertEquals(0, none.size());
+        assertEquals(BridgeTable.NOT_COVERED, none.get(vocabulary.id("b"), vocabulary.id("b")));
+
+        // a's row would fit, but c's row before it does not
+        BridgeTable first = BridgeTable.build(graph, vocabulary, 4, 2, ForkJoinPool.commonPool());
+        assertEquals(1, first.size());
+        assertEquals(vocabulary.id("x"), first.get(vocabulary.id("b"), vocabulary.id("b")));
+        assertEquals(BridgeTable.NOT_COVERED, first.get(vocabulary.id("c"), vocabulary.id("x")));
+        assertEquals(BridgeTable.NOT_COVERED, first.get(vocabulary.id("a"), vocabulary.id("b")));
+
+        BridgeTable all = BridgeTable.build(graph, vocabulary, 4, 5, ForkJoinPool.commonPool());
+        assertEquals(5, all.size());
+        assertEquals(vocabulary.id("x"), all.get(vocabulary.id("a"), vocabulary.id("b")));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> BridgeTable.build(graph, vocabulary, 4, -1, ForkJoinPool.commonPool()));
+        assertThrows(IllegalArgumentException.class,
+                () -> BridgeTable.build(graph, vocabulary, 4, BridgeTable.MAX_PAIRS + 1, ForkJoinPool.commonPool()));
+    }
+
+    /**
+     * Test that a budget over several batches of rows keeps the table a
+     * subset of the full table, covering whole rows.
+     */
+    @Test
+    void testMaxPairsBatches() {
+        Random random = new Random(6005);
+        Vocabulary vocabulary = new Vocabulary();
+        Graph<String> graph = new ConcreteGraph<>();
+        for (int i = 0; i < 200; i++) {
+            graph.add(vocabulary.intern("w" + i));
+        }
+        for (int i = 0; i < 2000; i++) {
+            graph.set("w" + random.nextInt(200), "w" + random.nextInt(200), 1 + random.nextInt(4));
+        }
+        ForkJoinPool pool = new ForkJoinPool(1);
+        try {
+            BridgeTable full = BridgeTable.build(graph, vocabulary, 200, BridgeTable.MAX_PAIRS, pool);
+            BridgeTable half = BridgeTable.build(graph, vocabulary, 200, full.size() / 2, pool);
+            assertTrue(half.size() <= full.size() / 2);
+            assertTrue(half.size() > 0);
+            int pairs = 0;
+            for (int first = 0; first < 200; first++) {
+                for (int second = 0; second < 200; second++) {
+                    int bridge = half.get(first, second);
+                    if (bridge != BridgeTable.NOT_COVERED) {
+                        assertEquals(full.get(first, second), bridge);
+                        pairs += bridge == BridgeTable.NO_BRIDGE ? 0 : 1;
+                    }
+                }
+            }
+            assertEquals(half.size(), pairs);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Test that poems are unchanged by a table, and that learn() discards it.
+     */
+    @Test
+    void testGraphPoetPrecompute() throws IOException {
+        GraphPoet poetInstance = new GraphPoet(new StringReader(
+                "This is a test of the Mugar Omni Theater sound system. a test of the system"));
+        String before = poetInstance.generatePoem("Test the system. This a test, Omni sound");
+
+        assertTrue(poetInstance.precomputeBridges(2, ForkJoinPool.commonPool()) > 0);
+        assertEquals(before, poetInstance.generatePoem("Test the system. This a test, Omni sound"));
+        assertTrue(poetInstance.precomputeBridges(100, ForkJoinPool.commonPool()) > 0);
+        assertEquals(before, poetInstance.generatePoem("Test the system. This a test, Omni sound"));
+        assertEquals("Test of the system.", poetInstance.generatePoem("Test the system."));
+        assertEquals(0, poetInstance.precomputeBridges(100, 0, ForkJoinPool.commonPool()));
+        assertEquals(before, poetInstance.generatePoem("Test the system. This a test, Omni sound"));
+
+        poetInstance.learn("test for the test for the");
+        assertEquals("Test for the system.", poetInstance.generatePoem("Test the system."));
+    }
+}
@@ -0,0 +1,47 @@
+package poet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+class EdgeCountsTest {
+
+    // Testing strategy:
+    //   - edges: none, one, repeated, enough to grow the table several times
+    //   - ids: 0, large, source equal to target
+    //   - count: 1, > 1
+
+    @Test
+    void testEmpty() {
+        EdgeCounts edges = new EdgeCounts();
+        assertEquals(0, edges.size());
+        edges.forEach((source, target, count) -> {
+            throw new AssertionError("unexpected edge " + source + " -> " + target);
+        });
+    }
+
+    /**
+     * Test that the counts match a map, for random edges that grow the table.
+     */
+    @Test
+    void testMatchesMap() {
+        Random random = new Random(6005);
+        EdgeCounts edges = new EdgeCounts();
+        Map<Long, Integer> expected = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            int source = random.nextInt(300);
+            int target = random.nextBoolean() ? source : random.nextInt(300) + Integer.MAX_VALUE - 300;
+            int count = 1 + random.nextInt(3);
+            edges.add(source, target, count);
+            expected.merge((long) source << 32 | target, count, Integer::sum);
+        }
+        assertEquals(expected.size(), edges.size());
+        Map<Long, Integer> actual = new HashMap<>();
+        edges.forEach((source, target, count) -> assertNull(actual.put((long) source << 32 | target, count)));
+        assertEquals(expected, actual);
+    }
+}
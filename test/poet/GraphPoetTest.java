@@ -7,8 +7,13 @@ import graph.Graph;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.io.FilterReader;
 import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.io.StringWriter;
 import java.nio.file.Files;
+import java.util.Collections;
 
 class GraphPoetTest {
 
@@ -31,7 +36,7 @@ class GraphPoetTest {
         String expectedPoem = "Test of the system.";
 
         // Assert that the generated poem matches the expected output
-        assertEquals(expectedPoem, poetInstance.poem(testInput));
+        assertEquals(expectedPoem, poetInstance.generatePoem(testInput));
     }
 
     /**
@@ -53,7 +58,7 @@ class GraphPoetTest {
         String expectedPoem = "Goodbye world.";
 
         // Assert that the output poem matches the input (no changes)
-        assertEquals(expectedPoem, poetInstance.poem(testInput));
+        assertEquals(expectedPoem, poetInstance.generatePoem(testInput));
     }
 
     /**
@@ -74,7 +79,7 @@ class GraphPoetTest {
         String expectedPoem = "";
 
         // Assert that the output poem is empty, as expected
-        assertEquals(expectedPoem, poetInstance.poem(testInput));
+        assertEquals(expectedPoem, poetInstance.generatePoem(testInput));
     }
 
     /**
@@ -106,6 +111,192 @@ class GraphPoetTest {
         assertTrue(stringRepresentation.contains("everyone"), "Graph should include the word 'everyone'.");
     }
 
+    /**
+     * Test that a poet built from a Reader matches one built from a file with the same text.
+     */
+    @Test
+    void testReaderCorpusMatchesFileCorpus() throws IOException {
+        String corpusText = "This is a test of the Mugar Omni Theater sound system.";
+        GraphPoet fromFile = new GraphPoet(createTempCorpus(corpusText));
+        GraphPoet fromReader = new GraphPoet(new StringReader(corpusText));
+
+        assertEquals(fromFile.generatePoem("Test the system."), fromReader.generatePoem("Test the system."));
+        assertEquals(fromFile.toString(), fromReader.toString());
+    }
+
+    /**
+     * Test that words cut off at the end of one read are joined with the rest of the
+     * word from the next read, with any mix of whitespace between words.
+     */
+    @Test
+    void testReaderCorpusWordsSplitAcrossReads() throws IOException {
+        String corpusText = "\n  This is a test\tof the Mugar Omni Theater sound system.  \r\n";
+        // Hand out at most three characters per read() call
+        Reader trickle = new FilterReader(new StringReader(corpusText)) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 3));
+            }
+        };
+        GraphPoet poetInstance = new GraphPoet(trickle);
+
+        assertEquals("Test of the system.", poetInstance.generatePoem("Test the system."));
+        assertEquals("This is a test.", poetInstance.generatePoem("This a test."));
+    }
+
+    /**
+     * Test that input words match corpus words regardless of case, keep their own case
+     * in the poem, and are rejoined with single spaces whatever whitespace separated them.
+     */
+    @Test
+    void testPoemCaseAndWhitespace() throws IOException {
+        GraphPoet poetInstance = new GraphPoet(new StringReader("this IS a TEST of THE system."));
+
+        assertEquals("TEST of tHe System.", poetInstance.generatePoem("  TEST\t\ttHe\n System.  "));
+        assertEquals("", poetInstance.generatePoem(" \n "));
+    }
+
+    /**
+     * Test that words outside ASCII are folded to lower case like String.toLowerCase().
+     */
+    @Test
+    void testPoemNonAsciiCase() throws IOException {
+        GraphPoet poetInstance = new GraphPoet(new StringReader("\u00C9T\u00C9 \u00C0 PARIS, \u00E9t\u00E9 \u00E0 paris, \u00C9t\u00E9"));
+
+        assertEquals("\u00C9t\u00E9 \u00E0 Paris,", poetInstance.generatePoem("\u00C9t\u00E9 Paris,"));
+        assertEquals("paris, \u00E9t\u00E9", poetInstance.generatePoem("paris, \u00E9t\u00E9"));
+    }
+
+    /**
+     * Test that learned text adds to the edge weights, but is not adjacent to earlier text.
+     */
+    @Test
+    void testLearn() throws IOException {
+        GraphPoet poetInstance = new GraphPoet(new StringReader("Test of the system."));
+        assertEquals("test of the", poetInstance.generatePoem("test the"));
+
+        poetInstance.learn("the mugar omni theater");
+        assertEquals("mugar omni theater", poetInstance.generatePoem("mugar theater"));
+        // Joined to the corpus, "system. the mugar" would bridge with "the"
+        assertEquals("system. mugar", poetInstance.generatePoem("system. mugar"));
+
+        // "of" bridges with weight 1 + 1, then "for" with weight 2 + 2
+        poetInstance.learn("TEST for THE");
+        poetInstance.learn(createTempCorpus("test for the").toPath());
+        assertEquals("test for the", poetInstance.generatePoem("test the"));
+        assertTrue(poetInstance.toString().contains("omni"), "Graph should include learned words.");
+    }
+
+    /**
+     * Test that poems generated while another thread is learning use a consistent graph.
+     */
+    @Test
+    void testLearnWhileGenerating() throws Exception {
+        GraphPoet poetInstance = new GraphPoet(new StringReader("a x b a x b"));
+        Thread learner = new Thread(() -> {
+            for (int i = 0; i < 200; i++) {
+                poetInstance.learn("a y b new" + i);
+            }
+        });
+        learner.start();
+        while (learner.isAlive()) {
+            String poem = poetInstance.generatePoem("A B");
+            assertTrue(poem.equals("A x B") || poem.equals("A y B"), poem);
+        }
+        learner.join();
+        assertEquals("A y B", poetInstance.generatePoem("A B"));
+        assertEquals("b new199", poetInstance.generatePoem("b new199"));
+    }
+
+    /**
+     * Test that a poem streamed from a Reader to a Writer matches the poem of the
+     * whole input, including long inputs and words split across reads.
+     */
+    @Test
+    void testStreamingPoem() throws IOException {
+        GraphPoet poetInstance = new GraphPoet(new StringReader("This is a test of the Mugar Omni Theater sound system."));
+
+        StringWriter out = new StringWriter();
+        poetInstance.generatePoem(new StringReader("Test the system."), out);
+        assertEquals("Test of the system.", out.toString());
+        out = new StringWriter();
+        poetInstance.generatePoem(new StringReader(" \n "), out);
+        assertEquals("", out.toString());
+
+        StringBuilder longInput = new StringBuilder();
+        for (int i = 0; i < 20000; i++) {
+            longInput.append(i % 2 == 0 ? "Test\tthe  " : "SYSTEM.\n").append(i % 7 == 0 ? "omni " : "");
+        }
+        Reader trickle = new FilterReader(new StringReader(longInput.toString())) {
+            @Override
+            public int read(char[] buffer, int offset, int length) throws IOException {
+                return super.read(buffer, offset, Math.min(length, 5));
+            }
+        };
+        out = new StringWriter();
+        poetInstance.generatePoem(trickle, out);
+        assertEquals(poetInstance.generatePoem(longInput.toString()), out.toString());
+    }
+
+    /**
+     * Test that a poet serving its graph from a mapped file writes the same poems,
+     * and can learn more text.
+     */
+    @Test
+    void testOpenMapped() throws IOException {
+        GraphPoet poetInstance = new GraphPoet(new StringReader(
+                "This is a test of the Mugar Omni Theater sound system. \u00C9t\u00E9 \u00E0 Paris"));
+        File file = createTempCorpus("");
+        poetInstance.saveMapped(file.toPath());
+
+        GraphPoet mapped = GraphPoet.openMapped(file.toPath());
+        assertEquals("Test of the system.", mapped.generatePoem("Test the system."));
+        assertEquals("\u00C9t\u00E9 \u00E0 Paris", mapped.generatePoem("\u00C9t\u00E9 Paris"));
+        assertEquals("Unknown words stay", mapped.generatePoem("Unknown words stay"));
+        assertTrue(mapped.precomputeBridges(3, java.util.concurrent.ForkJoinPool.commonPool()) > 0);
+        assertEquals("Test of the system.", mapped.generatePoem("Test the system."));
+
+        mapped.learn("test for the test for the");
+        assertEquals("Test for the system.", mapped.generatePoem("Test the system."));
+        assertEquals("\u00C9t\u00E9 \u00E0 Paris", mapped.generatePoem("\u00C9t\u00E9 Paris"));
+    }
+
+    // Test for ranked bridges
+    @Test
+    void testBridges() throws IOException {
+        GraphPoet poetInstance = new GraphPoet(new StringReader("a x b a y b a y b a z b z b c"));
+        assertEquals("[y=4, z=3, x=2]", poetInstance.bridges("A", "b", 5).toString());
+        assertEquals("[y=4, z=3]", poetInstance.bridges("a", "B", 2).toString());
+        assertEquals(Collections.emptyList(), poetInstance.bridges("a", "b", 0));
+        assertEquals(Collections.emptyList(), poetInstance.bridges("b", "a", 3));
+        assertEquals(Collections.emptyList(), poetInstance.bridges("a", "unknown", 3));
+        assertThrows(IllegalArgumentException.class, () -> poetInstance.bridges("a", "b", -1));
+
+        // Learned counts and mapped graphs rank the same way
+        poetInstance.learn("a z b a z b");
+        assertEquals("[z=7, y=4, x=2]", poetInstance.bridges("a", "b", 3).toString());
+        File file = File.createTempFile("graph", ".gmg");
+        file.deleteOnExit();
+        poetInstance.saveMapped(file.toPath());
+        assertEquals("[z=7, y=4]", GraphPoet.openMapped(file.toPath()).bridges("a", "b", 2).toString());
+    }
+
+    // Test for a poem with its ranked bridge candidates
+    @Test
+    void testRankedPoem() throws IOException {
+        GraphPoet poetInstance = new GraphPoet(new StringReader("a x b a y b a y b a z b z b c"));
+        RankedPoem ranked = poetInstance.generateRankedPoem("A b unknown C", 2);
+        assertEquals(poetInstance.generatePoem("A b unknown C"), ranked.text());
+        assertEquals("A y b unknown C", ranked.text());
+        assertEquals("[[y=4, z=3], [], []]", ranked.candidates().toString());
+
+        RankedPoem single = poetInstance.generateRankedPoem("b", 1);
+        assertEquals("b", single.text());
+        assertEquals(Collections.emptyList(), single.candidates());
+        assertEquals(Collections.emptyList(), poetInstance.generateRankedPoem("", 1).candidates());
+        assertThrows(IllegalArgumentException.class, () -> poetInstance.generateRankedPoem("a b", 0));
+    }
+
     /**
      * Helper method to create a temporary corpus file with the provided content.
      * The file is automatically deleted when the JVM exits.
@@ -0,0 +1,117 @@
+package poet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static poet.TestSupport.writeCorpus;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+class MappedWordTokenizerTest {
+
+    // Testing strategy:
+    //   - window size: 1 byte, a few bytes (words and multi-byte chars span
+    //     windows), larger than the file
+    //   - words: ASCII in mixed case, multi-byte UTF-8, malformed UTF-8,
+    //            folded by context (capital sigma), to more chars (dotted capital I),
+    //            supplementary chars
+    //   - range: whole file, part of a file
+
+    private static final String TEXT = "\n The QUICK\tbrown \u00C9T\u00C9 fox\r\n \u65E5\u672C \uD83D\uDE00 Jumps "
+            + "\u039F\u0394\u039F\u03A3 \u0130STANBUL \uD801\uDC00\u00C6 \u00C6\u00D8\u00C5  ";
+
+    /**
+     * Test that every window size gives the same words as the char tokenizer.
+     */
+    @Test
+    void testWindowsMatchCharTokenizer() throws IOException {
+        File corpus = writeCorpus(TEXT.getBytes(StandardCharsets.UTF_8));
+        List<String> expected = new ArrayList<>();
+        WordTokenizer chars = new WordTokenizer(new StringReader(TEXT));
+        while (chars.next()) {
+            expected.add(new String(chars.folded(), 0, chars.foldedLength()));
+        }
+
+        try (FileChannel channel = FileChannel.open(corpus.toPath(), StandardOpenOption.READ)) {
+            for (long windowSize : new long[] { 1, 2, 3, 5, 1 << 20 }) {
+                List<String> actual = words(new MappedWordTokenizer(channel, 0, channel.size(), windowSize));
+                assertEquals(expected, actual, "window size " + windowSize);
+            }
+        }
+    }
+
+    /**
+     * Test that words are folded exactly as String.toLowerCase() folds them.
+     */
+    @Test
+    void testFoldingMatchesToLowerCase() throws IOException {
+        File corpus = writeCorpus(TEXT.getBytes(StandardCharsets.UTF_8));
+        List<String> expected = new ArrayList<>();
+        for (String word : TEXT.trim().split("\\s+")) {
+            expected.add(word.toLowerCase());
+        }
+        try (FileChannel channel = FileChannel.open(corpus.toPath(), StandardOpenOption.READ)) {
+            assertEquals(expected, words(new MappedWordTokenizer(channel, 0, channel.size())));
+        }
+    }
+
+    /**
+     * Test a range that starts and ends inside the file.
+     */
+    @Test
+    void testPartOfFile() throws IOException {
+        File corpus = writeCorpus("skip These words skip".getBytes(StandardCharsets.US_ASCII));
+        try (FileChannel channel = FileChannel.open(corpus.toPath(), StandardOpenOption.READ)) {
+            assertEquals(List.of("these", "words"), words(new MappedWordTokenizer(channel, 4, 16, 3)));
+        }
+    }
+
+    /**
+     * Test that malformed UTF-8 is reported rather than replaced.
+     */
+    @Test
+    void testMalformedUtf8() throws IOException {
+        File corpus = writeCorpus(new byte[] { 'o', 'k', ' ', 'b', (byte) 0xC3, 'a', 'd' });
+        try (FileChannel channel = FileChannel.open(corpus.toPath(), StandardOpenOption.READ)) {
+            MappedWordTokenizer tokenizer = new MappedWordTokenizer(channel, 0, channel.size());
+            assertTrue(tokenizer.next());
+            assertTrue(tokenizer.isAscii());
+            assertTrue(tokenizer.next());
+            assertFalse(tokenizer.isAscii());
+            assertThrows(CharacterCodingException.class, tokenizer::decodeFolded);
+        }
+    }
+
+    /**
+     * Test that a mapped poet is the same as a streamed one.
+     */
+    @Test
+    void testMappedPoetMatchesStreamedPoet() throws IOException {
+        File corpus = writeCorpus("This is a test of the Mugar Omni Theater sound system.".getBytes(StandardCharsets.UTF_8));
+        GraphPoet mapped = GraphPoet.mapped(corpus);
+
+        assertEquals(new GraphPoet(corpus).toString(), mapped.toString());
+        assertEquals("Test of the system.", mapped.generatePoem("Test the system."));
+    }
+
+    private static List<String> words(MappedWordTokenizer tokenizer) throws IOException {
+        List<String> words = new ArrayList<>();
+        while (tokenizer.next()) {
+            if (tokenizer.isAscii()) {
+                words.add(new String(tokenizer.bytes(), 0, tokenizer.length(), StandardCharsets.US_ASCII));
+            } else {
+                tokenizer.decodeFolded();
+                words.add(new String(tokenizer.folded(), 0, tokenizer.foldedLength()));
+            }
+        }
+        return words;
+    }
+}
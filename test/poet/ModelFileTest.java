@@ -0,0 +1,138 @@
+package poet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static poet.TestSupport.tempFile;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+class ModelFileTest {
+
+    // Testing strategy:
+    //   - graph: empty, small, many words and edges spanning several buffers,
+    //            long words, non-ASCII words, large weights, learned text
+    //   - file: valid, wrong magic, wrong version, truncated, corrupted byte, trailing bytes,
+    //           vertex or edge count larger than the file allows, word longer than the file
+
+    /**
+     * Test that a loaded poet writes the same poems and graph as the saved one.
+     */
+    @Test
+    void testSaveLoad() throws IOException {
+        GraphPoet poetInstance = new GraphPoet(new StringReader(
+                "This is a test of the Mugar Omni Theater sound system. \u00C9t\u00E9 \u00E0 Paris"));
+        poetInstance.learn("test for the test for the");
+        Path file = tempFile("model", ".gpm");
+        poetInstance.save(file);
+
+        GraphPoet loaded = GraphPoet.load(file);
+        assertTrue(loaded.toString().contains("omni"), "Graph should include corpus words.");
+        assertEquals("Test for the system.", loaded.generatePoem("Test the system."));
+        assertEquals("\u00E9t\u00E9 \u00E0 paris", loaded.generatePoem("\u00E9t\u00E9 paris"));
+
+        GraphPoet empty = new GraphPoet(new StringReader(""));
+        empty.save(file);
+        assertEquals("a b", GraphPoet.load(file).generatePoem("a b"));
+    }
+
+    /**
+     * Test a graph that spans many buffers, with long words and multi-byte weights.
+     */
+    @Test
+    void testLargeGraph() throws IOException {
+        Random random = new Random(6005);
+        StringBuilder corpus = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            corpus.append('w').append(random.nextInt(5000)).append(' ');
+        }
+        StringBuilder longWord = new StringBuilder();
+        for (int i = 0; i < 100_000; i++) {
+            longWord.append((char) ('a' + i % 26));
+        }
+        corpus.append(longWord).append(" w1 ").append(longWord);
+        for (int i = 0; i < 20_000; i++) {
+            corpus.append(" x y");
+        }
+        GraphPoet poetInstance = new GraphPoet(new StringReader(corpus.toString()));
+        Path file = tempFile("model", ".gpm");
+        poetInstance.save(file);
+
+        GraphPoet loaded = GraphPoet.load(file);
+        StringBuilder input = new StringBuilder("x x y y " + longWord + " " + longWord);
+        for (int i = 0; i < 5000; i++) {
+            input.append(" w").append(i).append(" w").append(random.nextInt(5000));
+        }
+        String expected = poetInstance.generatePoem(input.toString());
+        assertTrue(expected.startsWith("x y x y x y "), expected.substring(0, 20));
+        assertEquals(expected, loaded.generatePoem(input.toString()));
+    }
+
+    /**
+     * Test that files that are not intact model files are rejected.
+     */
+    @Test
+    void testCorruptFiles() throws IOException {
+        GraphPoet poetInstance = new GraphPoet(new StringReader("This is a test of the Mugar Omni Theater sound system."));
+        Path file = tempFile("model", ".gpm");
+        poetInstance.save(file);
+        byte[] valid = Files.readAllBytes(file);
+
+        byte[] magic = valid.clone();
+        magic[0] = 'X';
+        assertRejected(magic);
+        byte[] version = valid.clone();
+        version[7] = 9;
+        assertRejected(version);
+        for (int length : new int[] { 0, 3, 19, valid.length / 2, valid.length - 1 }) {
+            assertRejected(java.util.Arrays.copyOf(valid, length));
+        }
+        for (int i = 20; i < valid.length; i++) {
+            byte[] flipped = valid.clone();
+            flipped[i] ^= 0x10;
+            assertRejected(flipped);
+        }
+        assertRejected(java.util.Arrays.copyOf(valid, valid.length + 1));
+    }
+
+    /**
+     * Test that counts and lengths that would size huge arrays are rejected
+     * before anything is allocated.
+     */
+    @Test
+    void testCorruptCounts() throws IOException {
+        GraphPoet poetInstance = new GraphPoet(new StringReader("This is a test of the Mugar Omni Theater sound system."));
+        Path file = tempFile("model", ".gpm");
+        poetInstance.save(file);
+        byte[] valid = Files.readAllBytes(file);
+
+        for (int vertexCount : new int[] { Integer.MAX_VALUE, valid.length / 2 }) {
+            byte[] vertices = valid.clone();
+            ByteBuffer.wrap(vertices).putInt(8, vertexCount);
+            assertRejected(vertices);
+        }
+        for (long edgeCount : new long[] { Integer.MAX_VALUE - 8, valid.length / 2 }) {
+            byte[] edges = valid.clone();
+            ByteBuffer.wrap(edges).putLong(12, edgeCount);
+            assertRejected(edges);
+        }
+
+        // The first word's one-byte length replaced by the varint of Integer.MAX_VALUE
+        ByteBuffer word = ByteBuffer.allocate(valid.length + 4);
+        word.put(valid, 0, 20);
+        word.put(new byte[] { (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07 });
+        word.put(valid, 21, valid.length - 21);
+        assertRejected(word.array());
+    }
+
+    private static void assertRejected(byte[] contents) throws IOException {
+        Path file = tempFile("model", ".gpm");
+        Files.write(file, contents);
+        assertThrows(IOException.class, () -> GraphPoet.load(file));
+    }
+}
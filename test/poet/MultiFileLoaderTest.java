@@ -0,0 +1,97 @@
+package poet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static poet.TestSupport.write;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+class MultiFileLoaderTest {
+
+    // Testing strategy:
+    //   - files: none, one, several including an empty file and a one-word file
+    //   - threads: one, more than files
+    //   - glob: matches top-level and nested files, excludes some files
+    //   - errors: missing file, non-positive thread count
+
+    /**
+     * Test that words at the end of one file are not adjacent to words at the start of the next.
+     */
+    @Test
+    void testNoAdjacencyAcrossFiles() throws IOException {
+        Path directory = Files.createTempDirectory("corpus");
+        Path first = write(directory.resolve("1.txt"), "this is a");
+        Path second = write(directory.resolve("2.txt"), "test of the system.");
+
+        GraphPoet separate = GraphPoet.fromFiles(List.of(first, second), 2, progress -> { });
+        // With one text "this is a test", "is test" would get the bridge "a"
+        assertEquals("is test", separate.generatePoem("is test"));
+        assertEquals("This is a", separate.generatePoem("This a"));
+        assertEquals("test of the system.", separate.generatePoem("test the system."));
+    }
+
+    /**
+     * Test that counts from several files add up, and that progress is reported once per file.
+     */
+    @Test
+    void testCountsAddUpAndProgress() throws IOException {
+        Path directory = Files.createTempDirectory("corpus");
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < 7; i++) {
+            files.add(write(directory.resolve(i + ".txt"), "a b c a b d"));
+        }
+        files.add(write(directory.resolve("empty.txt"), ""));
+        files.add(write(directory.resolve("one.txt"), "lonely"));
+
+        List<IngestionProgress> reports = new ArrayList<>();
+        AdjacencyCounts counts = MultiFileLoader.count(files, 3, reports::add);
+
+        assertEquals(Integer.valueOf(14), counts.freeze().asGraph().targets("a").get("b"));
+        assertEquals(Integer.valueOf(7), counts.freeze().asGraph().targets("b").get("d"));
+        assertEquals(files.size(), reports.size());
+        long totalBytes = 7 * "a b c a b d".length() + "lonely".length();
+        for (int i = 0; i < reports.size(); i++) {
+            assertEquals(i + 1, reports.get(i).filesDone());
+            assertEquals(files.size(), reports.get(i).fileCount());
+            assertEquals(totalBytes, reports.get(i).totalBytes());
+        }
+        assertEquals(totalBytes, reports.get(reports.size() - 1).bytesDone());
+        assertTrue(reports.get(reports.size() - 1).bytesPerSecond() >= 0);
+    }
+
+    /**
+     * Test finding corpus files with a glob.
+     */
+    @Test
+    void testDirectoryGlob() throws IOException {
+        Path directory = Files.createTempDirectory("corpus");
+        Files.createDirectory(directory.resolve("nested"));
+        Path top = write(directory.resolve("top.txt"), "x");
+        Path nested = write(directory.resolve("nested").resolve("deep.txt"), "y");
+        write(directory.resolve("skip.md"), "z");
+
+        assertEquals(List.of(nested, top), MultiFileLoader.find(directory, "**.txt"));
+        assertEquals(List.of(top), MultiFileLoader.find(directory, "*.txt"));
+
+        GraphPoet poetInstance = GraphPoet.fromDirectory(directory, "**.txt", 1, progress -> { });
+        assertEquals("x y", poetInstance.generatePoem("x y"));
+    }
+
+    /**
+     * Test an empty list of files, a missing file and a bad thread count.
+     */
+    @Test
+    void testEdgeCases() throws IOException {
+        assertEquals("a b", GraphPoet.fromFiles(List.of(), 1, progress -> { throw new AssertionError("no files to report"); }).generatePoem("a b"));
+
+        Path missing = Files.createTempDirectory("corpus").resolve("missing.txt");
+        assertThrows(NoSuchFileException.class, () -> GraphPoet.fromFiles(List.of(missing), 1, progress -> { }));
+        assertThrows(IllegalArgumentException.class, () -> GraphPoet.fromFiles(List.of(), 0, progress -> { }));
+    }
+}
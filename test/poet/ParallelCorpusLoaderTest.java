@@ -0,0 +1,94 @@
+package poet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static poet.TestSupport.assertSameGraph;
+import static poet.TestSupport.writeCorpus;
+
+import graph.Graph;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+class ParallelCorpusLoaderTest {
+
+    // Testing strategy:
+    //   - range size: one range for the whole file, ranges of a few bytes,
+    //     ranges shorter than a word
+    //   - corpus: empty, one word, many words separated by mixed whitespace,
+    //     multi-byte UTF-8 chars near range boundaries
+    //   - pool: one thread, several threads
+
+    private static final String[] WORDS = {
+        "the", "The", "a", "poem", "POEM,", "bridge", "\u00E9t\u00E9", "\u00C9T\u00C9", "\u65E5\u672C", "\uD83D\uDE00",
+    };
+    private static final String[] SPACES = { " ", "  ", "\n", "\t", "\r\n", " \u000B", "\f" };
+
+    /**
+     * Test that counting in ranges of every size gives exactly the sequential counts.
+     */
+    @Test
+    void testRangesMatchSequential() throws IOException {
+        String text = randomCorpus(new Random(6005), 2_000);
+        File corpus = writeCorpus(text);
+        Graph<String> expected = sequential(text);
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (long chunkSize : new long[] { 1, 3, 7, 64, 1000, Long.MAX_VALUE }) {
+                Graph<String> actual = ParallelCorpusLoader.count(corpus.toPath(), pool, chunkSize).freeze().asGraph();
+                assertSameGraph(expected, actual);
+            }
+            assertSameGraph(expected, ParallelCorpusLoader.count(corpus.toPath(), pool).freeze().asGraph());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Test corpora with fewer words than ranges.
+     */
+    @Test
+    void testTinyCorpora() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            for (String text : new String[] { "", "   \n", "alone", " alone ", "two words", "a b a b a" }) {
+                File corpus = writeCorpus(text);
+                assertSameGraph(sequential(text), ParallelCorpusLoader.count(corpus.toPath(), pool, 1).freeze().asGraph());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Test that a poet loaded in parallel writes the same poems as one loaded sequentially.
+     */
+    @Test
+    void testParallelPoetMatchesSequentialPoet() throws IOException {
+        File corpus = writeCorpus(randomCorpus(new Random(42), 500));
+        GraphPoet sequential = new GraphPoet(corpus);
+        GraphPoet parallel = new GraphPoet(corpus, ForkJoinPool.commonPool());
+
+        String input = "The poem a bridge \u00C9t\u00E9 the POEM, \u65E5\u672C a";
+        assertEquals(sequential.generatePoem(input), parallel.generatePoem(input));
+    }
+
+    private static String randomCorpus(Random random, int wordCount) {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < wordCount; i++) {
+            text.append(SPACES[random.nextInt(SPACES.length)]);
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return text.toString();
+    }
+
+    private static Graph<String> sequential(String text) throws IOException {
+        AdjacencyCounts counts = new AdjacencyCounts();
+        counts.addAll(new StringReader(text));
+        return counts.freeze().asGraph();
+    }
+}
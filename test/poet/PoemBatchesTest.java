@@ -0,0 +1,119 @@
+package poet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+class PoemBatchesTest {
+
+    // Testing strategy:
+    //   - inputs: none, fewer than one chunk, many chunks; unbounded stream
+    //   - executor: ForkJoinPool, fixed thread pool, caller's thread
+    //   - a poem fails
+    //   - GraphPoet: batch poems equal single poems, in order
+
+    /**
+     * Test that list results are in input order for any number of inputs.
+     */
+    @Test
+    void testListOrder() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int count : new int[] { 0, 1, 63, 64, 65, 1000 }) {
+                List<String> inputs = numbers(count);
+                List<String> poems = PoemBatches.generate(inputs, input -> "<" + input + ">", pool);
+                assertEquals(count, poems.size());
+                for (int i = 0; i < count; i++) {
+                    assertEquals("<" + i + ">", poems.get(i));
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Test that a stream is consumed lazily and in order, and closes its inputs.
+     */
+    @Test
+    void testStreamLazyAndOrdered() {
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            AtomicBoolean closed = new AtomicBoolean(false);
+            Stream<String> inputs = Stream.iterate(0, i -> i + 1).map(String::valueOf)
+                    .onClose(() -> closed.set(true));
+            try (Stream<String> poems = PoemBatches.generate(inputs, input -> input + "!", executor)) {
+                List<String> first = poems.limit(10_000).collect(Collectors.toList());
+                assertEquals(10_000, first.size());
+                for (int i = 0; i < first.size(); i++) {
+                    assertEquals(i + "!", first.get(i));
+                }
+            }
+            assertTrue(closed.get());
+
+            assertEquals(List.of(), PoemBatches.generate(Stream.<String>empty(), input -> input, Runnable::run)
+                    .collect(Collectors.toList()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Test that the exception of a failed poem is rethrown.
+     */
+    @Test
+    void testFailure() {
+        List<String> inputs = numbers(300);
+        assertThrows(IllegalStateException.class, () -> PoemBatches.generate(inputs, input -> {
+            if (input.equals("200")) {
+                throw new IllegalStateException(input);
+            }
+            return input;
+        }, ForkJoinPool.commonPool()));
+    }
+
+    /**
+     * Test that GraphPoet's batch poems are the poems of each input.
+     */
+    @Test
+    void testGraphPoetBatch() throws IOException {
+        GraphPoet poetInstance = new GraphPoet(new StringReader("This is a test of the Mugar Omni Theater sound system."));
+        List<String> inputs = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            inputs.add(i % 3 == 0 ? "Test the system." : i % 3 == 1 ? "This a test " + i : "");
+        }
+        List<String> expected = new ArrayList<>();
+        for (String input : inputs) {
+            expected.add(poetInstance.generatePoem(input));
+        }
+        assertEquals("Test of the system.", expected.get(0));
+
+        assertEquals(expected, poetInstance.generatePoems(inputs));
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            assertEquals(expected, poetInstance.generatePoems(inputs, executor));
+            assertEquals(expected, poetInstance.generatePoems(inputs.stream(), executor).collect(Collectors.toList()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static List<String> numbers(int count) {
+        List<String> numbers = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            numbers.add(String.valueOf(i));
+        }
+        return numbers;
+    }
+}
@@ -0,0 +1,67 @@
+package poet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import graph.Graph;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Temporary files and graph assertions shared by the tests of package poet.
+ */
+final class TestSupport {
+
+    private TestSupport() {
+    }
+
+    /**
+     * @return a new empty file, deleted when the JVM exits
+     */
+    static Path tempFile(String prefix, String suffix) throws IOException {
+        Path file = Files.createTempFile(prefix, suffix);
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    /**
+     * @return a new temporary corpus file holding bytes, deleted when the JVM exits
+     */
+    static File writeCorpus(byte[] bytes) throws IOException {
+        Path corpus = tempFile("corpus", ".txt");
+        Files.write(corpus, bytes);
+        return corpus.toFile();
+    }
+
+    /**
+     * @return a new temporary corpus file holding text in UTF-8, deleted when the JVM exits
+     */
+    static File writeCorpus(String text) throws IOException {
+        return writeCorpus(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Write text to a file, which is deleted when the JVM exits.
+     *
+     * @return file
+     */
+    static Path write(Path file, String text) throws IOException {
+        Files.writeString(file, text);
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    /**
+     * Assert that two graphs have the same vertices and edges.
+     */
+    static void assertSameGraph(Graph<String> expected, Graph<String> actual) {
+        assertEquals(expected.vertices(), actual.vertices());
+        for (String vertex : expected.vertices()) {
+            assertEquals(expected.targets(vertex), actual.targets(vertex), "targets of " + vertex);
+            assertEquals(expected.sources(vertex), actual.sources(vertex), "sources of " + vertex);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package poet;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+class VocabularyTest {
+
+    // Testing strategy:
+    //   - snapshot: of an empty vocabulary, then words added, including enough to grow the arrays
+    //   - extending(): latest snapshot, older snapshot, a Vocabulary, other WordIds
+    //   - snapshot read by another thread while words are added
+
+    @Test
+    void testSnapshotUnchangedByAdditions() {
+        Vocabulary vocabulary = new Vocabulary();
+        Vocabulary.Snapshot empty = vocabulary.snapshot();
+        vocabulary.intern("a");
+        vocabulary.intern("b");
+        Vocabulary.Snapshot two = vocabulary.snapshot();
+        for (int i = 0; i < 1000; i++) {
+            vocabulary.intern("w" + i);
+        }
+
+        assertEquals(0, empty.size());
+        assertEquals(-1, empty.id("a"));
+        assertEquals(2, two.size());
+        assertEquals(1, two.id("b"));
+        assertEquals(1, two.id(new char[] { 'b' }, 1));
+        assertEquals(-1, two.id("w0"));
+        assertEquals(-1, two.id(new char[] { 'w', '0' }, 2));
+        assertEquals("a", two.word(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> two.word(2));
+        assertEquals("[a, b]", two.toString());
+        assertEquals(2, vocabulary.id("w0"));
+    }
+
+    @Test
+    void testExtending() {
+        Vocabulary vocabulary = new Vocabulary();
+        vocabulary.intern("a");
+        Vocabulary.Snapshot older = vocabulary.snapshot();
+        vocabulary.intern("b");
+        Vocabulary.Snapshot latest = vocabulary.snapshot();
+
+        // Only the latest snapshot is extended in place
+        assertSame(vocabulary, Vocabulary.extending(latest));
+        Vocabulary copy = Vocabulary.extending(older);
+        assertNotSame(vocabulary, copy);
+        assertEquals(1, copy.size());
+        copy.intern("c");
+        assertEquals(-1, vocabulary.id("c"));
+        assertNotSame(vocabulary, Vocabulary.extending(vocabulary));
+        assertEquals(2, Vocabulary.extending(vocabulary).size());
+    }
+
+    /**
+     * Test that a snapshot finds all its words while another thread adds words.
+     */
+    @Test
+    void testSnapshotReadDuringAdditions() throws InterruptedException {
+        Vocabulary vocabulary = new Vocabulary();
+        for (int i = 0; i < 100; i++) {
+            vocabulary.intern("w" + i);
+        }
+        Vocabulary.Snapshot snapshot = vocabulary.snapshot();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            try {
+                for (int round = 0; round < 2000; round++) {
+                    for (int i = 0; i < 100; i++) {
+                        assertEquals(i, snapshot.id("w" + i));
+                        assertEquals("w" + i, snapshot.word(i));
+                    }
+                    assertEquals(-1, snapshot.id("x" + round));
+                }
+            } catch (Throwable t) {
+                failure.set(t);
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 200000; i++) {
+            vocabulary.intern("x" + i);
+        }
+        reader.join();
+        assertNull(failure.get());
+    }
+}
@@ -0,0 +1,171 @@
+package poet;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static poet.TestSupport.assertSameGraph;
+
+import graph.ConcreteGraph;
+import graph.Graph;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.Random;
+
+class WordGraphTest {
+
+    // Testing strategy:
+    //   - of(): empty graph, random graphs, isolated words, self-loops
+    //   - bestBridge(): bridged, not bridged, tied weights, rows of very different lengths
+    //   - plus(): existing and new words, repeated additions sharing rows,
+    //             enough edges to compact, earlier graphs unchanged
+    //   - fromRows(): valid rows, each kind of invalid rows
+    //   - asGraph(): matching vertices, targets and sources; missing words; read-only
+
+    /**
+     * Test that a copied graph has the same edges and bridges as the original.
+     */
+    @Test
+    void testMatchesGraph() {
+        Random random = new Random(6005);
+        Vocabulary vocabulary = new Vocabulary();
+        Graph<String> graph = new ConcreteGraph<>();
+        for (int i = 0; i < 80; i++) {
+            graph.add(vocabulary.intern("w" + i));
+        }
+        for (int i = 0; i < 600; i++) {
+            // Sources are skewed toward a few words, so rows differ a lot in length
+            int source = random.nextInt(1 + random.nextInt(80));
+            graph.set("w" + source, "w" + random.nextInt(80), 1 + random.nextInt(4));
+        }
+        graph.set("w5", "w5", 7);
+
+        WordGraph words = WordGraph.of(graph, vocabulary);
+        assertEquals(80, words.vertexCount());
+        assertSameGraph(graph, words.asGraph());
+        assertSameBridges(graph, words);
+    }
+
+    @Test
+    void testEmptyGraph() {
+        WordGraph empty = WordGraph.of(new ConcreteGraph<>(), new Vocabulary());
+        assertEquals(0, empty.vertexCount());
+        assertEquals(Collections.emptySet(), empty.asGraph().vertices());
+        assertEquals(Collections.emptyMap(), empty.asGraph().targets("a"));
+        assertEquals("{}", empty.asGraph().toString());
+    }
+
+    /**
+     * Test that ties go to the least bridge word, not the least id.
+     */
+    @Test
+    void testTiedBridges() {
+        Vocabulary vocabulary = new Vocabulary();
+        Graph<String> graph = new ConcreteGraph<>();
+        for (String word : new String[] { "a", "z", "m", "c" }) {
+            graph.add(vocabulary.intern(word));
+        }
+        graph.set("a", "z", 2);
+        graph.set("z", "c", 1);
+        graph.set("a", "m", 1);
+        graph.set("m", "c", 2);
+        WordGraph words = WordGraph.of(graph, vocabulary);
+        assertEquals(vocabulary.id("m"), words.bestBridge(vocabulary.id("a"), vocabulary.id("c")));
+        assertEquals(-1, words.bestBridge(vocabulary.id("c"), vocabulary.id("a")));
+    }
+
+    /**
+     * Test that repeated additions, with new words and compaction, match a
+     * mutable graph, and leave earlier graphs unchanged.
+     */
+    @Test
+    void testPlus() {
+        Random random = new Random(6005);
+        Vocabulary vocabulary = new Vocabulary();
+        Graph<String> expected = new ConcreteGraph<>();
+        for (int i = 0; i < 50; i++) {
+            expected.add(vocabulary.intern("w" + i));
+        }
+        expected.set("w0", "w1", 1);
+        WordGraph graph = WordGraph.of(expected, vocabulary);
+        WordGraph first = graph;
+
+        // Later rounds add enough edges to compact the graph
+        for (int round = 0; round < 6; round++) {
+            int wordCount = 50 + 400 * round;
+            Vocabulary newVocabulary = vocabulary.copy();
+            Graph<String> counts = new ConcreteGraph<>();
+            for (int i = 0; i < 100 + 10_000 * round; i++) {
+                String source = newVocabulary.intern("w" + random.nextInt(wordCount));
+                String target = newVocabulary.intern("w" + random.nextInt(wordCount));
+                int weight = 1 + random.nextInt(3);
+                counts.set(source, target, counts.set(source, target, 0) + weight);
+                expected.set(source, target, expected.set(source, target, 0) + weight);
+            }
+            for (int id = vocabulary.size(); id < newVocabulary.size(); id++) {
+                expected.add(newVocabulary.word(id));
+            }
+            graph = graph.plus(counts, newVocabulary);
+            vocabulary = newVocabulary;
+            assertEquals(vocabulary.size(), graph.vertexCount());
+            assertSameGraph(expected, graph.asGraph());
+        }
+        assertSameBridges(expected, graph);
+
+        assertEquals(50, first.vertexCount());
+        assertEquals(Collections.singletonMap("w1", 1), first.asGraph().targets("w0"));
+        assertEquals(Collections.emptyMap(), first.asGraph().targets("w1"));
+    }
+
+    @Test
+    void testFromRows() {
+        Vocabulary vocabulary = new Vocabulary();
+        for (String word : new String[] { "a", "b", "c" }) {
+            vocabulary.intern(word);
+        }
+        WordGraph graph = WordGraph.fromRows(vocabulary,
+                new int[] { 0, 2, 2, 3 }, new int[] { 1, 2, 0 }, new int[] { 4, 5, 6 });
+        assertEquals(Integer.valueOf(5), graph.asGraph().targets("a").get("c"));
+        assertEquals(Collections.singletonMap("c", 6), graph.asGraph().sources("a"));
+        assertEquals(vocabulary.id("a"), graph.bestBridge(vocabulary.id("c"), vocabulary.id("b")));
+        assertEquals("{a={b=4, c=5}, b={}, c={a=6}}", graph.asGraph().toString());
+
+        int[][][] invalid = {
+            { { 0, 2, 2 }, { 1, 2 }, { 1, 1 } },           // too few offsets
+            { { 1, 2, 2, 2 }, { 1, 2 }, { 1, 1 } },        // first offset not 0
+            { { 0, 2, 1, 2 }, { 1, 2 }, { 1, 1 } },        // decreasing offsets
+            { { 0, 2, 2, 2 }, { 1, 3 }, { 1, 1 } },        // target out of range
+            { { 0, 2, 2, 2 }, { 2, 1 }, { 1, 1 } },        // targets not increasing
+            { { 0, 2, 2, 2 }, { 1, 1 }, { 1, 1 } },        // duplicate target
+            { { 0, 2, 2, 2 }, { 1, 2 }, { 1, 0 } },        // zero weight
+            { { 0, 2, 2, 2 }, { 1, 2 }, { 1 } },           // weights too short
+        };
+        for (int[][] rows : invalid) {
+            assertThrows(IllegalArgumentException.class,
+                    () -> WordGraph.fromRows(vocabulary, rows[0], rows[1], rows[2]));
+        }
+    }
+
+    @Test
+    void testViewReadOnly() {
+        Vocabulary vocabulary = new Vocabulary();
+        Graph<String> graph = new ConcreteGraph<>();
+        graph.set(vocabulary.intern("a"), vocabulary.intern("b"), 1);
+        Graph<String> view = WordGraph.of(graph, vocabulary).asGraph();
+        assertThrows(UnsupportedOperationException.class, () -> view.set("a", "b", 2));
+        assertThrows(UnsupportedOperationException.class, () -> view.add("c"));
+        assertThrows(UnsupportedOperationException.class, () -> view.remove("a"));
+        assertThrows(UnsupportedOperationException.class, () -> view.targets("a").put("c", 1));
+        assertFalse(view.targets("a").containsKey(42));
+        assertFalse(view.vertices().contains("c"));
+    }
+
+    private static void assertSameBridges(Graph<String> expected, WordGraph actual) {
+        WordIds words = actual.words();
+        for (int first = 0; first < Math.min(words.size(), 100); first++) {
+            for (int second = 0; second < Math.min(words.size(), 100); second++) {
+                String bridge = BridgeSearch.bestBridge(expected, words.word(first), words.word(second));
+                int id = actual.bestBridge(first, second);
+                assertEquals(bridge, id < 0 ? null : words.word(id), words.word(first) + " " + words.word(second));
+            }
+        }
+    }
+}